@@ -0,0 +1,98 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.config.benchmark;
+
+import io.wcm.config.api.Configuration;
+import io.wcm.config.api.Parameter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures throughput of the configuration resolution services for the synthetic hierarchies generated by
+ * {@link ConfigurationScenario}. Run with <code>-prof gc</code> to get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigurationResolutionBenchmark {
+
+  /**
+   * Effective values for the full configuration id chain via {@link io.wcm.config.core.management.ParameterResolver}.
+   */
+  @Benchmark
+  public Map<String, Object> parameterResolverEffectiveValues(ConfigurationScenario scenario) {
+    return scenario.parameterResolver.getEffectiveValues(scenario.context.resourceResolver(),
+        scenario.configurationIds);
+  }
+
+  /**
+   * Forced overrides and locked parameter names for all parameters on all configuration levels
+   * via {@link io.wcm.config.core.management.ParameterOverride}.
+   */
+  @Benchmark
+  public void parameterOverrideForce(ConfigurationScenario scenario, Blackhole blackhole) {
+    for (String configurationId : scenario.configurationIds) {
+      for (Parameter<?> parameter : scenario.parameters) {
+        blackhole.consume(scenario.parameterOverride.getOverrideForce(configurationId, parameter));
+      }
+      blackhole.consume(scenario.parameterOverride.getLockedParameterNames(configurationId));
+    }
+  }
+
+  /**
+   * System default overrides for all parameters via {@link io.wcm.config.core.management.ParameterOverride}.
+   */
+  @Benchmark
+  public void parameterOverrideSystemDefault(ConfigurationScenario scenario, Blackhole blackhole) {
+    for (Parameter<?> parameter : scenario.parameters) {
+      blackhole.consume(scenario.parameterOverride.getOverrideSystemDefault(parameter));
+    }
+  }
+
+  /**
+   * Configuration id detection and resolution via {@link io.wcm.config.core.management.ConfigurationFinder}.
+   */
+  @Benchmark
+  public Configuration configurationFinderFind(ConfigurationScenario scenario) {
+    return scenario.configurationFinder.find(scenario.resource);
+  }
+
+  /**
+   * Full adaption path as used by application code via
+   * {@link io.wcm.config.core.impl.ConfigurationAdapterFactory}.
+   */
+  @Benchmark
+  public Configuration adapterFactoryGetAdapter(ConfigurationScenario scenario) {
+    return scenario.configurationAdapterFactory.getAdapter(scenario.resource, Configuration.class);
+  }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.config.benchmark;
+
+import io.wcm.config.api.Parameter;
+import io.wcm.config.api.ParameterBuilder;
+import io.wcm.config.core.impl.ConfigurationAdapterFactory;
+import io.wcm.config.core.management.ConfigurationFinder;
+import io.wcm.config.core.management.ParameterOverride;
+import io.wcm.config.core.management.ParameterPersistence;
+import io.wcm.config.core.management.ParameterPersistenceData;
+import io.wcm.config.core.management.ParameterResolver;
+import io.wcm.config.core.management.impl.ApplicationFinderImpl;
+import io.wcm.config.core.management.impl.ConfigurationFinderImpl;
+import io.wcm.config.core.management.impl.ParameterOverrideImpl;
+import io.wcm.config.core.management.impl.ParameterPersistenceImpl;
+import io.wcm.config.core.management.impl.ParameterResolverImpl;
+import io.wcm.config.core.persistence.impl.ToolsConfigPagePersistenceProvider;
+import io.wcm.config.spi.ConfigurationFinderStrategy;
+import io.wcm.config.spi.ParameterOverrideProvider;
+import io.wcm.config.spi.ParameterProvider;
+import io.wcm.config.spi.helpers.AbstractAbsoluteParentConfigurationFinderStrategy;
+import io.wcm.config.spi.helpers.AbstractParameterProvider;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Generates a synthetic configuration hierarchy in an AEM mock context and registers all configuration services.
+ * <p>
+ * The scenario is controlled by these parameters:
+ * </p>
+ * <ul>
+ * <li><code>depth</code>: Number of configuration levels below /content</li>
+ * <li><code>parameterCount</code>: Number of parameter definitions, about half of them is configured on each level</li>
+ * <li><code>overrideCount</code>: Number of parameter overrides, distributed over system default, global and
+ * scope-specific overrides</li>
+ * <li><code>finderStrategyCount</code>: Number of configuration finder strategies</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+public class ConfigurationScenario {
+
+  static final String APP_ID_PREFIX = "/apps/benchmark";
+  static final String CONTENT_ROOT = "/content";
+  static final String TEMPLATE = "/apps/benchmark/templates/page";
+
+  @Param({ "2", "5", "10" })
+  int depth;
+
+  @Param({ "10", "100", "1000" })
+  int parameterCount;
+
+  @Param({ "0", "100" })
+  int overrideCount;
+
+  @Param({ "1", "4" })
+  int finderStrategyCount;
+
+  BenchmarkAemContext context;
+
+  ParameterResolver parameterResolver;
+  ParameterOverride parameterOverride;
+  ConfigurationFinder configurationFinder;
+  ConfigurationAdapterFactory configurationAdapterFactory;
+
+  List<Parameter<?>> parameters;
+  List<String> configurationIds;
+  Resource resource;
+
+  @Setup(Level.Trial)
+  public void setUp() throws PersistenceException {
+    context = new BenchmarkAemContext();
+    context.start();
+
+    parameters = buildParameters();
+    configurationIds = buildContentHierarchy();
+
+    // app-specific services
+    for (int i = 0; i < finderStrategyCount; i++) {
+      context.registerService(ConfigurationFinderStrategy.class, new BenchmarkConfigurationFinderStrategy(i, depth));
+    }
+    context.registerService(ParameterProvider.class, new BenchmarkParameterProvider(parameters));
+
+    // persistence providers
+    context.registerInjectActivateService(new ToolsConfigPagePersistenceProvider(),
+        ImmutableValueMap.of("enabled", true));
+
+    // override providers
+    context.registerService(ParameterOverrideProvider.class, new BenchmarkOverrideProvider(buildOverrideMap()));
+
+    // management services
+    context.registerInjectActivateService(new ApplicationFinderImpl());
+    parameterOverride = context.registerInjectActivateService(new ParameterOverrideImpl());
+    ParameterPersistence parameterPersistence = context.registerInjectActivateService(new ParameterPersistenceImpl());
+    parameterResolver = context.registerInjectActivateService(new ParameterResolverImpl());
+    configurationFinder = context.registerInjectActivateService(new ConfigurationFinderImpl());
+
+    // adapter factory
+    configurationAdapterFactory = context.registerInjectActivateService(new ConfigurationAdapterFactory());
+
+    // store configuration values on each level
+    for (int level = 0; level < configurationIds.size(); level++) {
+      parameterPersistence.storeData(context.resourceResolver(), configurationIds.get(level),
+          buildPersistenceData(level));
+    }
+
+    resource = context.resourceResolver().getResource(configurationIds.get(0));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.stop();
+  }
+
+  /**
+   * @return Parameter definitions with mixed types
+   */
+  private List<Parameter<?>> buildParameters() {
+    List<Parameter<?>> result = new ArrayList<>();
+    for (int i = 0; i < parameterCount; i++) {
+      String appId = APP_ID_PREFIX + (i % finderStrategyCount);
+      switch (i % 3) {
+        case 0:
+          result.add(ParameterBuilder.create("stringParam" + i, String.class, appId).defaultValue("default" + i).build());
+          break;
+        case 1:
+          result.add(ParameterBuilder.create("intParam" + i, Integer.class, appId).defaultValue(i).build());
+          break;
+        default:
+          result.add(ParameterBuilder.create("boolParam" + i, Boolean.class, appId).defaultValue(false).build());
+          break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Creates a chain of pages with the given depth.
+   * @return Configuration ids in order of closest matching first
+   */
+  private List<String> buildContentHierarchy() {
+    List<String> ids = new ArrayList<>();
+    context.create().page(CONTENT_ROOT, TEMPLATE);
+    String path = CONTENT_ROOT;
+    for (int level = 1; level <= depth; level++) {
+      path = path + "/level" + level;
+      context.create().page(path, TEMPLATE);
+      ids.add(0, path);
+    }
+    return ImmutableList.copyOf(ids);
+  }
+
+  /**
+   * Configures about half of all parameters on each level, alternating between levels.
+   * The topmost level locks the first parameter.
+   * @param level Index in configuration id list (0 = closest match)
+   * @return Persistence data
+   */
+  private ParameterPersistenceData buildPersistenceData(int level) {
+    Map<String, Object> values = new HashMap<>();
+    for (int i = 0; i < parameters.size(); i++) {
+      if ((i + level) % 2 == 0) {
+        Parameter<?> parameter = parameters.get(i);
+        values.put(parameter.getName(), buildValue(parameter, level));
+      }
+    }
+    SortedSet<String> lockedParameterNames = new TreeSet<>();
+    if (level == configurationIds.size() - 1) {
+      lockedParameterNames.add(parameters.get(0).getName());
+    }
+    return new ParameterPersistenceData(values, lockedParameterNames);
+  }
+
+  private Object buildValue(Parameter<?> parameter, int level) {
+    if (parameter.getType() == Integer.class) {
+      return level;
+    }
+    else if (parameter.getType() == Boolean.class) {
+      return level % 2 == 0;
+    }
+    else {
+      return "value-" + level;
+    }
+  }
+
+  /**
+   * Distributes the overrides equally over system default, global forced and scoped forced overrides.
+   * @return Override map
+   */
+  private Map<String, String> buildOverrideMap() {
+    Map<String, String> overrideMap = new HashMap<>();
+    for (int i = 0; i < overrideCount; i++) {
+      Parameter<?> parameter = parameters.get(i % parameters.size());
+      String value = parameter.getType() == String.class ? "override" + i : "1";
+      switch (i % 3) {
+        case 0:
+          overrideMap.put("[" + ParameterOverride.DEFAULT_SCOPE + "]" + parameter.getName(), value);
+          break;
+        case 1:
+          overrideMap.put(parameter.getName(), value);
+          break;
+        default:
+          String configurationId = configurationIds.get(i % configurationIds.size());
+          String scope = (i % 2 == 0) ? configurationId + ParameterOverride.LOCKED_SUFFIX : configurationId;
+          overrideMap.put("[" + scope + "]" + parameter.getName(), value);
+          break;
+      }
+    }
+    return ImmutableMap.copyOf(overrideMap);
+  }
+
+
+  private static class BenchmarkParameterProvider extends AbstractParameterProvider {
+
+    BenchmarkParameterProvider(List<Parameter<?>> parameters) {
+      super(new LinkedHashSet<Parameter<?>>(parameters));
+    }
+
+  }
+
+  private static class BenchmarkConfigurationFinderStrategy extends AbstractAbsoluteParentConfigurationFinderStrategy {
+
+    BenchmarkConfigurationFinderStrategy(int index, int depth) {
+      super(APP_ID_PREFIX + index, levels(depth));
+    }
+
+    private static int[] levels(int depth) {
+      int[] levels = new int[depth];
+      for (int i = 0; i < depth; i++) {
+        levels[i] = depth - i;
+      }
+      return levels;
+    }
+
+  }
+
+  private static class BenchmarkOverrideProvider implements ParameterOverrideProvider {
+
+    private final Map<String, String> overrideMap;
+
+    BenchmarkOverrideProvider(Map<String, String> overrideMap) {
+      this.overrideMap = overrideMap;
+    }
+
+    @Override
+    public Map<String, String> getOverrideMap() {
+      return overrideMap;
+    }
+
+  }
+
+}
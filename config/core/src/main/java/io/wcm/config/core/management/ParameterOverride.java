@@ -59,6 +59,22 @@ public interface ParameterOverride {
    */
   <T> T getOverrideForce(String configurationId, Parameter<T> parameter);
 
+  /**
+   * Get names of all parameters for which a system default override exists.
+   * Allows to apply the overrides only for those parameters instead of probing all parameters.
+   * @return Parameter names or empty set.
+   */
+  Set<String> getOverrideSystemDefaultParameterNames();
+
+  /**
+   * Get names of all parameters for which a force override exists for the given configuration ID
+   * (either specific to this configuration ID or for all configurations).
+   * Allows to apply the overrides only for those parameters instead of probing all parameters.
+   * @param configurationId Configuration id
+   * @return Parameter names or empty set.
+   */
+  Set<String> getOverrideForceParameterNames(String configurationId);
+
   /**
    * Get parameter names that are locked for the given configuration ID.
    * @param configurationId Configuration id
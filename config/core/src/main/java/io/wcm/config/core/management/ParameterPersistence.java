@@ -19,6 +19,8 @@
  */
 package io.wcm.config.core.management;
 
+import java.util.Map;
+
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.osgi.annotation.versioning.ProviderType;
@@ -65,4 +67,18 @@ public interface ParameterPersistence {
   void storeData(ResourceResolver resolver, String configurationId, ParameterPersistenceData data,
       boolean mergeWithExisting) throws PersistenceException;
 
+  /**
+   * Writes parameter values for multiple configurations.
+   * Only changed properties are written, and the changes are committed in batches instead of once per configuration.
+   * The configurations are not stored atomically: If storing fails, the uncommitted changes of the current batch are
+   * reverted, but batches that were committed before remain stored.
+   * @param resolver Resource resolver
+   * @param data Map with parameter data (key = configuration id). Never null.
+   * @param mergeWithExisting If true, existing parameter values are only overridden when they are contained in the
+   *          set of parameter values. Otherwise all existing parameter values are erased before writing the new ones.
+   * @throws PersistenceException Persistence exception is thrown when storing configuration parameters fails.
+   */
+  void storeData(ResourceResolver resolver, Map<String, ParameterPersistenceData> data,
+      boolean mergeWithExisting) throws PersistenceException;
+
 }
@@ -0,0 +1,137 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.config.core.management.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+
+/**
+ * Copy-on-write map for effective parameter values.
+ * Reads fall through to a shared base map containing the default values, changes applied by the configuration
+ * levels are recorded in an overlay map that is created on the first value that actually differs from the base.
+ * Removing entries is not supported.
+ */
+final class EffectiveValueMap extends AbstractMap<String, Object> {
+
+  private final Map<String, Object> base;
+  private Map<String, Object> changes;
+
+  /**
+   * @param base Base values - this map is never modified and can be shared
+   */
+  EffectiveValueMap(Map<String, Object> base) {
+    this.base = base;
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (changes != null && changes.containsKey(key)) {
+      return changes.get(key);
+    }
+    return base.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return (changes != null && changes.containsKey(key)) || base.containsKey(key);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    Object previousValue = get(key);
+    if (Objects.equals(previousValue, value) && containsKey(key)) {
+      return previousValue;
+    }
+    if (changes == null) {
+      changes = new HashMap<>();
+    }
+    changes.put(key, value);
+    return previousValue;
+  }
+
+  @Override
+  public int size() {
+    int size = base.size();
+    if (changes != null) {
+      for (String key : changes.keySet()) {
+        if (!base.containsKey(key)) {
+          size++;
+        }
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Object>>() {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        return new EntryIterator();
+      }
+      @Override
+      public int size() {
+        return EffectiveValueMap.this.size();
+      }
+    };
+  }
+
+  /**
+   * Iterates over base entries with changed values applied, followed by changed entries not contained in base.
+   */
+  private final class EntryIterator extends AbstractIterator<Map.Entry<String, Object>> {
+
+    private final Iterator<Map.Entry<String, Object>> baseIterator = base.entrySet().iterator();
+    private Iterator<Map.Entry<String, Object>> changesIterator;
+
+    @Override
+    protected Map.Entry<String, Object> computeNext() {
+      if (baseIterator.hasNext()) {
+        Map.Entry<String, Object> entry = baseIterator.next();
+        if (changes != null && changes.containsKey(entry.getKey())) {
+          return Maps.immutableEntry(entry.getKey(), changes.get(entry.getKey()));
+        }
+        return entry;
+      }
+      if (changes != null) {
+        if (changesIterator == null) {
+          changesIterator = changes.entrySet().iterator();
+        }
+        while (changesIterator.hasNext()) {
+          Map.Entry<String, Object> entry = changesIterator.next();
+          if (!base.containsKey(entry.getKey())) {
+            return Maps.immutableEntry(entry.getKey(), entry.getValue());
+          }
+        }
+      }
+      return endOfData();
+    }
+
+  }
+
+}
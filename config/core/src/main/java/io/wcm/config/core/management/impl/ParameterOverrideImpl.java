@@ -71,6 +71,16 @@ public final class ParameterOverrideImpl implements ParameterOverride {
     return TypeConversion.stringToObject(value, parameter.getType());
   }
 
+  @Override
+  public Set<String> getOverrideSystemDefaultParameterNames() {
+    return lookup.getOverrideSystemDefaultParameterNames();
+  }
+
+  @Override
+  public Set<String> getOverrideForceParameterNames(String configurationId) {
+    return lookup.getOverrideForceParameterNames(configurationId);
+  }
+
   @Override
   public Set<String> getLockedParameterNames(String configurationId) {
     // get locked parameter names for explicit configuration and global and merge them
@@ -21,6 +21,7 @@ package io.wcm.config.core.management.impl;
 
 import io.wcm.config.core.management.ParameterPersistence;
 import io.wcm.config.core.management.ParameterPersistenceData;
+import io.wcm.config.core.persistence.impl.BatchParameterPersistenceProvider;
 import io.wcm.config.spi.ParameterPersistenceProvider;
 import io.wcm.sling.commons.osgi.RankedServices;
 
@@ -30,13 +31,17 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.osgi.PropertiesUtil;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,7 +50,9 @@ import com.google.common.collect.ImmutableSortedSet;
 /**
  * Default implementation of {@link ParameterPersistence}.
  */
-@Component(immediate = true, metatype = false)
+@Component(immediate = true, metatype = true,
+label = "wcm.io Configuration Parameter Persistence",
+description = "Configuration management service for reading and storing configuration parameters.")
 @Service(ParameterPersistence.class)
 public final class ParameterPersistenceImpl implements ParameterPersistence {
 
@@ -56,8 +63,22 @@ public final class ParameterPersistenceImpl implements ParameterPersistence {
       cardinality = ReferenceCardinality.OPTIONAL_MULTIPLE, policy = ReferencePolicy.DYNAMIC)
   private final RankedServices<ParameterPersistenceProvider> parameterPersistenceProviders = new RankedServices<>();
 
+  @Property(label = "Batch size",
+      description = "Maximum number of configurations that are written with a single commit when storing "
+          + "multiple configurations at once.",
+      intValue = ParameterPersistenceImpl.DEFAULT_BATCH_SIZE)
+  static final String PROPERTY_BATCH_SIZE = "batchSize";
+  static final int DEFAULT_BATCH_SIZE = 100;
+
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
   private static final Logger log = LoggerFactory.getLogger(ParameterPersistenceImpl.class);
 
+  @Activate
+  void activate(final ComponentContext ctx) {
+    batchSize = Math.max(1, PropertiesUtil.toInteger(ctx.getProperties().get(PROPERTY_BATCH_SIZE), DEFAULT_BATCH_SIZE));
+  }
+
   @Override
   public ParameterPersistenceData getData(ResourceResolver resolver, String configurationId) {
     // get values from first configuration provider that can provide them
@@ -94,6 +115,75 @@ public final class ParameterPersistenceImpl implements ParameterPersistence {
   @Override
   public void storeData(ResourceResolver resolver, String configurationId, ParameterPersistenceData data,
       boolean mergeWithExisting) throws PersistenceException {
+    Map<String, Object> valuesToStore = getValuesToStore(resolver, configurationId, data, mergeWithExisting);
+
+    // ask providers to store the parameter values
+    for (ParameterPersistenceProvider provider : parameterPersistenceProviders) {
+      if (provider.store(resolver, configurationId, valuesToStore)) {
+        if (log.isDebugEnabled()) {
+          log.debug("storeData({}) - provider stored values: {}", configurationId, provider.getClass().getName());
+        }
+        return;
+      }
+    }
+    throw new PersistenceException("No provider accepted to store parameter values for " + configurationId);
+  }
+
+  @Override
+  public void storeData(ResourceResolver resolver, Map<String, ParameterPersistenceData> data,
+      boolean mergeWithExisting) throws PersistenceException {
+    int uncommittedCount = 0;
+    try {
+      for (Map.Entry<String, ParameterPersistenceData> entry : data.entrySet()) {
+        String configurationId = entry.getKey();
+        Map<String, Object> valuesToStore = getValuesToStore(resolver, configurationId, entry.getValue(), mergeWithExisting);
+        if (storeDataWithoutCommit(resolver, configurationId, valuesToStore)) {
+          uncommittedCount++;
+        }
+        if (uncommittedCount >= batchSize) {
+          resolver.commit();
+          uncommittedCount = 0;
+        }
+      }
+      if (uncommittedCount > 0) {
+        resolver.commit();
+      }
+    }
+    catch (PersistenceException ex) {
+      // discard the changes of the failed batch, batches committed before are not rolled back
+      resolver.revert();
+      throw ex;
+    }
+  }
+
+  /**
+   * Ask providers to store the parameter values. Providers supporting batch operations do not commit the changes.
+   * @return true if changes are not committed yet.
+   */
+  private boolean storeDataWithoutCommit(ResourceResolver resolver, String configurationId,
+      Map<String, Object> valuesToStore) throws PersistenceException {
+    for (ParameterPersistenceProvider provider : parameterPersistenceProviders) {
+      boolean uncommitted = false;
+      boolean stored;
+      if (provider instanceof BatchParameterPersistenceProvider) {
+        stored = ((BatchParameterPersistenceProvider)provider).storeWithoutCommit(resolver, configurationId, valuesToStore);
+        uncommitted = true;
+      }
+      else {
+        stored = provider.store(resolver, configurationId, valuesToStore);
+      }
+      if (stored) {
+        if (log.isDebugEnabled()) {
+          log.debug("storeData({}) - provider stored values: {}", configurationId, provider.getClass().getName());
+        }
+        return uncommitted;
+      }
+    }
+    throw new PersistenceException("No provider accepted to store parameter values for " + configurationId);
+  }
+
+  private Map<String, Object> getValuesToStore(ResourceResolver resolver, String configurationId,
+      ParameterPersistenceData data, boolean mergeWithExisting) {
 
     // merge values with existing if requested
     Map<String, Object> valuesToStore = new HashMap<>();
@@ -120,17 +210,7 @@ public final class ParameterPersistenceImpl implements ParameterPersistence {
         valuesToStore.put(PN_LOCKED_PARAMETER_NAMES, toArray(data.getLockedParameterNames()));
       }
     }
-
-    // ask providers to store the parameter values
-    for (ParameterPersistenceProvider provider : parameterPersistenceProviders) {
-      if (provider.store(resolver, configurationId, valuesToStore)) {
-        if (log.isDebugEnabled()) {
-          log.debug("storeData({}) - provider stored values: {}", configurationId, provider.getClass().getName());
-        }
-        return;
-      }
-    }
-    throw new PersistenceException("No provider accepted to store parameter values for " + configurationId);
+    return valuesToStore;
   }
 
   private String[] toArray(Set<String> set) {
@@ -29,6 +29,7 @@ import io.wcm.config.spi.ParameterProvider;
 import io.wcm.sling.commons.osgi.RankedServices;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -72,8 +73,8 @@ public final class ParameterResolverImpl implements ParameterResolver {
 
   private BundleContext bundleContext;
 
-  private volatile Set<Parameter<?>> allParameters = ImmutableSet.of();
-  private volatile Map<String, Parameter<?>> allParametersMap = ImmutableMap.of();
+  // published as a whole to make sure resolutions never see a mix of old and new parameter definitions
+  private volatile ParameterDefinitions parameterDefinitions = ParameterDefinitions.EMPTY;
 
   /**
    * Parameter providers implemented by installed applications.
@@ -84,21 +85,25 @@ public final class ParameterResolverImpl implements ParameterResolver {
 
   @Override
   public Map<String, Object> getEffectiveValues(ResourceResolver resolver, Collection<String> configurationIds) {
-    Map<String, Object> parameterValues = new HashMap<>();
+    ParameterDefinitions definitions = parameterDefinitions;
+
+    // static default values are shared, only values differing from them are recorded
+    Map<String, Object> parameterValues = new EffectiveValueMap(definitions.staticDefaultValues);
 
     // apply default values
-    applyDefaultValues(parameterValues);
-    applyOverrideSystemDefault(parameterValues);
+    applyOsgiDefaultValues(definitions, parameterValues);
+    applyOverrideSystemDefault(definitions, parameterValues);
 
     // apply configured values following inheritance hierarchy
     String[] configurationIdArray = Iterators.toArray(configurationIds.iterator(), String.class);
-    SortedSet<String> lockedParameterNames = ImmutableSortedSet.<String>of();
+    Set<String> lockedParameterNames = null;
     for (int i = configurationIdArray.length - 1; i >= 0; i--) {
       String configurationId = configurationIdArray[i];
-      lockedParameterNames = applyConfiguredValues(resolver, configurationId, parameterValues, lockedParameterNames);
+      lockedParameterNames = applyConfiguredValues(definitions, resolver, configurationId, parameterValues,
+          lockedParameterNames);
 
       // apply forced override values
-      lockedParameterNames = applyOverrideForce(configurationId, parameterValues, lockedParameterNames);
+      lockedParameterNames = applyOverrideForce(definitions, configurationId, parameterValues, lockedParameterNames);
     }
 
     return parameterValues;
@@ -110,15 +115,17 @@ public final class ParameterResolverImpl implements ParameterResolver {
    */
   @Override
   public Set<Parameter<?>> getAllParameters() {
-    return allParameters;
+    return parameterDefinitions.allParameters;
   }
 
   /**
-   * Apply default values for all parameters.
+   * Apply default values for all parameters that read their default value from an OSGi configuration property.
+   * The default values of all other parameters are already contained in the static default values map.
+   * @param definitions Parameter definitions
    * @param parameterValues Parameter values
    */
-  private void applyDefaultValues(Map<String, Object> parameterValues) {
-    for (Parameter<?> parameter : allParameters) {
+  private void applyOsgiDefaultValues(ParameterDefinitions definitions, Map<String, Object> parameterValues) {
+    for (Parameter<?> parameter : definitions.osgiDefaultParameters) {
       parameterValues.put(parameter.getName(), getParameterDefaultValue(parameter));
     }
   }
@@ -145,45 +152,50 @@ public final class ParameterResolverImpl implements ParameterResolver {
 
   /**
    * Apply system-wide overrides for default values.
+   * @param definitions Parameter definitions
    * @param parameterValues Parameter values
    */
-  private void applyOverrideSystemDefault(Map<String, Object> parameterValues) {
-    for (Parameter<?> parameter : allParameters) {
-      Object overrideValue = parameterOverride.getOverrideSystemDefault(parameter);
-      if (overrideValue != null) {
-        parameterValues.put(parameter.getName(), overrideValue);
+  private void applyOverrideSystemDefault(ParameterDefinitions definitions, Map<String, Object> parameterValues) {
+    for (String parameterName : parameterOverride.getOverrideSystemDefaultParameterNames()) {
+      Parameter<?> parameter = definitions.allParametersMap.get(parameterName);
+      if (parameter != null) {
+        Object overrideValue = parameterOverride.getOverrideSystemDefault(parameter);
+        if (overrideValue != null) {
+          parameterValues.put(parameter.getName(), overrideValue);
+        }
       }
     }
   }
 
   /**
    * Apply configured values for given configuration id (except those for which the parameter names are locked on a
-   * higher configuration level).
+   * higher configuration level). Values which types do not match, or for which no parameter definition exists are
+   * ignored. Types are converted from persistence format if required.
+   * @param definitions Parameter definitions
    * @param resolver Resource resolver
    * @param configurationId Configuration id
    * @param parameterValues Parameter values
-   * @param ancestorLockedParameterNames Set of locked parameter names on the configuration levels above.
+   * @param ancestorLockedParameterNames Set of locked parameter names on the configuration levels above or null.
    * @return Set of locked parameter names on this configuration level combined with the from the levels above.
    */
-  private SortedSet<String> applyConfiguredValues(ResourceResolver resolver, String configurationId,
-      Map<String, Object> parameterValues, SortedSet<String> ancestorLockedParameterNames) {
+  private Set<String> applyConfiguredValues(ParameterDefinitions definitions, ResourceResolver resolver,
+      String configurationId, Map<String, Object> parameterValues, Set<String> ancestorLockedParameterNames) {
 
     // get data from persistence
     ParameterPersistenceData data = parameterPersistence.getData(resolver, configurationId);
 
-    // ensure the types provided by persistence are valid
-    Map<String, Object> configuredValues = ensureValidValueTypes(data.getValues());
-
     // put parameter values to map (respect locked parameter names that may be defined on ancestor level)
-    if (!ancestorLockedParameterNames.isEmpty()) {
-      for (Map.Entry<String, Object> entry : configuredValues.entrySet()) {
-        if (!ancestorLockedParameterNames.contains(entry.getKey())) {
-          parameterValues.put(entry.getKey(), entry.getValue());
-        }
+    for (Map.Entry<String, Object> entry : data.getValues().entrySet()) {
+      if (entry.getKey() == null || entry.getValue() == null) {
+        continue;
+      }
+      if (ancestorLockedParameterNames != null && ancestorLockedParameterNames.contains(entry.getKey())) {
+        continue;
+      }
+      Object value = toValidValueType(definitions, entry.getKey(), entry.getValue());
+      if (value != null) {
+        parameterValues.put(entry.getKey(), value);
       }
-    }
-    else {
-      parameterValues.putAll(configuredValues);
     }
 
     // aggregate set of locked parameter names from ancestor levels and this level
@@ -191,46 +203,42 @@ public final class ParameterResolverImpl implements ParameterResolver {
   }
 
   /**
-   * Make sure value types match with declared parameter types. Values which types do not match, or for which no
-   * parameter definition exists are removed. Types are converted from persistence format if required.
-   * @return Cleaned up parameter values
+   * Make sure value type matches with declared parameter type. Types are converted from persistence format if
+   * required.
+   * @param definitions Parameter definitions
+   * @param parameterName Parameter name
+   * @param value Value from persistence
+   * @return Converted value or null if no parameter definition exists or the type does not match
    */
-  private Map<String, Object> ensureValidValueTypes(Map<String, Object> parameterValues) {
-    Map<String, Object> transformedParameterValues = new HashMap<>();
-    for (Map.Entry<String, Object> entry : parameterValues.entrySet()) {
-      if (entry.getKey() == null || entry.getValue() == null) {
-        continue;
-      }
-      else {
-        Parameter<?> parameter = allParametersMap.get(entry.getKey());
-        if (parameter == null) {
-          continue;
-        }
-        else {
-          Object transformedValue = PersistenceTypeConversion.fromPersistenceType(entry.getValue(), parameter.getType());
-          if (!parameter.getType().isAssignableFrom(transformedValue.getClass())) {
-            continue;
-          }
-          transformedParameterValues.put(entry.getKey(), transformedValue);
-        }
-      }
+  private Object toValidValueType(ParameterDefinitions definitions, String parameterName, Object value) {
+    Parameter<?> parameter = definitions.allParametersMap.get(parameterName);
+    if (parameter == null) {
+      return null;
+    }
+    Object transformedValue = PersistenceTypeConversion.fromPersistenceType(value, parameter.getType());
+    if (!parameter.getType().isAssignableFrom(transformedValue.getClass())) {
+      return null;
     }
-    return transformedParameterValues;
+    return transformedValue;
   }
 
   /**
    * Apply forced overrides for a configurationId.
+   * @param definitions Parameter definitions
    * @param configurationId Configuration id
    * @param parameterValues Parameter values
-   * @param ancestorLockedParameterNames Set of locked parameter names on the configuration levels above.
+   * @param ancestorLockedParameterNames Set of locked parameter names on the configuration levels above or null.
    * @return Set of locked parameter names on this configuration level combined with the from the levels above.
    */
-  private SortedSet<String> applyOverrideForce(String configurationId, Map<String, Object> parameterValues,
-      SortedSet<String> ancestorLockedParameterNames) {
-    for (Parameter<?> parameter : allParameters) {
-      Object overrideValue = parameterOverride.getOverrideForce(configurationId, parameter);
-      if (overrideValue != null) {
-        parameterValues.put(parameter.getName(), overrideValue);
+  private Set<String> applyOverrideForce(ParameterDefinitions definitions, String configurationId,
+      Map<String, Object> parameterValues, Set<String> ancestorLockedParameterNames) {
+    for (String parameterName : parameterOverride.getOverrideForceParameterNames(configurationId)) {
+      Parameter<?> parameter = definitions.allParametersMap.get(parameterName);
+      if (parameter != null) {
+        Object overrideValue = parameterOverride.getOverrideForce(configurationId, parameter);
+        if (overrideValue != null) {
+          parameterValues.put(parameter.getName(), overrideValue);
+        }
       }
     }
 
@@ -266,18 +274,21 @@ public final class ParameterResolverImpl implements ParameterResolver {
   }
 
   /**
-   * Merge two sets. If secondary set is empty return primary.
-   * @param primary Primary set
+   * Merge secondary set into primary set. The primary set is only created when the secondary set is not empty,
+   * and is modified in place afterwards - it is owned by a single resolution call.
+   * @param primary Primary set or null
    * @param secondary Secondary set
-   * @return Merged set
+   * @return Merged set or null
    */
-  private SortedSet<String> mergeSets(SortedSet<String> primary, Set<String> secondary) {
-    SortedSet<String> result = primary;
-    if (!secondary.isEmpty()) {
-      result = new TreeSet<>();
-      result.addAll(primary);
-      result.addAll(secondary);
+  private Set<String> mergeSets(Set<String> primary, Set<String> secondary) {
+    if (secondary.isEmpty()) {
+      return primary;
+    }
+    Set<String> result = primary;
+    if (result == null) {
+      result = new HashSet<>();
     }
+    result.addAll(secondary);
     return result;
   }
 
@@ -297,8 +308,7 @@ public final class ParameterResolverImpl implements ParameterResolver {
 
 
   /**
-   * Synchronizes the fields allParameters and allParametersMap whenever a parameter provider service
-   * is added or removed.
+   * Rebuilds the parameter definitions whenever a parameter provider service is added or removed.
    */
   private class ParameterProviderChangeListener implements RankedServices.ChangeListener {
 
@@ -308,13 +318,44 @@ public final class ParameterResolverImpl implements ParameterResolver {
       for (ParameterProvider provider : ParameterResolverImpl.this.parameterProviders) {
         parameters.addAll(provider.getParameters());
       }
-      ParameterResolverImpl.this.allParameters = ImmutableSortedSet.copyOf(parameters);
+      ParameterResolverImpl.this.parameterDefinitions = new ParameterDefinitions(parameters);
+    }
+
+  }
+
+
+  /**
+   * Immutable snapshot of all parameter definitions and the data derived from them.
+   */
+  private static final class ParameterDefinitions {
+
+    static final ParameterDefinitions EMPTY = new ParameterDefinitions(new TreeSet<Parameter<?>>());
+
+    private final Set<Parameter<?>> allParameters;
+    private final Map<String, Parameter<?>> allParametersMap;
+    private final Map<String, Object> staticDefaultValues;
+    private final Set<Parameter<?>> osgiDefaultParameters;
+
+    ParameterDefinitions(SortedSet<Parameter<?>> parameters) {
+      allParameters = ImmutableSortedSet.copyOf(parameters);
 
       Map<String, Parameter<?>> parameterMap = new TreeMap<>();
-      for (Parameter<?> parameter : ParameterResolverImpl.this.allParameters) {
+      for (Parameter<?> parameter : allParameters) {
         parameterMap.put(parameter.getName(), parameter);
       }
-      ParameterResolverImpl.this.allParametersMap = ImmutableMap.copyOf(parameterMap);
+      allParametersMap = ImmutableMap.copyOf(parameterMap);
+
+      // default values may be null, so no immutable map from guava can be used
+      Map<String, Object> defaultValues = new HashMap<>();
+      Set<Parameter<?>> parametersWithOsgiDefault = new HashSet<>();
+      for (Parameter<?> parameter : allParameters) {
+        defaultValues.put(parameter.getName(), parameter.getDefaultValue());
+        if (StringUtils.isNotBlank(parameter.getDefaultOsgiConfigProperty())) {
+          parametersWithOsgiDefault.add(parameter);
+        }
+      }
+      staticDefaultValues = Collections.unmodifiableMap(defaultValues);
+      osgiDefaultParameters = ImmutableSet.copyOf(parametersWithOsgiDefault);
     }
 
   }
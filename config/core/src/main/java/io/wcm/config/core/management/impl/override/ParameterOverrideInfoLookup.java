@@ -43,6 +43,9 @@ public class ParameterOverrideInfoLookup {
   private final Map<String, Map<String, String>> overrideForceScopeMap = new HashMap<>();
   private Set<String> lockedParameterNamesSet = new HashSet<>();
   private Map<String, Set<String>> lockedParameterNamesScopeMap = new HashMap<>();
+  private Set<String> overrideSystemDefaultParameterNames = ImmutableSet.of();
+  private Set<String> overrideForceParameterNames = ImmutableSet.of();
+  private Map<String, Set<String>> overrideForceParameterNamesScopeMap = ImmutableMap.of();
   private boolean sealed;
 
   private final Logger log = LoggerFactory.getLogger(ParameterOverrideInfoLookup.class);
@@ -93,7 +96,7 @@ public class ParameterOverrideInfoLookup {
   }
 
   /**
-   * Make all maps and sets immutable.
+   * Make all maps and sets immutable and build index of overridden parameter names per configuration id.
    */
   public void seal() {
     lockedParameterNamesSet = ImmutableSet.copyOf(lockedParameterNamesSet);
@@ -103,6 +106,21 @@ public class ParameterOverrideInfoLookup {
         return ImmutableSet.copyOf(input);
       }
     }));
+
+    // index parameter names that have overrides - per configuration id the global force overrides are included
+    overrideSystemDefaultParameterNames = ImmutableSet.copyOf(overrideSystemDefaultMap.keySet());
+    overrideForceParameterNames = ImmutableSet.copyOf(overrideForceMap.keySet());
+    overrideForceParameterNamesScopeMap = ImmutableMap.copyOf(Maps.transformValues(overrideForceScopeMap,
+        new Function<Map<String, String>, Set<String>>() {
+      @Override
+      public Set<String> apply(Map<String, String> input) {
+        return ImmutableSet.<String>builder()
+            .addAll(overrideForceParameterNames)
+            .addAll(input.keySet())
+            .build();
+      }
+    }));
+
     sealed = true;
   }
 
@@ -149,6 +167,30 @@ public class ParameterOverrideInfoLookup {
     return null;
   }
 
+  /**
+   * Get names of all parameters with system default override.
+   * @return Parameter names
+   */
+  public Set<String> getOverrideSystemDefaultParameterNames() {
+    return overrideSystemDefaultParameterNames;
+  }
+
+  /**
+   * Get names of all parameters with force override for the given configuration Id
+   * (either specific to this configuration Id or for all configurations).
+   * @param configurationId Configuration Id
+   * @return Parameter names
+   */
+  public Set<String> getOverrideForceParameterNames(String configurationId) {
+    Set<String> parameterNames = overrideForceParameterNamesScopeMap.get(configurationId);
+    if (parameterNames != null) {
+      return parameterNames;
+    }
+    else {
+      return overrideForceParameterNames;
+    }
+  }
+
   /**
    * Get locked parameter names without specifc configuration Id.
    * @return Parameter names
@@ -19,10 +19,11 @@
  */
 package io.wcm.config.core.persistence.impl;
 
-import io.wcm.config.spi.ParameterPersistenceProvider;
-
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.ModifiableValueMap;
@@ -43,9 +44,10 @@ import com.day.cq.wcm.api.WCMException;
 /**
  * Common functionality for storing configuration in a configuration page.
  */
-abstract class AbstractConfigPagePersistenceProvider implements ParameterPersistenceProvider {
+abstract class AbstractConfigPagePersistenceProvider implements BatchParameterPersistenceProvider {
 
   static final String CONFIG_RESOURCE_NAME = "config";
+  private static final String JCR_NAMESPACE_PREFIX = "jcr:";
 
   private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -68,6 +70,21 @@ abstract class AbstractConfigPagePersistenceProvider implements ParameterPersist
   @Override
   public final boolean store(ResourceResolver resolver, String configurationId, Map<String, Object> values)
       throws PersistenceException {
+    if (!storeWithoutCommit(resolver, configurationId, values)) {
+      return false;
+    }
+    try {
+      resolver.commit();
+    }
+    catch (PersistenceException ex) {
+      throw new PersistenceException("Storing configuration values to " + getConfigPagePath(configurationId) + " failed.", ex);
+    }
+    return true;
+  }
+
+  @Override
+  public final boolean storeWithoutCommit(ResourceResolver resolver, String configurationId, Map<String, Object> values)
+      throws PersistenceException {
     if (!isEnabled()) {
       return false;
     }
@@ -124,13 +141,54 @@ abstract class AbstractConfigPagePersistenceProvider implements ParameterPersist
     String name = ResourceUtil.getName(path);
     PageManager pageManager = resolver.adaptTo(PageManager.class);
     try {
-      return pageManager.create(parentPath, name, StringUtils.defaultString(template), name, true);
+      // do not auto-save - changes are committed together with the configuration values
+      return pageManager.create(parentPath, name, StringUtils.defaultString(template), name, false);
     }
     catch (WCMException ex) {
       throw new PersistenceException("Creating page at " + path + " failed.", ex);
     }
   }
 
+  /**
+   * Applies the differences between the existing and the new parameter values.
+   * JCR-internal properties are left untouched.
+   * @param existingProps Existing properties of config resource
+   * @param values New parameter values
+   * @return true if at least one property was changed
+   */
+  private boolean applyChangedValues(ModifiableValueMap existingProps, Map<String, Object> values) {
+    boolean changed = false;
+
+    // remove properties that are no longer present
+    List<String> keysToRemove = new ArrayList<>();
+    for (String key : existingProps.keySet()) {
+      if (!StringUtils.startsWith(key, JCR_NAMESPACE_PREFIX) && !values.containsKey(key)) {
+        keysToRemove.add(key);
+      }
+    }
+    for (String key : keysToRemove) {
+      existingProps.remove(key);
+      changed = true;
+    }
+
+    // add or update properties with changed values
+    for (Map.Entry<String, Object> entry : values.entrySet()) {
+      Object value = entry.getValue();
+      if (value == null) {
+        if (existingProps.containsKey(entry.getKey())) {
+          existingProps.remove(entry.getKey());
+          changed = true;
+        }
+      }
+      else if (!Objects.deepEquals(existingProps.get(entry.getKey(), value.getClass()), value)) {
+        existingProps.put(entry.getKey(), value);
+        changed = true;
+      }
+    }
+
+    return changed;
+  }
+
   private void storeValues(ResourceResolver resolver, Page configPage, Map<String, Object> values) throws PersistenceException {
     try {
       ModifiableValueMap contentProps = configPage.getContentResource().adaptTo(ModifiableValueMap.class);
@@ -143,18 +201,19 @@ abstract class AbstractConfigPagePersistenceProvider implements ParameterPersist
         }
       }
 
-      // write configuration data
+      // write configuration data - only properties that have changed
       Resource configResource = configPage.getContentResource(CONFIG_RESOURCE_NAME);
-      if (configResource != null) {
-        resolver.delete(configResource);
+      if (configResource == null) {
+        resolver.create(configPage.getContentResource(), CONFIG_RESOURCE_NAME, values);
+      }
+      else if (!applyChangedValues(configResource.adaptTo(ModifiableValueMap.class), values)) {
+        // nothing changed - leave last modified info untouched
+        return;
       }
-      configResource = resolver.create(configPage.getContentResource(), CONFIG_RESOURCE_NAME, values);
 
       // update last modified info
       contentProps.put(NameConstants.PN_LAST_MOD, Calendar.getInstance());
       contentProps.put(NameConstants.PN_LAST_MOD_BY, resolver.getAttribute(ResourceResolverFactory.USER));
-
-      resolver.commit();
     }
     catch (PersistenceException ex) {
       throw new PersistenceException("Storing configuration values to " + configPage.getPath() + " failed.", ex);
@@ -0,0 +1,49 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.config.core.persistence.impl;
+
+import io.wcm.config.spi.ParameterPersistenceProvider;
+
+import java.util.Map;
+
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Parameter persistence provider that supports storing parameter values without committing them immediately.
+ * This allows writing many configurations with a single commit.
+ */
+public interface BatchParameterPersistenceProvider extends ParameterPersistenceProvider {
+
+  /**
+   * Writes parameter values for a configuration, but does not commit the changes.
+   * All existing parameter values not contained in the given map are removed.
+   * The caller is responsible for calling {@link ResourceResolver#commit()}.
+   * @param resolver Resource resolver
+   * @param configurationId Configuration id
+   * @param values Parameter values. Map may include "control" properties within the "wcm-io-config:" namespace.
+   * @return true if parameters are accepted. false if this provider does not accept storing the parameters
+   *         and the next provider should be asked to store them.
+   * @throws PersistenceException Persistence exception is thrown when storing configuration parameters fails.
+   */
+  boolean storeWithoutCommit(ResourceResolver resolver, String configurationId, Map<String, Object> values)
+      throws PersistenceException;
+
+}
@@ -53,6 +53,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 
@@ -137,6 +138,27 @@ public class CombinedTest {
     assertEquals("value4-osgi", config.get(PROP_4));
   }
 
+  @Test
+  public void testWriteReadConfigBatch() throws PersistenceException {
+    ParameterPersistence persistence = context.getService(ParameterPersistence.class);
+    persistence.storeData(context.resourceResolver(), ImmutableMap.of(
+        CONFIG_ID, new ParameterPersistenceData(ImmutableValueMap.of(PROP_3.getName(), "value3-new"), ImmutableSortedSet.<String>of()),
+        "/content/region1", new ParameterPersistenceData(ImmutableValueMap.of(PROP_2.getName(), "value2-new"), ImmutableSortedSet.<String>of())),
+        true);
+
+    Resource resource = context.request().getResource();
+    Configuration config = resource.adaptTo(Configuration.class);
+
+    assertNotNull(config);
+    assertEquals("value1-l3", config.get(PROP_1));
+    assertEquals("value2-l2", config.get(PROP_2));
+    assertEquals("value3-new", config.get(PROP_3));
+    assertEquals("value4-osgi", config.get(PROP_4));
+
+    Configuration regionConfig = context.resourceResolver().getResource("/content/region1").adaptTo(Configuration.class);
+    assertEquals("value2-new", regionConfig.get(PROP_2));
+  }
+
 
   private static class SampleParameterProvider implements ParameterProvider {
 
@@ -0,0 +1,88 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.config.core.management.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class EffectiveValueMapTest {
+
+  private Map<String, Object> base;
+  private EffectiveValueMap underTest;
+
+  @Before
+  public void setUp() {
+    Map<String, Object> values = new HashMap<>();
+    values.put("param1", "value1");
+    values.put("param2", 5);
+    values.put("param3", null);
+    base = Collections.unmodifiableMap(values);
+    underTest = new EffectiveValueMap(base);
+  }
+
+  @Test
+  public void testBaseValues() {
+    assertEquals(3, underTest.size());
+    assertEquals("value1", underTest.get("param1"));
+    assertEquals(5, underTest.get("param2"));
+    assertNull(underTest.get("param3"));
+    assertTrue(underTest.containsKey("param3"));
+    assertFalse(underTest.containsKey("param4"));
+    assertEquals(base, underTest);
+  }
+
+  @Test
+  public void testChangedValues() {
+    assertEquals("value1", underTest.put("param1", "value1a"));
+    assertNull(underTest.put("param3", "value3"));
+    assertNull(underTest.put("param4", true));
+
+    assertEquals(4, underTest.size());
+    assertEquals(ImmutableMap.<String, Object>of(
+        "param1", "value1a",
+        "param2", 5,
+        "param3", "value3",
+        "param4", true), underTest);
+
+    // base map is not touched
+    assertEquals("value1", base.get("param1"));
+    assertFalse(base.containsKey("param4"));
+  }
+
+  @Test
+  public void testUnchangedValues() {
+    assertEquals("value1", underTest.put("param1", "value1"));
+    assertNull(underTest.put("param3", null));
+    assertEquals(base, underTest);
+    assertEquals(3, underTest.entrySet().size());
+  }
+
+}
@@ -23,11 +23,20 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import io.wcm.config.core.management.ParameterPersistence;
 import io.wcm.config.core.management.ParameterPersistenceData;
+import io.wcm.config.core.persistence.impl.BatchParameterPersistenceProvider;
 import io.wcm.config.spi.ParameterPersistenceProvider;
 import io.wcm.sling.commons.resource.ImmutableValueMap;
 
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.SortedSet;
 
@@ -40,7 +49,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.osgi.framework.Constants;
+import org.osgi.service.component.ComponentContext;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedSet;
 
 /**
@@ -80,6 +91,13 @@ public class ParameterPersistenceImplTest {
       ImmutableValueMap.of(Constants.SERVICE_ID, 2L,
           Constants.SERVICE_RANKING, 20);
 
+  private static final Map<String, Object> SERVICE_PROPS_BATCH =
+      ImmutableValueMap.of(Constants.SERVICE_ID, 3L,
+          Constants.SERVICE_RANKING, 5);
+
+  @Mock
+  private ComponentContext componentContext;
+
   @InjectMocks
   private ParameterPersistenceImpl underTest;
 
@@ -205,6 +223,93 @@ public class ParameterPersistenceImplTest {
     assertEqualsInclArrayValues(storedValues, persistenceProvider1.getMap());
   }
 
+  @Test
+  public void testStoreValues_Batch() throws PersistenceException {
+    persistenceProvider1.setMap(SAMPLE_VALUES_INTERNAL);
+    persistenceProvider1.setStoreSuccess(true);
+
+    underTest.storeData(resolver, ImmutableMap.of(CONFIG_ID,
+        new ParameterPersistenceData(SAMPLE_VALUES_2, ImmutableSortedSet.<String>of())), true);
+
+    Map<String, Object> expecMap = ImmutableValueMap.builder()
+        .put("prop1", "value1")
+        .put("prop3", "value3")
+        .put("prop2", 66)
+        .put(ParameterPersistence.PN_LOCKED_PARAMETER_NAMES, new String[] {
+            "prop1", "prop5"
+        })
+        .build();
+    assertEqualsInclArrayValues(expecMap, persistenceProvider1.getMap());
+
+    // provider does not support batch operations and commits itself
+    verify(resolver, never()).commit();
+  }
+
+  @Test
+  public void testStoreValues_Batch_BatchProvider() throws PersistenceException {
+    DummyBatchPersistenceProvider batchPersistenceProvider = new DummyBatchPersistenceProvider();
+    batchPersistenceProvider.setStoreSuccess(true);
+    underTest.bindParameterPersistenceProvider(batchPersistenceProvider, SERVICE_PROPS_BATCH);
+
+    Hashtable<String, Object> config = new Hashtable<>();
+    config.put(ParameterPersistenceImpl.PROPERTY_BATCH_SIZE, 2);
+    when(componentContext.getProperties()).thenReturn(config);
+    underTest.activate(componentContext);
+
+    Map<String, ParameterPersistenceData> data = new LinkedHashMap<>();
+    for (int i = 1; i <= 5; i++) {
+      data.put("/config" + i, new ParameterPersistenceData(SAMPLE_VALUES_2, ImmutableSortedSet.<String>of()));
+    }
+    underTest.storeData(resolver, data, false);
+
+    assertEquals(5, batchPersistenceProvider.getStoreWithoutCommitCount());
+    assertEqualsInclArrayValues(SAMPLE_VALUES_2, batchPersistenceProvider.getMap());
+    assertNull(persistenceProvider1.getMap());
+
+    // two full batches and the remaining configuration
+    verify(resolver, times(3)).commit();
+  }
+
+  @Test
+  public void testStoreValues_Batch_CommitFailed() throws PersistenceException {
+    DummyBatchPersistenceProvider batchPersistenceProvider = new DummyBatchPersistenceProvider();
+    batchPersistenceProvider.setStoreSuccess(true);
+    underTest.bindParameterPersistenceProvider(batchPersistenceProvider, SERVICE_PROPS_BATCH);
+
+    Hashtable<String, Object> config = new Hashtable<>();
+    config.put(ParameterPersistenceImpl.PROPERTY_BATCH_SIZE, 2);
+    when(componentContext.getProperties()).thenReturn(config);
+    underTest.activate(componentContext);
+
+    // second batch fails
+    doNothing().doThrow(new PersistenceException("failed")).when(resolver).commit();
+
+    Map<String, ParameterPersistenceData> data = new LinkedHashMap<>();
+    for (int i = 1; i <= 5; i++) {
+      data.put("/config" + i, new ParameterPersistenceData(SAMPLE_VALUES_2, ImmutableSortedSet.<String>of()));
+    }
+    try {
+      underTest.storeData(resolver, data, false);
+      fail("PersistenceException expected");
+    }
+    catch (PersistenceException ex) {
+      // expected
+    }
+
+    assertEquals(4, batchPersistenceProvider.getStoreWithoutCommitCount());
+    verify(resolver, times(2)).commit();
+    verify(resolver).revert();
+  }
+
+  @Test(expected = PersistenceException.class)
+  public void testStoreValues_Batch_NoProvider() throws PersistenceException {
+    persistenceProvider1.setStoreSuccess(false);
+    persistenceProvider2.setStoreSuccess(false);
+
+    underTest.storeData(resolver, ImmutableMap.of(CONFIG_ID,
+        new ParameterPersistenceData(SAMPLE_VALUES, SAMPLE_LOCKED_PARAMETER_NAMES)), false);
+  }
+
   /**
    * Asserts two maps and if value is an string array compares the arrays for equality as well.
    */
@@ -252,4 +357,22 @@ public class ParameterPersistenceImplTest {
 
   }
 
+  static class DummyBatchPersistenceProvider extends DummyPersistenceProvider
+      implements BatchParameterPersistenceProvider {
+
+    private int storeWithoutCommitCount;
+
+    @Override
+    public boolean storeWithoutCommit(ResourceResolver resolver, String configurationId, Map<String, Object> values)
+        throws PersistenceException {
+      storeWithoutCommitCount++;
+      return store(resolver, configurationId, values);
+    }
+
+    public int getStoreWithoutCommitCount() {
+      return this.storeWithoutCommitCount;
+    }
+
+  }
+
 }
@@ -26,6 +26,8 @@ import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import io.wcm.config.api.Parameter;
 import io.wcm.config.core.management.ParameterOverride;
@@ -108,6 +110,10 @@ public class ParameterResolverImplTest {
     when(parameterOverride.getOverrideSystemDefault(any(Parameter.class))).thenReturn(null);
     when(parameterOverride.getOverrideForce(anyString(), any(Parameter.class))).thenReturn(null);
     when(parameterOverride.getLockedParameterNames(anyString())).thenReturn(ImmutableSet.<String>of());
+    Set<String> allParameterNames = ImmutableSet.of(PARAM11.getName(), PARAM12.getName(), PARAM13.getName(),
+        PARAM_MAP.getName(), PARAM21.getName());
+    when(parameterOverride.getOverrideSystemDefaultParameterNames()).thenReturn(allParameterNames);
+    when(parameterOverride.getOverrideForceParameterNames(anyString())).thenReturn(allParameterNames);
 
     Set<Parameter<?>> params1 = new HashSet<>();
     params1.add(PARAM11);
@@ -213,6 +219,18 @@ public class ParameterResolverImplTest {
     assertEquals(66, values.get("param21"));
   }
 
+  @Test
+  public void testOverrideForceOnlyIndexedParameters() {
+    when(parameterOverride.getOverrideForceParameterNames("/config1")).thenReturn(ImmutableSet.of("param12", "unknown"));
+    when(parameterOverride.getOverrideForce("/config1", PARAM12)).thenReturn("override12");
+
+    Map<String, Object> values = underTest.getEffectiveValues(resolver, ImmutableList.of("/config1"));
+    assertEquals("override12", values.get("param12"));
+
+    verify(parameterOverride, never()).getOverrideForce("/config1", PARAM11);
+    verify(parameterOverride, never()).getOverrideForce("/config1", PARAM21);
+  }
+
   @Test
   public void testConfigurationHierarchyWithOverrides() {
     when(parameterPersistence.getData(resolver, "/region1")).thenReturn(toData(ImmutableValueMap.builder()
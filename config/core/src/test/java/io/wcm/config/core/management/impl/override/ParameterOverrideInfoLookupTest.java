@@ -93,6 +93,36 @@ public class ParameterOverrideInfoLookupTest {
     assertEquals(ImmutableSet.of(), underTest.getLockedParameterNames("/path2/path21"));
   }
 
+  @Test
+  public void testGetOverrideSystemDefaultParameterNames() {
+    assertEquals(ImmutableSet.of("param1"), underTest.getOverrideSystemDefaultParameterNames());
+  }
+
+  @Test
+  public void testGetOverrideForceParameterNames() {
+    assertEquals(ImmutableSet.of("param1", "param2"), underTest.getOverrideForceParameterNames("/path1"));
+    assertEquals(ImmutableSet.of("param1", "param2"), underTest.getOverrideForceParameterNames("/path2"));
+    assertEquals(ImmutableSet.of("param1", "param2"), underTest.getOverrideForceParameterNames("/path1/path11"));
+    // only global overrides for configuration ids without specific overrides
+    assertEquals(ImmutableSet.of("param1", "param2"), underTest.getOverrideForceParameterNames("/path3"));
+  }
+
+  @Test
+  public void testGetOverrideForceParameterNames_ScopeSpecific() {
+    ParameterOverrideInfoLookup lookup = new ParameterOverrideInfoLookup();
+    lookup.addOverrideMap(ImmutableMap.<String, String>builder()
+        .put("param1", "v1")
+        .put("[/path1]param3", "v3")
+        .put("[/path2:locked]param4", "v4")
+        .build());
+    lookup.seal();
+
+    assertEquals(ImmutableSet.of("param1", "param3"), lookup.getOverrideForceParameterNames("/path1"));
+    assertEquals(ImmutableSet.of("param1", "param4"), lookup.getOverrideForceParameterNames("/path2"));
+    assertEquals(ImmutableSet.of("param1"), lookup.getOverrideForceParameterNames("/path1/path11"));
+    assertEquals(ImmutableSet.of("param1"), lookup.getOverrideForceParameterNames("/path3"));
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testSeal() {
     // do not allow adding additional maps after sealing
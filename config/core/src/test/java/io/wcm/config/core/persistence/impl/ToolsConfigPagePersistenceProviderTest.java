@@ -109,6 +109,34 @@ public class ToolsConfigPagePersistenceProviderTest {
     assertTrue(lastModified.getTimeInMillis() >= currentTime);
   }
 
+  @Test
+  public void testStoreUnchangedValues() throws PersistenceException {
+    ValueMap props = ImmutableValueMap.builder()
+        .put("props1", "value1")
+        .put("props2", 55L)
+        .build();
+    assertTrue(underTest.store(context.resourceResolver(), CONFIG_ID, props));
+
+    Page configPage = context.pageManager().getPage(CONFIG_ID + ToolsConfigPagePersistenceProvider.RELATIVE_CONFIG_PATH);
+    Calendar lastModified = configPage.getProperties().get(NameConstants.PN_LAST_MOD, Calendar.class);
+
+    // storing the same values again does not touch the config page
+    assertTrue(underTest.store(context.resourceResolver(), CONFIG_ID, props));
+    configPage = context.pageManager().getPage(CONFIG_ID + ToolsConfigPagePersistenceProvider.RELATIVE_CONFIG_PATH);
+    assertEquals(lastModified, configPage.getProperties().get(NameConstants.PN_LAST_MOD, Calendar.class));
+  }
+
+  @Test
+  public void testStoreWithoutCommit() throws PersistenceException {
+    ValueMap props = ImmutableValueMap.builder()
+        .put("props1", "value1")
+        .put("props2", 55L)
+        .build();
+    assertTrue(((BatchParameterPersistenceProvider)underTest).storeWithoutCommit(context.resourceResolver(), CONFIG_ID, props));
+    assertTrue(context.resourceResolver().hasChanges());
+    assertEquals(props, ImmutableValueMap.copyOf(underTest.get(context.resourceResolver(), CONFIG_ID)));
+  }
+
   @Test
   public void testNoPageStoreGetValues() throws PersistenceException {
     ValueMap props = ImmutableValueMap.builder()
@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -48,19 +49,19 @@ import org.apache.felix.scr.annotations.sling.SlingServlet;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.api.servlets.HttpConstants;
 import org.apache.sling.api.servlets.SlingAllMethodsServlet;
-import org.apache.sling.commons.json.JSONArray;
 import org.apache.sling.commons.json.JSONException;
-import org.apache.sling.commons.json.JSONObject;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.apache.sling.commons.json.io.JSONWriter;
 
 import com.google.common.collect.Iterators;
 
 /**
  * Exports the list of parameters available for the current application in JSON format to the response.
+ * The JSON is streamed directly to the response writer. Optionally the parameters can be restricted to a single
+ * application or group via the request parameters {@value #RP_APPLICATION_ID} and {@value #RP_GROUP}.
  */
 @SlingServlet(
     resourceTypes = {
@@ -82,28 +83,40 @@ public class EditorParameterProvider extends SlingAllMethodsServlet {
   @Reference
   private ParameterOverride parameterOverride;
 
-  private static final long serialVersionUID = 1L;
+  /**
+   * Optional request parameter to return only parameters of the given application id.
+   */
+  static final String RP_APPLICATION_ID = "applicationId";
+
+  /**
+   * Optional request parameter to return only parameters of the given group.
+   */
+  static final String RP_GROUP = "group";
 
-  private static final Logger log = LoggerFactory.getLogger(EditorParameterProvider.class);
+  private static final long serialVersionUID = 1L;
 
   @Override
   protected void doGet(SlingHttpServletRequest request, SlingHttpServletResponse response) throws ServletException, IOException {
     Configuration[] allConfigurations = Iterators.toArray(getConfigurations(request), Configuration.class);
-    Map<String, Application> applicationsMap = getApplicationsMap();
-    JSONArray parameters = new JSONArray();
+    String applicationIdFilter = StringUtils.defaultIfEmpty(request.getParameter(RP_APPLICATION_ID), null);
+    String groupFilter = StringUtils.defaultIfEmpty(request.getParameter(RP_GROUP), null);
 
-    for (int i = allConfigurations.length - 1; i >= 0; i--) {
-      Configuration configuration = allConfigurations[i];
-      try {
-        addParameters(parameters, configuration, request, applicationsMap);
-      }
-      catch (JSONException ex) {
-        log.error("Could not parse parameters for the configuration {}", configuration.getConfigurationId(), ex);
-        response.sendError(500);
+    response.setContentType(ContentType.JSON);
+    JSONWriter writer = new JSONWriter(response.getWriter());
+    try {
+      writer.object();
+      writer.key("parameters");
+      writer.array();
+      if (allConfigurations.length > 0) {
+        writeParameters(writer, allConfigurations, request.getResourceResolver(), getApplicationsMap(),
+            applicationIdFilter, groupFilter);
       }
+      writer.endArray();
+      writer.endObject();
+    }
+    catch (JSONException ex) {
+      throw new ServletException("Unable to write parameters for " + request.getResource().getPath(), ex);
     }
-
-    writeResponse(response, parameters);
   }
 
   private Map<String, Application> getApplicationsMap() {
@@ -120,67 +133,93 @@ public class EditorParameterProvider extends SlingAllMethodsServlet {
     return result;
   }
 
-  protected void addParameters(JSONArray parameters, Configuration configuration, SlingHttpServletRequest request, Map<String, Application> applicationsMap)
-      throws JSONException {
-
-    Set<Parameter<?>> allParameters = parameterResolver.getAllParameters();
-    ParameterPersistenceData persistedData = persistence.getData(request.getResourceResolver(), configuration.getConfigurationId());
+  /**
+   * Writes all editable parameters of the closest configuration to the JSON writer.
+   * The configuration chain is visited only once to collect the locked parameter names of all ancestor levels,
+   * the inherited values are taken from the parent configuration.
+   * @param writer JSON writer
+   * @param allConfigurations Configurations in order of closest match first
+   * @param resolver Resource resolver
+   * @param applicationsMap Applications by application id
+   * @param applicationIdFilter If set, only parameters of this application are returned
+   * @param groupFilter If set, only parameters of this group are returned
+   * @throws JSONException JSON exception
+   */
+  private void writeParameters(JSONWriter writer, Configuration[] allConfigurations, ResourceResolver resolver,
+      Map<String, Application> applicationsMap, String applicationIdFilter, String groupFilter) throws JSONException {
+
+    Configuration configuration = allConfigurations[0];
+    Configuration parentConfiguration = allConfigurations.length > 1 ? allConfigurations[1] : null;
+
+    ParameterPersistenceData persistedData = persistence.getData(resolver, configuration.getConfigurationId());
     Map<String, Object> persistedValues = persistedData.getValues();
+    Set<String> lockedParameterNames = getLockedParameterNames(configuration, persistedData);
 
-    // get locked parameter names from persisted configuration, and add those from overrides
-    Set<String> lockedParameterNames = new HashSet<>(persistedData.getLockedParameterNames());
-    lockedParameterNames.addAll(parameterOverride.getLockedParameterNames(configuration.getConfigurationId()));
+    Set<String> ancestorLockedParameterNames = new HashSet<>();
+    for (int i = 1; i < allConfigurations.length; i++) {
+      Configuration ancestorConfiguration = allConfigurations[i];
+      ParameterPersistenceData ancestorData = persistence.getData(resolver, ancestorConfiguration.getConfigurationId());
+      ancestorLockedParameterNames.addAll(getLockedParameterNames(ancestorConfiguration, ancestorData));
+    }
 
-    Iterator<Parameter<?>> parameterIterator = allParameters.iterator();
-    while (parameterIterator.hasNext()) {
-      Parameter parameter = parameterIterator.next();
-      String parameterName = parameter.getName();
-      if (isEditable(parameter)) {
-        JSONObject jsonParameter = getOrCreateJSONParameter(parameters, parameterName);
+    for (Parameter<?> parameter : parameterResolver.getAllParameters()) {
+      if (isEditable(parameter) && matchesFilter(parameter, applicationIdFilter, groupFilter)) {
+        String parameterName = parameter.getName();
+        Map<String, Object> jsonParameter = new LinkedHashMap<>();
         addWidgetConfiguration(jsonParameter, parameter, applicationsMap);
 
         Object effectiveValue = configuration.get(parameterName);
         Object persistedValue = persistedValues.get(parameterName);
+        Object inheritedValue = parentConfiguration != null ? parentConfiguration.get(parameterName) : null;
 
         // set the locked and inheritedLocked flags
-        setLocked(jsonParameter, parameterName, lockedParameterNames);
+        setLocked(jsonParameter, parameterName, lockedParameterNames, ancestorLockedParameterNames);
 
         // set inherited flag
-        setInherited(jsonParameter, effectiveValue, persistedValue);
+        jsonParameter.put(EditorNameConstants.INHERITED, persistedValue == null && effectiveValue != null);
 
-        addValue(jsonParameter, effectiveValue, parameter);
+        addValue(jsonParameter, effectiveValue, inheritedValue, parameter);
         addLabel(jsonParameter, parameter);
+
+        writeObject(writer, jsonParameter);
       }
     }
   }
 
-  private void addLabel(JSONObject jsonParameter, Parameter parameter) throws JSONException {
-    ValueMap properties = parameter.getProperties();
-    jsonParameter.put(EditorProperties.LABEL, StringUtils.defaultString(
-        properties.get(EditorProperties.LABEL, String.class),
-        parameter.getName()));
+  /**
+   * Get locked parameter names from persisted configuration, and add those from overrides.
+   */
+  private Set<String> getLockedParameterNames(Configuration configuration, ParameterPersistenceData persistedData) {
+    Set<String> lockedParameterNames = new HashSet<>(persistedData.getLockedParameterNames());
+    lockedParameterNames.addAll(parameterOverride.getLockedParameterNames(configuration.getConfigurationId()));
+    return lockedParameterNames;
   }
 
-  private void setInherited(JSONObject jsonParameter, Object effectiveValue, Object persistedValue) throws JSONException {
-    if (persistedValue == null) {
-      if (effectiveValue != null) {
-        jsonParameter.put("inherited", true);
-      }
-      else {
-        jsonParameter.put("inherited", false);
-      }
+  private boolean matchesFilter(Parameter<?> parameter, String applicationIdFilter, String groupFilter) {
+    if (applicationIdFilter != null && !StringUtils.equals(applicationIdFilter, parameter.getApplicationId())) {
+      return false;
     }
-    else {
-      jsonParameter.put("inherited", false);
+    if (groupFilter != null && !StringUtils.equals(groupFilter, parameter.getProperties().get(EditorProperties.GROUP, String.class))) {
+      return false;
     }
+    return true;
+  }
+
+  private void addLabel(Map<String, Object> jsonParameter, Parameter<?> parameter) {
+    ValueMap properties = parameter.getProperties();
+    jsonParameter.put(EditorProperties.LABEL, StringUtils.defaultString(
+        properties.get(EditorProperties.LABEL, String.class),
+        parameter.getName()));
   }
 
-  private void setLocked(JSONObject jsonParameter, String parameterName, Set<String> lockedParameterNames) throws JSONException {
+  private void setLocked(Map<String, Object> jsonParameter, String parameterName, Set<String> lockedParameterNames,
+      Set<String> ancestorLockedParameterNames) {
     if (lockedParameterNames.contains(parameterName)) {
       jsonParameter.put(EditorNameConstants.LOCKED, true);
       jsonParameter.put(EditorNameConstants.LOCKED_INHERITED, false);
     }
-    else if (jsonParameter.has(EditorNameConstants.LOCKED) && jsonParameter.getBoolean(EditorNameConstants.LOCKED)) {
+    else if (ancestorLockedParameterNames.contains(parameterName)) {
+      jsonParameter.put(EditorNameConstants.LOCKED, true);
       jsonParameter.put(EditorNameConstants.LOCKED_INHERITED, true);
     }
     else {
@@ -189,19 +228,13 @@ public class EditorParameterProvider extends SlingAllMethodsServlet {
     }
   }
 
-  private void addValue(JSONObject jsonParameter, Object effectiveValue, Parameter parameter) throws JSONException {
-    Object previousValue = null;
-
-    try {
-      previousValue = jsonParameter.get(EditorNameConstants.PARAMETER_VALUE);
-    }
-    catch (JSONException ex) {
+  private void addValue(Map<String, Object> jsonParameter, Object effectiveValue, Object inheritedValue, Parameter<?> parameter) {
+    Object previousValue = inheritedValue;
+    if (previousValue == null) {
       previousValue = parameter.getDefaultValue();
     }
-
     jsonParameter.put(EditorNameConstants.INHERITED_VALUE, getJSONValue(previousValue));
     jsonParameter.put(EditorNameConstants.PARAMETER_VALUE, getJSONValue(effectiveValue));
-
   }
 
   private Object getJSONValue(Object value) {
@@ -211,30 +244,10 @@ public class EditorParameterProvider extends SlingAllMethodsServlet {
     return TypeConversion.objectToString(value);
   }
 
-  private JSONObject getOrCreateJSONParameter(JSONArray parameters, String parameterName) throws JSONException {
-    JSONObject jsonParameter = new JSONObject();
-    jsonParameter.put(EditorNameConstants.PARAMETER_NAME, parameterName);
-    boolean found = false;
-    for (int i = 0; i < parameters.length(); i++) {
-      JSONObject parameter = parameters.getJSONObject(i);
-      if (StringUtils.equals(parameter.getString(EditorNameConstants.PARAMETER_NAME), parameterName)) {
-        jsonParameter = parameter;
-        found = true;
-        break;
-      }
-    }
-    if (!found) {
-      parameters.put(jsonParameter);
-    }
-    return jsonParameter;
-  }
-
-  private void addWidgetConfiguration(JSONObject jsonParameter, Parameter parameter, Map<String, Application> applicationsMap) throws JSONException {
+  private void addWidgetConfiguration(Map<String, Object> jsonParameter, Parameter<?> parameter, Map<String, Application> applicationsMap) {
     ValueMap parameterProperties = parameter.getProperties();
     if (parameterProperties != null) {
-      for (Map.Entry<String, Object> entry : parameterProperties.entrySet()) {
-        jsonParameter.put(entry.getKey(), entry.getValue());
-      }
+      jsonParameter.putAll(parameterProperties);
     }
     Application application = applicationsMap.get(parameter.getApplicationId());
     String appName = application != null ? application.getLabel() : parameter.getApplicationId();
@@ -242,24 +255,25 @@ public class EditorParameterProvider extends SlingAllMethodsServlet {
     jsonParameter.put(EditorNameConstants.PARAMETER_NAME, parameter.getName());
   }
 
-  private boolean isEditable(Parameter parameter) {
+  private boolean isEditable(Parameter<?> parameter) {
     ValueMap parameterProperties = parameter.getProperties();
     return StringUtils.isNotEmpty(parameterProperties.get(EditorProperties.WIDGET_TYPE, ""));
   }
 
-  private void writeResponse(SlingHttpServletResponse response, JSONArray parameters) throws IOException, ServletException {
-    JSONObject result = new JSONObject();
-    try {
-      result.put("parameters", parameters);
-      response.setContentType(ContentType.JSON);
-      response.getWriter().write(result.toString());
-    }
-    catch (JSONException ex) {
-      throw new ServletException(ex);
+  /**
+   * Writes the map as JSON object. Null values are skipped.
+   */
+  private void writeObject(JSONWriter writer, Map<String, Object> jsonParameter) throws JSONException {
+    writer.object();
+    for (Map.Entry<String, Object> entry : jsonParameter.entrySet()) {
+      if (entry.getValue() != null) {
+        writer.key(entry.getKey());
+        writer.value(entry.getValue());
+      }
     }
+    writer.endObject();
   }
 
-
   private Iterator<Configuration> getConfigurations(SlingHttpServletRequest request) {
     if (configurationFinder != null) {
       Resource resource = request.getResource();
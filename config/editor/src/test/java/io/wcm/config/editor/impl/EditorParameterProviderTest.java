@@ -23,7 +23,6 @@ import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import io.wcm.config.api.Configuration;
 import io.wcm.config.api.Parameter;
@@ -41,6 +40,7 @@ import io.wcm.sling.commons.resource.ImmutableValueMap;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -108,8 +108,10 @@ public class EditorParameterProviderTest {
       .properties(WidgetTypes.TEXTAREA.getDefaultWidgetConfiguration()).property(EditorProperties.LABEL, "Label").defaultValue("defaultValue").build();
   private static final Parameter<String> EDITABLE_PARAMETER_TWO = ParameterBuilder.create("string-param-2", String.class, "/app/without/app/provider")
       .properties(WidgetTypes.TEXTAREA.getDefaultWidgetConfiguration()).defaultValue("defaultValue2").build();
+  private static final Parameter<String> PARAMETER_GROUP = ParameterBuilder.create("group-param", String.class, APP_ID)
+      .properties(WidgetTypes.TEXTFIELD.getDefaultWidgetConfiguration()).property(EditorProperties.GROUP, "group1").build();
   private static final Set<Parameter<?>> PARAMETERS = ImmutableSet.<Parameter<?>>of(EDITABLE_PARAMETER_ONE, EDITABLE_PARAMETER_TWO, NON_EDITABLE_PARAMETER,
-      PARAMETER_MAP, PARAMETER_MULTIVALUE, PARAMETER_BOOLEAN, PARAMETER_DOUBLE, PARAMETER_INTEGER, PARAMETER_LONG);
+      PARAMETER_MAP, PARAMETER_MULTIVALUE, PARAMETER_BOOLEAN, PARAMETER_DOUBLE, PARAMETER_INTEGER, PARAMETER_LONG, PARAMETER_GROUP);
 
   @Mock
   private Configuration configurationFirstLevel;
@@ -120,8 +122,7 @@ public class EditorParameterProviderTest {
   private SlingHttpServletRequest request;
   @Mock
   private SlingHttpServletResponse response;
-  @Mock
-  private PrintWriter printWriter;
+  private StringWriter responseContent;
 
   @Mock
   private Resource siteResource;
@@ -178,25 +179,13 @@ public class EditorParameterProviderTest {
     when(configurationFinder.findAll(regionResource)).thenReturn(Iterators.forArray(configurationSecondLevel, configurationFirstLevel));
     when(configurationFinder.findAll(siteResource)).thenReturn(Iterators.forArray(configurationFirstLevel));
 
-    doAnswer(new Answer<Void>() {
-
+    when(response.getWriter()).then(new Answer<PrintWriter>() {
       @Override
-      public Void answer(InvocationOnMock invocation) {
-        String jsonString = (String)invocation.getArguments()[0];
-        try {
-          JSONObject result = new JSONObject(jsonString);
-          parameters = result.getJSONArray("parameters");
-          firstParameter = parameters.getJSONObject(0);
-          secondParameter = parameters.getJSONObject(1);
-        }
-        catch (JSONException ex) {
-          firstParameter = new JSONObject();
-          secondParameter = new JSONObject();
-        }
-        return null;
+      public PrintWriter answer(InvocationOnMock invocation) {
+        responseContent = new StringWriter();
+        return new PrintWriter(responseContent);
       }
-    }).when(printWriter).write(anyString());
-    when(response.getWriter()).thenReturn(printWriter);
+    });
 
     when(request.getResource()).thenReturn(regionResource);
 
@@ -206,17 +195,33 @@ public class EditorParameterProviderTest {
   }
 
   @Test
-  public void testReturnOnlyEditableParameters() throws JSONException {
-    parameters = new JSONArray();
+  public void testReturnOnlyEditableParameters() throws ServletException, IOException, JSONException {
     when(persistence.getData(any(ResourceResolver.class), anyString())).thenReturn(
         new ParameterPersistenceData(ImmutableValueMap.of(), ImmutableSortedSet.<String>of()));
-    underTest.addParameters(parameters, configurationFirstLevel, request, ImmutableMap.<String, Application>of());
-    assertEquals(8, parameters.length());
+    when(request.getResource()).thenReturn(siteResource);
+    doGet();
+    assertEquals(9, parameters.length());
+  }
+
+  @Test
+  public void testApplicationFilter() throws ServletException, IOException, JSONException {
+    when(request.getParameter(EditorParameterProvider.RP_APPLICATION_ID)).thenReturn("/app/without/app/provider");
+    doGet();
+    assertEquals(1, parameters.length());
+    assertEquals(EDITABLE_PARAMETER_TWO.getName(), firstParameter.get(EditorNameConstants.PARAMETER_NAME));
+  }
+
+  @Test
+  public void testGroupFilter() throws ServletException, IOException, JSONException {
+    when(request.getParameter(EditorParameterProvider.RP_GROUP)).thenReturn("group1");
+    doGet();
+    assertEquals(1, parameters.length());
+    assertEquals(PARAMETER_GROUP.getName(), firstParameter.get(EditorNameConstants.PARAMETER_NAME));
   }
 
   @Test
   public void testInheritedPropertyDeeperLeveL() throws ServletException, IOException, JSONException {
-    underTest.doGet(request, response);
+    doGet();
     assertEquals(firstParameter.get(EditorNameConstants.INHERITED), true);
     assertEquals(secondParameter.get(EditorNameConstants.INHERITED), false);
   }
@@ -224,14 +229,14 @@ public class EditorParameterProviderTest {
   @Test
   public void testInheritedPropertyHighestLevel() throws ServletException, IOException, JSONException {
     when(request.getResource()).thenReturn(siteResource);
-    underTest.doGet(request, response);
+    doGet();
     assertEquals(firstParameter.get(EditorNameConstants.INHERITED), true);
     assertEquals(parameters.getJSONObject(2).get(EditorNameConstants.INHERITED), false);
   }
 
   @Test
   public void testLockedProperty() throws ServletException, IOException, JSONException {
-    underTest.doGet(request, response);
+    doGet();
     assertEquals(firstParameter.get(EditorNameConstants.LOCKED), true);
     assertEquals(firstParameter.get(EditorNameConstants.LOCKED_INHERITED), true);
     assertEquals(secondParameter.get(EditorNameConstants.LOCKED), false);
@@ -242,7 +247,7 @@ public class EditorParameterProviderTest {
   public void testLockedPropertyWithOverride() throws ServletException, IOException, JSONException {
     when(parameterOverride.getLockedParameterNames(anyString())).thenReturn(ImmutableSet.of(EDITABLE_PARAMETER_TWO.getName()));
 
-    underTest.doGet(request, response);
+    doGet();
     assertEquals(firstParameter.get(EditorNameConstants.LOCKED), true);
     assertEquals(firstParameter.get(EditorNameConstants.LOCKED_INHERITED), true);
     assertEquals(secondParameter.get(EditorNameConstants.LOCKED), true);
@@ -251,14 +256,14 @@ public class EditorParameterProviderTest {
 
   @Test
   public void testValueInheritance() throws ServletException, IOException, JSONException {
-    underTest.doGet(request, response);
+    doGet();
     assertEquals(firstParameter.get(EditorNameConstants.PARAMETER_VALUE), "defaultValue");
     assertEquals(firstParameter.get(EditorNameConstants.INHERITED_VALUE), "defaultValue");
     assertEquals(secondParameter.get(EditorNameConstants.PARAMETER_VALUE), "newValue");
     assertEquals(secondParameter.get(EditorNameConstants.INHERITED_VALUE), "defaultValue2");
 
     when(request.getResource()).thenReturn(siteResource);
-    underTest.doGet(request, response);
+    doGet();
     assertEquals(firstParameter.get(EditorNameConstants.PARAMETER_VALUE), "defaultValue");
     assertEquals(firstParameter.get(EditorNameConstants.INHERITED_VALUE), "defaultValue");
     assertEquals(secondParameter.get(EditorNameConstants.PARAMETER_VALUE), "defaultValue2");
@@ -267,21 +272,21 @@ public class EditorParameterProviderTest {
 
   @Test
   public void testApplicationLabel() throws ServletException, IOException, JSONException {
-    underTest.doGet(request, response);
+    doGet();
     assertEquals(firstParameter.get(EditorNameConstants.APPLICATION_ID), "Test App");
     assertEquals(secondParameter.get(EditorNameConstants.APPLICATION_ID), "/app/without/app/provider");
   }
 
   @Test
   public void testParameterLabel() throws ServletException, IOException, JSONException {
-    underTest.doGet(request, response);
+    doGet();
     assertEquals(firstParameter.get(EditorProperties.LABEL), "Label");
     assertEquals(secondParameter.get(EditorProperties.LABEL), "string-param-2");
   }
 
   @Test
   public void testValueTypeConversion() throws JSONException, ServletException, IOException {
-    underTest.doGet(request, response);
+    doGet();
     JSONObject map = parameters.getJSONObject(2);
     assertEquals(map.get(EditorNameConstants.PARAMETER_VALUE), "key1=value1;key2=value2");
     JSONObject multivalue = parameters.getJSONObject(3);
@@ -295,4 +300,13 @@ public class EditorParameterProviderTest {
     JSONObject longParam = parameters.getJSONObject(7);
     assertEquals(longParam.get(EditorNameConstants.PARAMETER_VALUE), "5");
   }
+
+  private void doGet() throws ServletException, IOException, JSONException {
+    underTest.doGet(request, response);
+    JSONObject result = new JSONObject(responseContent.toString());
+    parameters = result.getJSONArray("parameters");
+    firstParameter = parameters.length() > 0 ? parameters.getJSONObject(0) : null;
+    secondParameter = parameters.length() > 1 ? parameters.getJSONObject(1) : null;
+  }
+
 }
@@ -0,0 +1,52 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.benchmark;
+
+import io.wcm.testing.mock.aem.context.AemContextImpl;
+
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+
+/**
+ * AEM context that can be used outside JUnit - the lifecycle is controlled by the JMH state objects.
+ */
+public final class BenchmarkAemContext extends AemContextImpl {
+
+  /**
+   * Initializes an AEM context with in-memory resource resolver (no JCR, no network access required).
+   */
+  public BenchmarkAemContext() {
+    setResourceResolverType(ResourceResolverType.RESOURCERESOLVER_MOCK);
+  }
+
+  /**
+   * Set up context and register default services.
+   */
+  public void start() {
+    setUp();
+  }
+
+  /**
+   * Tear down context and release all resources.
+   */
+  public void stop() {
+    tearDown();
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.benchmark;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and checks the results against thresholds for minimum throughput (ops/s) and maximum
+ * allocation per operation (bytes/op). Exits with status 1 if any threshold is violated.
+ * <p>
+ * Thresholds are read from the properties file given by system property <code>benchmark.thresholds</code>, or from
+ * <code>benchmark-thresholds.properties</code> in the classpath. Keys are the benchmark class simple name and method
+ * name, followed by <code>.minThroughput</code> or <code>.maxAllocation</code>. Benchmarks without thresholds are
+ * only reported. For parameterized benchmarks the thresholds apply to all parameter combinations.
+ * </p>
+ */
+public final class BenchmarkRegressionCheck {
+
+  static final String THRESHOLDS_FILE_PROPERTY = "benchmark.thresholds";
+  static final String THRESHOLDS_DEFAULT_RESOURCE = "/benchmark-thresholds.properties";
+  static final String SUFFIX_MIN_THROUGHPUT = ".minThroughput";
+  static final String SUFFIX_MAX_ALLOCATION = ".maxAllocation";
+
+  private static final String ALLOCATION_RESULT_LABEL = "gc.alloc.rate.norm";
+
+  private BenchmarkRegressionCheck() {
+    // main method only
+  }
+
+  /**
+   * @param args Benchmark include pattern, forks, warmup iterations, measurement iterations
+   * @throws IOException I/O exception
+   * @throws RunnerException Runner exception
+   */
+  public static void main(String[] args) throws IOException, RunnerException {
+    Options options = new OptionsBuilder()
+        .include(args.length > 0 ? args[0] : BenchmarkRegressionCheck.class.getPackage().getName() + ".*")
+        .forks(args.length > 1 ? Integer.parseInt(args[1]) : 1)
+        .warmupIterations(args.length > 2 ? Integer.parseInt(args[2]) : 5)
+        .measurementIterations(args.length > 3 ? Integer.parseInt(args[3]) : 5)
+        .addProfiler(GCProfiler.class)
+        .build();
+    Collection<RunResult> results = new Runner(options).run();
+
+    List<String> violations = check(results, loadThresholds());
+    if (!violations.isEmpty()) {
+      System.err.println("Benchmark regression detected:");
+      for (String violation : violations) {
+        System.err.println("  " + violation);
+      }
+      System.exit(1);
+    }
+    System.out.println("No benchmark regression detected.");
+  }
+
+  static List<String> check(Collection<RunResult> results, Properties thresholds) {
+    List<String> violations = new ArrayList<>();
+    for (RunResult result : results) {
+      String benchmark = result.getParams().getBenchmark();
+      String key = StringUtils.substringAfterLast(StringUtils.substringBeforeLast(benchmark, "."), ".")
+          + "." + StringUtils.substringAfterLast(benchmark, ".");
+      String label = key + (result.getParams().getParamsKeys().isEmpty() ? "" : " " + paramsString(result));
+
+      String minThroughput = thresholds.getProperty(key + SUFFIX_MIN_THROUGHPUT);
+      double throughput = result.getPrimaryResult().getScore();
+      if (minThroughput != null && throughput < Double.parseDouble(minThroughput)) {
+        violations.add(String.format("%s: throughput %.1f ops/s is below threshold %s ops/s",
+            label, throughput, minThroughput));
+      }
+
+      String maxAllocation = thresholds.getProperty(key + SUFFIX_MAX_ALLOCATION);
+      Double allocation = getAllocation(result);
+      if (maxAllocation != null && allocation != null && allocation > Double.parseDouble(maxAllocation)) {
+        violations.add(String.format("%s: allocation %.1f bytes/op exceeds threshold %s bytes/op",
+            label, allocation, maxAllocation));
+      }
+    }
+    return violations;
+  }
+
+  private static String paramsString(RunResult result) {
+    StringBuilder params = new StringBuilder();
+    for (String paramKey : result.getParams().getParamsKeys()) {
+      if (params.length() > 0) {
+        params.append(',');
+      }
+      params.append(paramKey).append('=').append(result.getParams().getParam(paramKey));
+    }
+    return "(" + params + ")";
+  }
+
+  private static Double getAllocation(RunResult result) {
+    for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+      if (StringUtils.endsWith(entry.getKey(), ALLOCATION_RESULT_LABEL)) {
+        return entry.getValue().getScore();
+      }
+    }
+    return null;
+  }
+
+  private static Properties loadThresholds() throws IOException {
+    Properties thresholds = new Properties();
+    String thresholdsFile = System.getProperty(THRESHOLDS_FILE_PROPERTY);
+    try (InputStream is = StringUtils.isNotBlank(thresholdsFile)
+        ? new FileInputStream(thresholdsFile)
+        : BenchmarkRegressionCheck.class.getResourceAsStream(THRESHOLDS_DEFAULT_RESOURCE)) {
+      if (is != null) {
+        thresholds.load(is);
+      }
+    }
+    return thresholds;
+  }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.benchmark;
+
+import io.wcm.handler.url.UrlHandler;
+import io.wcm.sling.commons.request.RequestParam;
+
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+
+/**
+ * Reference implementation of URL building as it was implemented in the URL handler before URLs were composed in
+ * a single reusable buffer. Used as baseline in {@link UrlBuilderBenchmark}.
+ */
+final class ReferenceUrlBuilder {
+
+  private ReferenceUrlBuilder() {
+    // static methods only
+  }
+
+  static String build(SlingHttpServletRequest request, String path, String selector, String extension, //NOPMD
+      String suffix, String queryString, Set<String> inheritableParameterNames, String fragment) {
+    String url = buildUrl(path, selector, extension, suffix);
+    if (StringUtils.isNotEmpty(queryString) || inheritableParameterNames != null) {
+      url = appendQueryString(request, url, queryString, inheritableParameterNames);
+    }
+    if (StringUtils.isNotEmpty(fragment)) {
+      url = setFragment(url, fragment);
+    }
+    return url;
+  }
+
+  private static String buildUrl(String path, String selector, String extension, String suffix) {
+    if (StringUtils.isBlank(path)) {
+      return null;
+    }
+
+    // Extension url part
+    StringBuilder extensionPart = new StringBuilder();
+    if (StringUtils.isNotBlank(extension)) {
+      extensionPart.append('.').append(extension);
+    }
+
+    // Selector url part
+    StringBuilder selectorPart = new StringBuilder();
+    if (StringUtils.isNotBlank(selector)) {
+      if (!StringUtils.startsWith(selector, ".")) {
+        selectorPart.append('.');
+      }
+      selectorPart.append(selector);
+    }
+
+    // Suffix part
+    StringBuilder suffixPart = new StringBuilder();
+    if (StringUtils.isNotBlank(suffix)) {
+      if (!StringUtils.startsWith(suffix, "/")) {
+        suffixPart = suffixPart.append("/");
+      }
+      suffixPart.append(suffix);
+      if (!StringUtils.contains(suffix, ".")) {
+        suffixPart.append(extensionPart);
+      }
+      selectorPart.append('.').append(UrlHandler.SELECTOR_SUFFIX);
+    }
+
+    return path + selectorPart.toString() + extensionPart.toString() + suffixPart.toString();
+  }
+
+  private static String appendQueryString(SlingHttpServletRequest request, String url, String queryString,
+      Set<String> inheritableParameterNames) {
+    if (StringUtils.isEmpty(url)) {
+      return url;
+    }
+
+    StringBuilder urlBuilder = new StringBuilder();
+    StringBuilder queryParams = new StringBuilder();
+    int separatorPos = url.indexOf('?');
+    if (separatorPos >= 0) {
+      queryParams.append(url.substring(separatorPos + 1));
+      urlBuilder.append(url.substring(0, separatorPos));
+    }
+    else {
+      urlBuilder.append(url);
+    }
+
+    if (StringUtils.isNotBlank(queryString)) {
+      if (queryParams.length() > 0) {
+        queryParams.append('&');
+      }
+      queryParams.append(queryString);
+    }
+
+    if (inheritableParameterNames != null && request != null) {
+      for (String parameterName : inheritableParameterNames) {
+        if (queryParams.indexOf(parameterName + "=") == -1) {
+          String[] values = RequestParam.getMultiple(request, parameterName);
+          if (values != null) {
+            for (String value : values) {
+              if (StringUtils.isNotEmpty(value)) {
+                if (queryParams.length() > 0) {
+                  queryParams.append('&');
+                }
+                queryParams.append(parameterName);
+                queryParams.append('=');
+                queryParams.append(value);
+              }
+            }
+          }
+        }
+      }
+    }
+
+    if (queryParams.length() > 0) {
+      urlBuilder.append('?');
+      urlBuilder.append(queryParams);
+    }
+    return urlBuilder.toString();
+  }
+
+  private static String setFragment(String url, String fragment) {
+    if (StringUtils.isEmpty(url)) {
+      return url;
+    }
+
+    StringBuilder urlBuilder;
+    int index = url.indexOf('#');
+    if (index >= 0) {
+      urlBuilder = new StringBuilder(url.substring(0, index));
+    }
+    else {
+      urlBuilder = new StringBuilder(url);
+    }
+
+    if (StringUtils.isNotBlank(fragment)) {
+      if (!StringUtils.startsWith(fragment, "#")) {
+        urlBuilder.append('#');
+      }
+      urlBuilder.append(fragment);
+    }
+
+    return urlBuilder.toString();
+  }
+
+}
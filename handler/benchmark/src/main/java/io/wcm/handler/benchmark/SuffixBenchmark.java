@@ -0,0 +1,98 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.benchmark;
+
+import io.wcm.handler.url.suffix.SuffixBuilder;
+import io.wcm.handler.url.suffix.SuffixParser;
+import io.wcm.handler.url.suffix.impl.SuffixPartIndex;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures throughput of building and parsing suffixes with 10 key/value pairs and 5 resource references via
+ * {@link SuffixBuilder} and {@link SuffixParser}. Run with <code>-prof gc</code> to get the allocation rate per
+ * operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuffixBenchmark {
+
+  /**
+   * Build suffix with key/value pairs and resource references.
+   */
+  @Benchmark
+  public String buildSuffix(UrlHandlerScenario scenario) {
+    SuffixBuilder builder = new SuffixBuilder()
+        .resources(scenario.suffixResources, scenario.currentPage.getContentResource());
+    for (int i = 0; i < 10; i++) {
+      builder.put("key" + i, "value/" + i);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Build suffix keeping all parts of the suffix of the current request.
+   */
+  @Benchmark
+  public String buildSuffixKeepAllParts(UrlHandlerScenario scenario) {
+    return SuffixBuilder.thatKeepsAllParts(scenario.context.request())
+        .put("key5", "otherValue")
+        .build();
+  }
+
+  /**
+   * Parse values and resources from the suffix of the current request, suffix is parsed once for each operation.
+   */
+  @Benchmark
+  public void parseSuffix(UrlHandlerScenario scenario, Blackhole blackhole) {
+    scenario.context.request().removeAttribute(SuffixPartIndex.class.getName());
+    parse(scenario, blackhole);
+  }
+
+  /**
+   * Parse values and resources from the suffix of the current request, reusing the suffix parsed within the
+   * same request.
+   */
+  @Benchmark
+  public void parseSuffixSameRequest(UrlHandlerScenario scenario, Blackhole blackhole) {
+    parse(scenario, blackhole);
+  }
+
+  private void parse(UrlHandlerScenario scenario, Blackhole blackhole) {
+    SuffixParser parser = new SuffixParser(scenario.context.request());
+    blackhole.consume(parser.get("key0", String.class));
+    blackhole.consume(parser.get("key9", String.class));
+    blackhole.consume(parser.get("missing", 0));
+    blackhole.consume(parser.getResources());
+  }
+
+}
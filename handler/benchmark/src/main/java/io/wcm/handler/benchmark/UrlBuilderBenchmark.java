@@ -0,0 +1,84 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures throughput of building URLs with {@link io.wcm.handler.url.UrlBuilder} compared to the
+ * {@link ReferenceUrlBuilder} implementation. Run with <code>-prof gc</code> to get the allocation rate per built URL.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBuilderBenchmark {
+
+  /**
+   * Path with extension only.
+   */
+  @Benchmark
+  public String buildSimple(UrlHandlerScenario scenario) {
+    return scenario.urlHandler.get(scenario.path).extension(scenario.extension).build();
+  }
+
+  /**
+   * Path with extension only - reference implementation.
+   */
+  @Benchmark
+  public String buildSimpleReference(UrlHandlerScenario scenario) {
+    return ReferenceUrlBuilder.build(scenario.context.request(), scenario.path, null, scenario.extension,
+        null, null, null, null);
+  }
+
+  /**
+   * All URL parts including inherited query parameters.
+   */
+  @Benchmark
+  public String buildFull(UrlHandlerScenario scenario) {
+    return scenario.urlHandler.get(scenario.path)
+        .selectors(scenario.selectors)
+        .extension(scenario.extension)
+        .suffix(scenario.suffix)
+        .queryString(scenario.queryString, scenario.inheritableParameterNames)
+        .fragment(scenario.fragment)
+        .build();
+  }
+
+  /**
+   * All URL parts including inherited query parameters - reference implementation.
+   */
+  @Benchmark
+  public String buildFullReference(UrlHandlerScenario scenario) {
+    return ReferenceUrlBuilder.build(scenario.context.request(), scenario.path, scenario.selectors,
+        scenario.extension, scenario.suffix, scenario.queryString, scenario.inheritableParameterNames,
+        scenario.fragment);
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.benchmark;
+
+import io.wcm.handler.url.UrlMode;
+import io.wcm.handler.url.UrlModes;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures throughput of externalizing link and resource URLs with {@link io.wcm.handler.url.UrlHandler} including
+ * Sling mapping, namespace mangling and the URL modes, and of rewriting paths to the current site context.
+ * Run with <code>-prof gc</code> to get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlExternalizationBenchmark {
+
+  /**
+   * URL mode used for building the URLs, referenced by the constant name in {@link UrlModes}.
+   */
+  @State(Scope.Benchmark)
+  public static class UrlModeState {
+
+    @Param({ "DEFAULT", "NO_HOSTNAME", "FULL_URL", "FULL_URL_FORCESECURE", "FULL_URL_PROTOCOLRELATIVE" })
+    String urlModeName;
+
+    UrlMode urlMode;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+      urlMode = (UrlMode)UrlModes.class.getField(urlModeName).get(null);
+    }
+
+  }
+
+  /**
+   * Link URL to a content page of the current site.
+   */
+  @Benchmark
+  public String externalLinkUrl(UrlHandlerScenario scenario, UrlModeState state) {
+    return scenario.urlHandler.get(scenario.path)
+        .extension(scenario.extension)
+        .urlMode(state.urlMode)
+        .buildExternalLinkUrl(scenario.currentPage);
+  }
+
+  /**
+   * Link URL to a page with secure template.
+   */
+  @Benchmark
+  public String externalLinkUrlSecurePage(UrlHandlerScenario scenario, UrlModeState state) {
+    return scenario.urlHandler.get(scenario.securePage)
+        .extension(scenario.extension)
+        .urlMode(state.urlMode)
+        .buildExternalLinkUrl();
+  }
+
+  /**
+   * Link URL to a page with integrator template.
+   */
+  @Benchmark
+  public String externalLinkUrlIntegratorPage(UrlHandlerScenario scenario, UrlModeState state) {
+    return scenario.urlHandler.get(scenario.integratorPage)
+        .extension(scenario.extension)
+        .urlMode(state.urlMode)
+        .buildExternalLinkUrl();
+  }
+
+  /**
+   * Link URL to a page of another site with a different site URL configuration.
+   */
+  @Benchmark
+  public String externalLinkUrlOtherSite(UrlHandlerScenario scenario, UrlModeState state) {
+    return scenario.urlHandler.get(scenario.otherLanguagePath)
+        .extension(scenario.extension)
+        .urlMode(state.urlMode)
+        .buildExternalLinkUrl(scenario.currentPage);
+  }
+
+  /**
+   * Resource URL to a client library.
+   */
+  @Benchmark
+  public String externalResourceUrl(UrlHandlerScenario scenario, UrlModeState state) {
+    return scenario.urlHandler.get(UrlHandlerScenario.CLIENTLIB_PATH)
+        .urlMode(state.urlMode)
+        .buildExternalResourceUrl();
+  }
+
+  /**
+   * Rewrite path that is already located in the current site.
+   */
+  @Benchmark
+  public String rewritePathToContextSameSite(UrlHandlerScenario scenario) {
+    return scenario.urlHandler.rewritePathToContext(scenario.path);
+  }
+
+  /**
+   * Rewrite path from another language to the current site.
+   */
+  @Benchmark
+  public String rewritePathToContextOtherSite(UrlHandlerScenario scenario) {
+    return scenario.urlHandler.rewritePathToContext(scenario.otherLanguagePath);
+  }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.benchmark;
+
+import io.wcm.config.core.impl.ApplicationImplementationPicker;
+import io.wcm.config.core.impl.ConfigurationAdapterFactory;
+import io.wcm.config.core.management.ParameterPersistence;
+import io.wcm.config.core.management.ParameterPersistenceData;
+import io.wcm.config.core.management.impl.ApplicationFinderImpl;
+import io.wcm.config.core.management.impl.ConfigurationFinderImpl;
+import io.wcm.config.core.management.impl.ParameterOverrideImpl;
+import io.wcm.config.core.management.impl.ParameterPersistenceImpl;
+import io.wcm.config.core.management.impl.ParameterResolverImpl;
+import io.wcm.config.core.persistence.impl.ToolsConfigPagePersistenceProvider;
+import io.wcm.config.spi.ApplicationProvider;
+import io.wcm.config.spi.ConfigurationFinderStrategy;
+import io.wcm.config.spi.ParameterProvider;
+import io.wcm.handler.url.UrlHandler;
+import io.wcm.handler.url.UrlParams;
+import io.wcm.handler.url.impl.ApplicationProviderImpl;
+import io.wcm.handler.url.impl.ResourceMappingCache;
+import io.wcm.handler.url.impl.UrlHandlerParameterProviderImpl;
+import io.wcm.handler.url.integrator.IntegratorNameConstants;
+import io.wcm.handler.url.suffix.SuffixBuilder;
+import io.wcm.sling.commons.request.RequestContext;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+import io.wcm.sling.models.injectors.impl.AemObjectInjector;
+import io.wcm.sling.models.injectors.impl.ModelsImplConfiguration;
+import io.wcm.sling.models.injectors.impl.SlingObjectOverlayInjector;
+import io.wcm.testing.mock.wcmio.config.MockConfig;
+import io.wcm.testing.mock.wcmio.sling.MockRequestContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.day.cq.wcm.api.Page;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+
+/**
+ * Sets up an AEM mock context with a site tree, site URL configuration and all services required by the URL
+ * handler, and provides an URL handler instance adapted from the current request.
+ * <p>
+ * The site tree contains two languages with <code>sectionCount</code> sections of 10 pages each, a secure page,
+ * an integrator page and Sling mapping rules below /etc/map. The in-memory resource resolver does not apply the
+ * mapping rules, they are only part of the content tree.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class UrlHandlerScenario {
+
+  static final String SITE_ROOT = "/content/benchmark/en";
+  static final String SITE_ROOT_OTHER_LANGUAGE = "/content/benchmark/de";
+  static final String TEMPLATE = BenchmarkUrlHandlerConfig.TEMPLATE_CONTENT;
+  static final int SITE_ROOT_LEVEL = BenchmarkUrlHandlerConfig.SITE_ROOT_LEVEL;
+  static final String CLIENTLIB_PATH = "/etc/clientlibs/benchmark/all.min.css";
+
+  @Param({ "10", "50" })
+  int sectionCount;
+
+  BenchmarkAemContext context;
+  UrlHandler urlHandler;
+
+  Page currentPage;
+  Page securePage;
+  Page integratorPage;
+  String path;
+  String otherLanguagePath;
+  String suffixHeavyUrl;
+  List<Resource> suffixResources;
+  String selectors = "sel1.sel2";
+  String extension = "html";
+  String suffix = "suffix1/suffix2";
+  String queryString = "param1=value1&param2=value2";
+  Set<String> inheritableParameterNames = ImmutableSet.of("inherit1", "inherit2");
+  String fragment = "anchor";
+
+  @Setup(Level.Trial)
+  public void setUp() throws PersistenceException {
+    context = new BenchmarkAemContext();
+    context.start();
+
+    // wcm.io Sling extensions
+    context.registerService(RequestContext.class, new MockRequestContext());
+    context.registerInjectActivateService(new ModelsImplConfiguration(),
+        ImmutableMap.<String, Object>of("requestThreadLocal", true));
+    context.registerInjectActivateService(new AemObjectInjector());
+    context.registerInjectActivateService(new SlingObjectOverlayInjector());
+
+    // URL handler-specific configuration
+    context.registerService(ParameterProvider.class, new UrlHandlerParameterProviderImpl());
+    context.registerService(ApplicationProvider.class,
+        MockConfig.applicationProvider(ApplicationProviderImpl.APPLICATION_ID, "/content"));
+    context.registerService(ConfigurationFinderStrategy.class,
+        MockConfig.configurationFinderStrategyAbsoluteParent(ApplicationProviderImpl.APPLICATION_ID, SITE_ROOT_LEVEL));
+    setUpConfigServices();
+
+    context.registerInjectActivateService(new ResourceMappingCache());
+    context.addModelsForPackage("io.wcm.handler.url");
+    context.addModelsForPackage("io.wcm.handler.benchmark");
+
+    // site tree
+    currentPage = createSite(SITE_ROOT);
+    createSite(SITE_ROOT_OTHER_LANGUAGE);
+    securePage = context.create().page(SITE_ROOT + "/secure", BenchmarkUrlHandlerConfig.TEMPLATE_SECURE);
+    integratorPage = context.create().page(SITE_ROOT + "/integrator", BenchmarkUrlHandlerConfig.TEMPLATE_INTEGRATOR,
+        ImmutableValueMap.of(IntegratorNameConstants.PN_INTEGRATOR_MODE, "extended"));
+    storeSiteConfig(SITE_ROOT, "www.benchmark.org");
+    storeSiteConfig(SITE_ROOT_OTHER_LANGUAGE, "www.benchmark.de");
+    context.create().resource(CLIENTLIB_PATH);
+
+    // sling mapping rules
+    context.create().resource("/etc/map/http/www.benchmark.org.80",
+        ImmutableValueMap.of("sling:internalRedirect", SITE_ROOT));
+    context.create().resource("/etc/map/https/www.benchmark.org.443",
+        ImmutableValueMap.of("sling:internalRedirect", SITE_ROOT));
+    context.create().resource("/etc/map/http/www.benchmark.de.80",
+        ImmutableValueMap.of("sling:internalRedirect", SITE_ROOT_OTHER_LANGUAGE));
+
+    context.currentPage(currentPage);
+    context.request().setQueryString("inherit1=abc&other=def&inherit2=ghi");
+    path = SITE_ROOT + "/section5/page5";
+    otherLanguagePath = SITE_ROOT_OTHER_LANGUAGE + "/section5/page5";
+
+    // suffix with key/value pairs and resource references, used as suffix of the current request
+    suffixResources = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      suffixResources.add(context.create().resource(currentPage.getContentResource().getPath() + "/par/item" + i));
+    }
+    SuffixBuilder suffixBuilder = new SuffixBuilder().resources(suffixResources, currentPage.getContentResource());
+    for (int i = 0; i < 10; i++) {
+      suffixBuilder.put("key" + i, "value/" + i);
+    }
+    suffixHeavyUrl = suffixBuilder.build();
+    context.requestPathInfo().setSuffix(suffixHeavyUrl);
+
+    urlHandler = context.request().adaptTo(UrlHandler.class);
+  }
+
+  private Page createSite(String siteRoot) {
+    Page siteRootPage = context.create().page(siteRoot, TEMPLATE);
+    for (int i = 0; i < sectionCount; i++) {
+      Page section = context.create().page(siteRoot + "/section" + i, TEMPLATE);
+      for (int j = 0; j < 10; j++) {
+        context.create().page(section.getPath() + "/page" + j, TEMPLATE);
+      }
+    }
+    return siteRootPage;
+  }
+
+  private void storeSiteConfig(String siteRoot, String hostName) throws PersistenceException {
+    context.getService(ParameterPersistence.class).storeData(context.resourceResolver(), siteRoot,
+        new ParameterPersistenceData(ImmutableValueMap.of(
+            UrlParams.SITE_URL.getName(), "http://" + hostName,
+            UrlParams.SITE_URL_SECURE.getName(), "https://" + hostName),
+            ImmutableSortedSet.<String>of()));
+  }
+
+  /**
+   * Same services as registered by MockConfig.setUp, which requires a JUnit AEM context.
+   */
+  private void setUpConfigServices() {
+    context.registerInjectActivateService(new ToolsConfigPagePersistenceProvider(),
+        ImmutableValueMap.of("enabled", true));
+    context.registerInjectActivateService(new ApplicationFinderImpl());
+    context.registerInjectActivateService(new ParameterOverrideImpl());
+    context.registerInjectActivateService(new ParameterPersistenceImpl());
+    context.registerInjectActivateService(new ParameterResolverImpl());
+    context.registerInjectActivateService(new ConfigurationFinderImpl());
+    context.registerInjectActivateService(new ConfigurationAdapterFactory());
+    context.registerInjectActivateService(new ApplicationImplementationPicker());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.stop();
+  }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.benchmark;
+
+import io.wcm.handler.url.integrator.IntegratorHandler;
+import io.wcm.handler.url.rewriter.impl.UrlAttributeRewriterTransformerFactory;
+import io.wcm.handler.url.rewriter.impl.UrlExternalizerTransformerFactory;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cocoon.xml.sax.AttributesImpl;
+import org.apache.sling.rewriter.ProcessingComponentConfiguration;
+import org.apache.sling.rewriter.ProcessingContext;
+import org.apache.sling.rewriter.Transformer;
+import org.apache.sling.rewriter.TransformerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures throughput of rewriting the markup of a full page with the URL handler rewriter transformers in
+ * integrator template mode, where all resource URLs are externalized. Run with <code>-prof gc</code> to get the
+ * allocation rate per page.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlRewriterBenchmark {
+
+  /**
+   * SAX element events of a page with client libraries, images, links and inline styles referencing the same
+   * resources multiple times.
+   */
+  @State(Scope.Benchmark)
+  public static class PageMarkup {
+
+    final List<String> elementNames = new ArrayList<>();
+    final List<AttributesImpl> elementAttributes = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+      for (int i = 0; i < 3; i++) {
+        add("link", "rel", "stylesheet", "href", "/etc/clientlibs/benchmark/lib" + i + ".min.css");
+        add("script", "src", "/etc/clientlibs/benchmark/lib" + i + ".min.js");
+      }
+      for (int i = 0; i < 100; i++) {
+        add("a", "href", UrlHandlerScenario.SITE_ROOT + "/section" + (i % 10) + "/page" + (i % 7) + ".html",
+            "class", "navigation-link");
+      }
+      for (int i = 0; i < 50; i++) {
+        String image = "/content/dam/benchmark/image" + (i % 25) + ".jpg";
+        add("img", "src", image, "srcset", image + " 1x, " + image + ".2x.jpg 2x", "alt", "Image " + i);
+        add("div", "style", "background-image: url(" + image + ")", "data-src", image);
+      }
+      for (int i = 0; i < 3; i++) {
+        add("script", "src", "/etc/clientlibs/benchmark/lib" + i + ".min.js");
+      }
+    }
+
+    private void add(String elementName, String... attributeNamesAndValues) {
+      AttributesImpl attributes = new AttributesImpl();
+      for (int i = 0; i < attributeNamesAndValues.length; i += 2) {
+        attributes.addCDATAAttribute(attributeNamesAndValues[i], attributeNamesAndValues[i + 1]);
+      }
+      elementNames.add(elementName);
+      elementAttributes.add(attributes);
+    }
+
+  }
+
+  private static final TransformerFactory EXTERNALIZER_FACTORY = new UrlExternalizerTransformerFactory();
+  private static final TransformerFactory ATTRIBUTE_EXTERNALIZER_FACTORY = new UrlAttributeRewriterTransformerFactory();
+
+  /**
+   * Rewrite page with the element/attribute-based externalizer transformer.
+   */
+  @Benchmark
+  public int externalizerTransformer(UrlHandlerScenario scenario, PageMarkup markup) throws Exception {
+    return rewrite(EXTERNALIZER_FACTORY, scenario, markup);
+  }
+
+  /**
+   * Rewrite page with the transformer that externalizes resource URL attributes of all elements.
+   */
+  @Benchmark
+  public int attributeExternalizerTransformer(UrlHandlerScenario scenario, PageMarkup markup) throws Exception {
+    return rewrite(ATTRIBUTE_EXTERNALIZER_FACTORY, scenario, markup);
+  }
+
+  private int rewrite(TransformerFactory factory, UrlHandlerScenario scenario, PageMarkup markup)
+      throws Exception {
+    scenario.context.requestPathInfo().setSelectorString(IntegratorHandler.SELECTOR_INTEGRATORTEMPLATE);
+
+    CountingContentHandler contentHandler = new CountingContentHandler();
+    Transformer transformer = factory.createTransformer();
+    transformer.init(processingContext(scenario), processingComponentConfiguration());
+    transformer.setContentHandler(contentHandler);
+    transformer.startDocument();
+    for (int i = 0; i < markup.elementNames.size(); i++) {
+      String name = markup.elementNames.get(i);
+      transformer.startElement(null, name, name, markup.elementAttributes.get(i));
+      transformer.endElement(null, name, name);
+    }
+    transformer.endDocument();
+    transformer.dispose();
+    return contentHandler.count;
+  }
+
+  private static ProcessingContext processingContext(final UrlHandlerScenario scenario) {
+    return proxy(ProcessingContext.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "getRequest":
+            return scenario.context.request();
+          case "getResponse":
+            return scenario.context.response();
+          case "getContentType":
+            return "text/html";
+          default:
+            return null;
+        }
+      }
+    });
+  }
+
+  private static ProcessingComponentConfiguration processingComponentConfiguration() {
+    return proxy(ProcessingComponentConfiguration.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if ("getConfiguration".equals(method.getName())) {
+          // data-src is opt-in for the attribute externalizer, other transformers ignore it
+          return ImmutableValueMap.of("rewriteDataAttributes", new String[] {
+            "data-src"
+          });
+        }
+        return null;
+      }
+    });
+  }
+
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(UrlRewriterBenchmark.class.getClassLoader(), new Class<?>[] {
+        type
+    }, handler));
+  }
+
+  /**
+   * Consumes the rewritten markup and counts the attributes.
+   */
+  private static class CountingContentHandler extends DefaultHandler {
+
+    private int count;
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+        throws SAXException {
+      count += attributes.getLength();
+    }
+
+  }
+
+}
@@ -0,0 +1,330 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.commons.caching;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.commons.osgi.PropertiesUtil;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+
+import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.wcm.api.PageEvent;
+import com.day.cq.wcm.api.PageModification;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Base class for application-wide caches whose values depend on pages or assets below /content.
+ * Each cached value remembers the paths it depends on - including paths that did not exist when the value was
+ * loaded. A value is invalidated as soon as a page or resource event is received for one of these paths. Deleted or
+ * moved pages invalidate all values depending on paths below them as well.
+ * <p>
+ * Subclasses are OSGi components that subscribe to the page and resource event topics, register the configuration
+ * properties defined in this class and pass their configuration to {@link #configure(Dictionary)} on activation.
+ * </p>
+ * @param <V> Value type
+ */
+public abstract class AbstractDependencyCache<V> implements EventHandler {
+
+  /**
+   * Default value for {@link #PROPERTY_ENABLED}.
+   */
+  public static final boolean DEFAULT_ENABLED = true;
+
+  /**
+   * Switch to enable or disable the cache.
+   */
+  public static final String PROPERTY_ENABLED = "enabled";
+
+  /**
+   * Maximum number of cached values.
+   */
+  public static final String PROPERTY_MAX_SIZE = "maxSize";
+
+  /**
+   * Time in seconds after which cached values expire even if no change event was received.
+   */
+  public static final String PROPERTY_EXPIRE_SECONDS = "expireSeconds";
+
+  private static final String CONTENT_NODE_SEGMENT = "/" + JcrConstants.JCR_CONTENT;
+  private static final String CONTENT_ROOT_PATH = "/content";
+
+  private final int defaultMaxSize;
+  private final int defaultExpireSeconds;
+
+  private boolean enabled = DEFAULT_ENABLED;
+  private int expireSeconds;
+  private Cache<String, V> cache;
+
+  // page or asset path -> keys of all cached values that depend on it
+  private final ConcurrentNavigableMap<String, Set<String>> dependencies = new ConcurrentSkipListMap<>();
+
+  // number of loads in progress whose dependencies are not registered yet
+  private final AtomicInteger pendingCount = new AtomicInteger();
+
+  // incremented on invalidations while loads are in progress
+  // to prevent caching of values that were loaded before
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * @param defaultMaxSize Default value for {@link #PROPERTY_MAX_SIZE}
+   * @param defaultExpireSeconds Default value for {@link #PROPERTY_EXPIRE_SECONDS}
+   */
+  protected AbstractDependencyCache(int defaultMaxSize, int defaultExpireSeconds) {
+    this.defaultMaxSize = defaultMaxSize;
+    this.defaultExpireSeconds = defaultExpireSeconds;
+    this.expireSeconds = defaultExpireSeconds;
+    this.cache = buildCache(defaultMaxSize, defaultExpireSeconds);
+  }
+
+  /**
+   * Applies the OSGi configuration. Removes all cached values.
+   * @param properties Component properties
+   */
+  protected final void configure(Dictionary<?, ?> properties) {
+    enabled = PropertiesUtil.toBoolean(properties.get(PROPERTY_ENABLED), DEFAULT_ENABLED);
+    int maxSize = PropertiesUtil.toInteger(properties.get(PROPERTY_MAX_SIZE), defaultMaxSize);
+    expireSeconds = PropertiesUtil.toInteger(properties.get(PROPERTY_EXPIRE_SECONDS), defaultExpireSeconds);
+    cache = buildCache(maxSize, expireSeconds);
+    dependencies.clear();
+  }
+
+  private Cache<String, V> buildCache(int maxSize, int expireSeconds) {
+    return CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+        .removalListener(new RemovalListener<String, V>() {
+          @Override
+          public void onRemoval(RemovalNotification<String, V> notification) {
+            // replaced entries are re-registered by the put operation
+            if (notification.getCause() != RemovalCause.REPLACED) {
+              unregisterDependencies(notification.getKey(), notification.getValue());
+            }
+          }
+        })
+        .build();
+  }
+
+  /**
+   * @param value Cached value
+   * @return Paths of all pages and assets the value depends on
+   */
+  protected abstract Set<String> getDependencyPaths(V value);
+
+  /**
+   * Returns the cached value for the given key, or loads and caches it. If the cache is disabled the value is
+   * loaded on each call.
+   * @param key Cache key - has to contain all context information the value depends on
+   * @param loader Loads the value if it is not cached
+   * @return Value
+   */
+  protected final V getValue(String key, Supplier<V> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+    V value = cache.getIfPresent(key);
+    if (value == null) {
+      pendingCount.incrementAndGet();
+      try {
+        long currentGeneration = generation.get();
+        value = loader.get();
+        if (currentGeneration == generation.get()) {
+          cache.put(key, value);
+          registerDependencies(key, value);
+          // an invalidation may have missed the dependencies registered just now
+          if (currentGeneration != generation.get()) {
+            cache.invalidate(key);
+          }
+        }
+      }
+      finally {
+        pendingCount.decrementAndGet();
+      }
+    }
+    return value;
+  }
+
+  private void registerDependencies(String key, V value) {
+    for (String path : getDependencyPaths(value)) {
+      while (true) {
+        Set<String> keys = dependencies.get(path);
+        if (keys == null) {
+          Set<String> newKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+          keys = dependencies.putIfAbsent(path, newKeys);
+          if (keys == null) {
+            keys = newKeys;
+          }
+        }
+        keys.add(key);
+        // retry if key set was removed concurrently because it was empty
+        if (dependencies.get(path) == keys) {
+          break;
+        }
+      }
+    }
+  }
+
+  private void unregisterDependencies(String key, V value) {
+    if (key == null || value == null) {
+      return;
+    }
+    for (String path : getDependencyPaths(value)) {
+      Set<String> keys = dependencies.get(path);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          dependencies.remove(path, keys);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if the cache is enabled
+   */
+  public final boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return Time in seconds after which cached values expire
+   */
+  protected final int getExpireSeconds() {
+    return expireSeconds;
+  }
+
+  /**
+   * Invalidates all cached values that depend on the given page or asset.
+   * @param path Page or asset path
+   * @param includeDescendants Invalidate values depending on paths below the given path as well
+   */
+  public final void invalidate(String path, boolean includeDescendants) {
+    if (StringUtils.isEmpty(path)) {
+      return;
+    }
+    // loads in progress may depend on the path without having registered it yet
+    if (pendingCount.get() > 0) {
+      generation.incrementAndGet();
+    }
+    invalidateKeys(dependencies.remove(path));
+    if (includeDescendants) {
+      // dependencies are sorted by path, descendants directly follow the prefix
+      String prefix = path + "/";
+      Iterator<Map.Entry<String, Set<String>>> entries = dependencies.tailMap(prefix).entrySet().iterator();
+      while (entries.hasNext()) {
+        Map.Entry<String, Set<String>> entry = entries.next();
+        if (!entry.getKey().startsWith(prefix)) {
+          break;
+        }
+        entries.remove();
+        invalidateKeys(entry.getValue());
+      }
+    }
+  }
+
+  private void invalidateKeys(Set<String> keys) {
+    if (keys != null) {
+      cache.invalidateAll(keys);
+    }
+  }
+
+  /**
+   * Removes all cached values.
+   */
+  public final void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+    dependencies.clear();
+  }
+
+  /**
+   * @return Number of cached values
+   */
+  public final long getSize() {
+    return cache.size();
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if (StringUtils.equals(event.getTopic(), PageEvent.EVENT_TOPIC)) {
+      PageEvent pageEvent = PageEvent.fromEvent(event);
+      if (pageEvent == null) {
+        return;
+      }
+      Iterator<PageModification> modifications = pageEvent.getModifications();
+      while (modifications.hasNext()) {
+        PageModification modification = modifications.next();
+        invalidate(modification.getPath(), true);
+        invalidate(modification.getDestination(), true);
+      }
+    }
+    else {
+      String path = (String)event.getProperty(SlingConstants.PROPERTY_PATH);
+      if (!isContentPath(path)) {
+        return;
+      }
+      boolean removed = StringUtils.equals(event.getTopic(), SlingConstants.TOPIC_RESOURCE_REMOVED);
+      invalidate(getContainerPath(path), removed && !StringUtils.contains(path, CONTENT_NODE_SEGMENT));
+    }
+  }
+
+  /**
+   * @param path Resource path
+   * @return true if the path is located below /content
+   */
+  public static boolean isContentPath(String path) {
+    return StringUtils.equals(path, CONTENT_ROOT_PATH) || StringUtils.startsWith(path, CONTENT_ROOT_PATH + "/");
+  }
+
+  /**
+   * @param path Resource path
+   * @return Path of the page or asset containing the resource, or the path itself if it is not located in a
+   *         content node
+   */
+  public static String getContainerPath(String path) {
+    int index = StringUtils.indexOf(path, CONTENT_NODE_SEGMENT);
+    while (index >= 0) {
+      int end = index + CONTENT_NODE_SEGMENT.length();
+      if (end == path.length() || path.charAt(end) == '/') {
+        return path.substring(0, index);
+      }
+      index = path.indexOf(CONTENT_NODE_SEGMENT, end);
+    }
+    return path;
+  }
+
+}
@@ -0,0 +1,442 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.commons.instrumentation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.text.WordUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.commons.osgi.PropertiesUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class for the optional instrumentation of a handler. Records the time spent in each phase of processing a
+ * handler request per category (e.g. link type or media source), and logs references that take longer than a
+ * configurable threshold. If disabled, no timings are taken at all.
+ * <p>
+ * Subclasses are OSGi components that define the phases, register the configuration properties defined in this class
+ * and pass their configuration to {@link #configure(Dictionary)} on activation.
+ * </p>
+ */
+public abstract class AbstractHandlerInstrumentation implements HandlerInstrumentationMBean {
+
+  /**
+   * Category key used if no category was detected.
+   */
+  public static final String NO_CATEGORY = "none";
+
+  /**
+   * Default value for {@link #PROPERTY_ENABLED}.
+   */
+  public static final boolean DEFAULT_ENABLED = false;
+
+  /**
+   * Default value for {@link #PROPERTY_SLOW_THRESHOLD_MILLIS}.
+   */
+  public static final long DEFAULT_SLOW_THRESHOLD_MILLIS = 50;
+
+  /**
+   * Default value for {@link #PROPERTY_SLOW_LOG_PER_REQUEST}.
+   */
+  public static final int DEFAULT_SLOW_LOG_PER_REQUEST = 10;
+
+  /**
+   * Default value for {@link #PROPERTY_SLOWEST_SIZE}.
+   */
+  public static final int DEFAULT_SLOWEST_SIZE = 50;
+
+  /**
+   * Record timings.
+   */
+  public static final String PROPERTY_ENABLED = "enabled";
+
+  /**
+   * References taking longer than this time in milliseconds are logged as slow references.
+   */
+  public static final String PROPERTY_SLOW_THRESHOLD_MILLIS = "slowThresholdMillis";
+
+  /**
+   * Maximum number of slow references logged per request.
+   */
+  public static final String PROPERTY_SLOW_LOG_PER_REQUEST = "slowLogPerRequest";
+
+  /**
+   * Number of slowest references kept for the status report.
+   */
+  public static final String PROPERTY_SLOWEST_SIZE = "slowestSize";
+
+  private final String handlerName;
+  private final String categoryName;
+  private final String[] phaseNames;
+  private final String requestAttributeSlowReferenceCount;
+  private final Logger log;
+
+  private volatile boolean enabled = DEFAULT_ENABLED;
+  private long slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_THRESHOLD_MILLIS);
+  private int slowLogPerRequest = DEFAULT_SLOW_LOG_PER_REQUEST;
+  private int slowestSize = DEFAULT_SLOWEST_SIZE;
+
+  private final ConcurrentMap<String, CategoryStatistics> statistics = new ConcurrentHashMap<>();
+  private final PriorityQueue<SlowReference> slowest = new PriorityQueue<>();
+
+  /**
+   * @param handlerName Handler name used in log messages, e.g. "link"
+   * @param categoryName Category name used in the statistics, e.g. "linkType"
+   * @param phases Phases of processing a handler request, in the order they are executed
+   */
+  protected AbstractHandlerInstrumentation(String handlerName, String categoryName, Enum<?>[] phases) {
+    this.handlerName = handlerName;
+    this.categoryName = categoryName;
+    this.phaseNames = new String[phases.length];
+    for (Enum<?> phase : phases) {
+      // e.g. TYPE_DETECTION -> typeDetection
+      String name = StringUtils.remove(WordUtils.capitalizeFully(phase.name(), '_'), '_');
+      this.phaseNames[phase.ordinal()] = StringUtils.uncapitalize(name);
+    }
+    this.requestAttributeSlowReferenceCount = getClass().getName() + ".slowReferenceCount";
+    this.log = LoggerFactory.getLogger(getClass().getName());
+  }
+
+  /**
+   * Applies the OSGi configuration.
+   * @param properties Component properties
+   */
+  protected final void configure(Dictionary<?, ?> properties) {
+    enabled = PropertiesUtil.toBoolean(properties.get(PROPERTY_ENABLED), DEFAULT_ENABLED);
+    long slowThresholdMillis = PropertiesUtil.toLong(properties.get(PROPERTY_SLOW_THRESHOLD_MILLIS),
+        DEFAULT_SLOW_THRESHOLD_MILLIS);
+    slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    slowLogPerRequest = PropertiesUtil.toInteger(properties.get(PROPERTY_SLOW_LOG_PER_REQUEST),
+        DEFAULT_SLOW_LOG_PER_REQUEST);
+    slowestSize = PropertiesUtil.toInteger(properties.get(PROPERTY_SLOWEST_SIZE), DEFAULT_SLOWEST_SIZE);
+  }
+
+  /**
+   * Starts recording the timings for a handler request.
+   * @return Timer or null if instrumentation is disabled
+   */
+  public final Timer start() {
+    if (!enabled) {
+      return null;
+    }
+    return new Timer(phaseNames.length);
+  }
+
+  /**
+   * Records the timings of a processed handler request.
+   * @param timer Timer
+   * @param category Category (e.g. link type id) or null if no category was detected
+   * @param reference Reference for logging
+   * @param request Current request or null
+   */
+  public final void record(Timer timer, String category, String reference, SlingHttpServletRequest request) {
+    long totalNanos = System.nanoTime() - timer.startNanos;
+    String categoryKey = category != null ? category : NO_CATEGORY;
+
+    CategoryStatistics categoryStatistics = statistics.get(categoryKey);
+    if (categoryStatistics == null) {
+      CategoryStatistics newCategoryStatistics = new CategoryStatistics(phaseNames.length);
+      categoryStatistics = statistics.putIfAbsent(categoryKey, newCategoryStatistics);
+      if (categoryStatistics == null) {
+        categoryStatistics = newCategoryStatistics;
+      }
+    }
+    categoryStatistics.total.record(totalNanos);
+    for (int i = 0; i < phaseNames.length; i++) {
+      categoryStatistics.phases[i].record(timer.phaseNanos[i]);
+    }
+
+    if (totalNanos > slowThresholdNanos) {
+      SlowReference slowReference = new SlowReference(categoryKey, reference, totalNanos, timer.phaseNanos);
+      addSlowest(slowReference);
+      logSlowReference(slowReference, request);
+    }
+  }
+
+  private void addSlowest(SlowReference slowReference) {
+    synchronized (slowest) {
+      slowest.add(slowReference);
+      while (slowest.size() > slowestSize) {
+        slowest.poll();
+      }
+    }
+  }
+
+  private void logSlowReference(SlowReference slowReference, SlingHttpServletRequest request) {
+    if (!log.isInfoEnabled()) {
+      return;
+    }
+    if (request != null) {
+      Integer count = (Integer)request.getAttribute(requestAttributeSlowReferenceCount);
+      int newCount = (count != null ? count : 0) + 1;
+      request.setAttribute(requestAttributeSlowReferenceCount, newCount);
+      if (newCount > slowLogPerRequest) {
+        return;
+      }
+      log.info("Slow {} in {}: {}", handlerName, request.getRequestURI(), toString(slowReference));
+    }
+    else {
+      log.info("Slow {}: {}", handlerName, toString(slowReference));
+    }
+  }
+
+  @Override
+  public final boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public final void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  @Override
+  public final long getSlowThresholdMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+  }
+
+  @Override
+  public final String getStatistics() {
+    try {
+      return toJson().toString(2);
+    }
+    catch (JSONException ex) {
+      throw new RuntimeException("Unable to generate statistics.", ex);
+    }
+  }
+
+  @Override
+  public final String[] getSlowestReferences() {
+    List<SlowReference> list = getSlowestList();
+    String[] result = new String[list.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = toString(list.get(i));
+    }
+    return result;
+  }
+
+  private List<SlowReference> getSlowestList() {
+    List<SlowReference> list;
+    synchronized (slowest) {
+      list = new ArrayList<>(slowest);
+    }
+    Collections.sort(list, Collections.reverseOrder());
+    return list;
+  }
+
+  @Override
+  public final void reset() {
+    statistics.clear();
+    synchronized (slowest) {
+      slowest.clear();
+    }
+  }
+
+  /**
+   * @return Statistics in JSON format
+   * @throws JSONException JSON exception
+   */
+  public final JSONObject toJson() throws JSONException {
+    JSONObject json = new JSONObject();
+    json.put("enabled", enabled);
+    json.put("slowThresholdMillis", getSlowThresholdMillis());
+
+    JSONObject categories = new JSONObject();
+    for (Map.Entry<String, CategoryStatistics> entry : new TreeMap<>(statistics).entrySet()) {
+      JSONObject category = new JSONObject();
+      category.put("total", entry.getValue().total.toJson());
+      JSONObject phases = new JSONObject();
+      for (int i = 0; i < phaseNames.length; i++) {
+        phases.put(phaseNames[i], entry.getValue().phases[i].toJson());
+      }
+      category.put("phases", phases);
+      categories.put(entry.getKey(), category);
+    }
+    json.put(categoryName + "s", categories);
+
+    JSONArray slowestReferences = new JSONArray();
+    for (SlowReference slowReference : getSlowestList()) {
+      slowestReferences.put(toJson(slowReference));
+    }
+    json.put("slowestReferences", slowestReferences);
+    return json;
+  }
+
+  private JSONObject toJson(SlowReference slowReference) throws JSONException {
+    JSONObject json = new JSONObject();
+    json.put(categoryName, slowReference.category);
+    json.put("reference", slowReference.reference);
+    json.put("totalMillis", toMillis(slowReference.totalNanos));
+    for (int i = 0; i < phaseNames.length; i++) {
+      json.put(phaseNames[i] + "Millis", toMillis(slowReference.phaseNanos[i]));
+    }
+    return json;
+  }
+
+  private String toString(SlowReference slowReference) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(slowReference.reference).append(" [").append(slowReference.category).append("] ")
+    .append(String.format("%.2f", toMillis(slowReference.totalNanos))).append("ms (");
+    for (int i = 0; i < phaseNames.length; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(phaseNames[i]).append('=').append(String.format("%.2f", toMillis(slowReference.phaseNanos[i])))
+      .append("ms");
+    }
+    sb.append(')');
+    return sb.toString();
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1000000d;
+  }
+
+
+  /**
+   * Measures the phases of processing a single handler request.
+   */
+  public static final class Timer {
+
+    private final long startNanos;
+    private long lastNanos;
+    private final long[] phaseNanos;
+
+    Timer(int phaseCount) {
+      startNanos = System.nanoTime();
+      lastNanos = startNanos;
+      phaseNanos = new long[phaseCount];
+    }
+
+    /**
+     * Marks the given phase as finished.
+     * @param phase Phase
+     */
+    public void phase(Enum<?> phase) {
+      long now = System.nanoTime();
+      phaseNanos[phase.ordinal()] += now - lastNanos;
+      lastNanos = now;
+    }
+
+  }
+
+  private static final class CategoryStatistics {
+
+    private final Histogram total = new Histogram();
+    private final Histogram[] phases;
+
+    CategoryStatistics(int phaseCount) {
+      phases = new Histogram[phaseCount];
+      for (int i = 0; i < phases.length; i++) {
+        phases[i] = new Histogram();
+      }
+    }
+
+  }
+
+  /**
+   * Timing histogram with fixed buckets.
+   */
+  private static final class Histogram {
+
+    private static final long[] BUCKET_LIMITS_NANOS = new long[] {
+      TimeUnit.MICROSECONDS.toNanos(100),
+      TimeUnit.MILLISECONDS.toNanos(1),
+      TimeUnit.MILLISECONDS.toNanos(10),
+      TimeUnit.MILLISECONDS.toNanos(100)
+    };
+    private static final String[] BUCKET_LABELS = new String[] {
+      "<0.1ms", "<1ms", "<10ms", "<100ms", ">=100ms"
+    };
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_LABELS.length);
+
+    void record(long nanos) {
+      count.incrementAndGet();
+      totalNanos.addAndGet(nanos);
+      long max = maxNanos.get();
+      while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+        max = maxNanos.get();
+      }
+      int bucket = 0;
+      while (bucket < BUCKET_LIMITS_NANOS.length && nanos >= BUCKET_LIMITS_NANOS[bucket]) {
+        bucket++;
+      }
+      buckets.incrementAndGet(bucket);
+    }
+
+    JSONObject toJson() throws JSONException {
+      JSONObject json = new JSONObject();
+      long currentCount = count.get();
+      json.put("count", currentCount);
+      json.put("totalMillis", toMillis(totalNanos.get()));
+      json.put("avgMillis", currentCount > 0 ? toMillis(totalNanos.get() / currentCount) : 0d);
+      json.put("maxMillis", toMillis(maxNanos.get()));
+      JSONObject histogram = new JSONObject();
+      for (int i = 0; i < BUCKET_LABELS.length; i++) {
+        histogram.put(BUCKET_LABELS[i], buckets.get(i));
+      }
+      json.put("histogram", histogram);
+      return json;
+    }
+
+  }
+
+  private static final class SlowReference implements Comparable<SlowReference> {
+
+    private final String category;
+    private final String reference;
+    private final long totalNanos;
+    private final long[] phaseNanos;
+
+    SlowReference(String category, String reference, long totalNanos, long[] phaseNanos) {
+      this.category = category;
+      this.reference = reference;
+      this.totalNanos = totalNanos;
+      this.phaseNanos = phaseNanos.clone();
+    }
+
+    @Override
+    public int compareTo(SlowReference other) {
+      return Long.compare(totalNanos, other.totalNanos);
+    }
+
+  }
+
+}
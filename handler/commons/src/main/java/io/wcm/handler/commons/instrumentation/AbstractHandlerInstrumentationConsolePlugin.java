@@ -0,0 +1,60 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.commons.instrumentation;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.sling.commons.json.JSONException;
+
+/**
+ * Felix web console plugin showing the statistics of a {@link AbstractHandlerInstrumentation}.
+ * Subclasses have to be registered as servlet service with the <code>felix.webconsole.label</code> and
+ * <code>felix.webconsole.title</code> properties, so the statistics are only accessible to web console users.
+ */
+public abstract class AbstractHandlerInstrumentationConsolePlugin extends HttpServlet {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * @return Instrumentation to show the statistics for
+   */
+  protected abstract AbstractHandlerInstrumentation getInstrumentation();
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+    String statistics;
+    try {
+      statistics = getInstrumentation().toJson().toString(2);
+    }
+    catch (JSONException ex) {
+      throw new ServletException(ex);
+    }
+    response.setCharacterEncoding(CharEncoding.UTF_8);
+    response.setHeader("Cache-Control", "no-cache");
+    response.getWriter().write("<pre>" + StringEscapeUtils.escapeHtml4(statistics) + "</pre>");
+  }
+
+}
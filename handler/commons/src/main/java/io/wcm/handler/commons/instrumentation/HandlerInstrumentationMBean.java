@@ -0,0 +1,57 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.commons.instrumentation;
+
+/**
+ * JMX interface of {@link AbstractHandlerInstrumentation}.
+ */
+public interface HandlerInstrumentationMBean {
+
+  /**
+   * @return true if timings are recorded
+   */
+  boolean isEnabled();
+
+  /**
+   * @param enabled Enable or disable recording of timings
+   */
+  void setEnabled(boolean enabled);
+
+  /**
+   * @return References taking longer than this time in milliseconds are logged as slow references
+   */
+  long getSlowThresholdMillis();
+
+  /**
+   * @return Timing statistics per category and phase in JSON format
+   */
+  String getStatistics();
+
+  /**
+   * @return Slowest references recorded since last reset
+   */
+  String[] getSlowestReferences();
+
+  /**
+   * Resets all statistics.
+   */
+  void reset();
+
+}
@@ -0,0 +1,170 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.commons.caching;
+
+import static io.wcm.handler.commons.caching.AbstractDependencyCache.getContainerPath;
+import static io.wcm.handler.commons.caching.AbstractDependencyCache.isContentPath;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Hashtable;
+import java.util.Set;
+
+import org.apache.sling.api.SlingConstants;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class AbstractDependencyCacheTest {
+
+  static class TestCache extends AbstractDependencyCache<Set<String>> {
+    TestCache() {
+      super(100, 60);
+    }
+    TestCache(boolean enabled) {
+      this();
+      Hashtable<String, Object> properties = new Hashtable<>();
+      properties.put(PROPERTY_ENABLED, enabled);
+      configure(properties);
+    }
+    Set<String> get(String key, Supplier<Set<String>> loader) {
+      return getValue(key, loader);
+    }
+    @Override
+    protected Set<String> getDependencyPaths(Set<String> value) {
+      return value;
+    }
+  }
+
+  private TestCache underTest;
+  private int loadCount;
+
+  @Before
+  public void setUp() {
+    underTest = new TestCache();
+  }
+
+  @Test
+  public void testCached() {
+    underTest.get("key1", value("/content/page1"));
+    underTest.get("key1", value("/content/page1"));
+    assertTrue(underTest.isEnabled());
+    assertEquals(1, loadCount);
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testDisabled() {
+    underTest = new TestCache(false);
+    underTest.get("key1", value("/content/page1"));
+    underTest.get("key1", value("/content/page1"));
+    assertFalse(underTest.isEnabled());
+    assertEquals(2, loadCount);
+    assertEquals(0, underTest.getSize());
+  }
+
+  @Test
+  public void testInvalidateOnContentChange() {
+    underTest.get("key1", value("/content/page1", "/content/page2"));
+    underTest.get("key2", value("/content/page2"));
+    underTest.get("key3", value("/content/page3"));
+
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, "/content/page2/jcr:content/par/comp"));
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testInvalidateDescendantsOnRemove() {
+    underTest.get("key1", value("/content/page1/child1"));
+    underTest.get("key2", value("/content/page1-other"));
+
+    // removal of a content node does not affect descendants
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, "/content/page1/jcr:content"));
+    assertEquals(2, underTest.getSize());
+
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, "/content/page1"));
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testIgnoreNonContentPaths() {
+    underTest.get("key1", value("/apps/app1"));
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, "/apps/app1"));
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testInvalidateDuringLoad() {
+    underTest.get("key1", new Supplier<Set<String>>() {
+      @Override
+      public Set<String> get() {
+        // dependency of the value being loaded changes before it is cached
+        underTest.invalidate("/content/page1", false);
+        return ImmutableSet.of("/content/page1");
+      }
+    });
+    assertEquals(0, underTest.getSize());
+  }
+
+  @Test
+  public void testInvalidateAll() {
+    underTest.get("key1", value("/content/page1"));
+    underTest.get("key2", value("/content/page2"));
+    underTest.invalidateAll();
+    assertEquals(0, underTest.getSize());
+  }
+
+  @Test
+  public void testGetContainerPath() {
+    assertEquals("/content/page1", getContainerPath("/content/page1"));
+    assertEquals("/content/page1", getContainerPath("/content/page1/jcr:content"));
+    assertEquals("/content/page1", getContainerPath("/content/page1/jcr:content/par/comp"));
+    assertEquals("/content/dam/a.jpg", getContainerPath("/content/dam/a.jpg/jcr:content/renditions"));
+    assertEquals("/content/page1/jcr:contentX", getContainerPath("/content/page1/jcr:contentX"));
+  }
+
+  @Test
+  public void testIsContentPath() {
+    assertTrue(isContentPath("/content"));
+    assertTrue(isContentPath("/content/page1"));
+    assertFalse(isContentPath("/content-other"));
+    assertFalse(isContentPath(null));
+  }
+
+  private Supplier<Set<String>> value(final String... dependencyPaths) {
+    return new Supplier<Set<String>>() {
+      @Override
+      public Set<String> get() {
+        loadCount++;
+        return ImmutableSet.copyOf(dependencyPaths);
+      }
+    };
+  }
+
+  private static Event event(String topic, String path) {
+    return new Event(topic, ImmutableMap.<String, Object>of(SlingConstants.PROPERTY_PATH, path));
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.commons.instrumentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Hashtable;
+
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONObject;
+import org.junit.Test;
+
+public class AbstractHandlerInstrumentationTest {
+
+  enum Phase {
+    TYPE_DETECTION,
+    RESOLVE
+  }
+
+  static class TestInstrumentation extends AbstractHandlerInstrumentation {
+    TestInstrumentation(long slowThresholdMillis, int slowestSize) {
+      super("test", "testType", Phase.values());
+      Hashtable<String, Object> properties = new Hashtable<>();
+      properties.put(PROPERTY_ENABLED, true);
+      properties.put(PROPERTY_SLOW_THRESHOLD_MILLIS, slowThresholdMillis);
+      properties.put(PROPERTY_SLOWEST_SIZE, slowestSize);
+      configure(properties);
+    }
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    AbstractHandlerInstrumentation underTest = new AbstractHandlerInstrumentation("test", "testType", Phase.values()) {
+      // default configuration
+    };
+    assertFalse(underTest.isEnabled());
+    assertNull(underTest.start());
+  }
+
+  @Test
+  public void testRecord() throws Exception {
+    TestInstrumentation underTest = new TestInstrumentation(-1L, 10);
+
+    AbstractHandlerInstrumentation.Timer timer = underTest.start();
+    assertNotNull(timer);
+    timer.phase(Phase.TYPE_DETECTION);
+    timer.phase(Phase.RESOLVE);
+    underTest.record(timer, "type1", "/content/ref1", null);
+    underTest.record(underTest.start(), null, "/content/ref2", null);
+
+    JSONObject json = underTest.toJson();
+    assertTrue(json.getBoolean("enabled"));
+    JSONObject categories = json.getJSONObject("testTypes");
+    assertEquals(1, categories.getJSONObject("type1").getJSONObject("total").getLong("count"));
+    assertEquals(1, categories.getJSONObject("type1").getJSONObject("phases").getJSONObject("typeDetection")
+        .getLong("count"));
+    assertEquals(1, categories.getJSONObject(AbstractHandlerInstrumentation.NO_CATEGORY)
+        .getJSONObject("total").getLong("count"));
+
+    JSONArray slowestReferences = json.getJSONArray("slowestReferences");
+    assertEquals(2, slowestReferences.length());
+    assertEquals(2, underTest.getSlowestReferences().length);
+
+    underTest.reset();
+    assertEquals(0, underTest.toJson().getJSONObject("testTypes").length());
+    assertEquals(0, underTest.getSlowestReferences().length);
+  }
+
+  @Test
+  public void testSlowestSize() {
+    TestInstrumentation underTest = new TestInstrumentation(-1L, 2);
+    for (int i = 0; i < 5; i++) {
+      underTest.record(underTest.start(), "type1", "/content/ref" + i, null);
+    }
+    assertEquals(2, underTest.getSlowestReferences().length);
+  }
+
+  @Test
+  public void testBelowSlowThreshold() {
+    TestInstrumentation underTest = new TestInstrumentation(Long.MAX_VALUE / 1000000L, 10);
+    underTest.record(underTest.start(), "type1", "/content/ref1", null);
+    assertEquals(0, underTest.getSlowestReferences().length);
+  }
+
+}
@@ -19,6 +19,8 @@
  */
 package io.wcm.handler.link;
 
+import java.util.List;
+
 import org.apache.sling.api.resource.Resource;
 import org.osgi.annotation.versioning.ProviderType;
 
@@ -61,4 +63,23 @@ public interface LinkHandler {
    */
   LinkBuilder get(LinkRequest linkRequest);
 
+  /**
+   * Resolves links for a list of link requests at once, e.g. for navigations or sitemaps.
+   * Link types, processors and markup builders are instantiated only once for the whole list, so configuration
+   * lookups, site root detection and validity checks are shared between all links.
+   * @param linkRequests Link handling requests
+   * @return Resolved links in the same order as the link requests
+   */
+  List<Link> getAll(List<LinkRequest> linkRequests);
+
+  /**
+   * Resolves internal links for a list of content pages at once, e.g. for navigations or sitemaps.
+   * Link types, processors and markup builders are instantiated only once for the whole list, so configuration
+   * lookups, site root detection and validity checks are shared between all links.
+   * @param pages Target content pages
+   * @param linkArgs Link arguments applied to all links, may be null
+   * @return Resolved links in the same order as the pages
+   */
+  List<Link> getAll(List<Page> pages, LinkArgs linkArgs);
+
 }
@@ -20,23 +20,23 @@
 package io.wcm.handler.link.impl;
 
 import io.wcm.handler.link.Link;
+import io.wcm.handler.link.LinkArgs;
 import io.wcm.handler.link.LinkBuilder;
 import io.wcm.handler.link.LinkHandler;
 import io.wcm.handler.link.LinkRequest;
 import io.wcm.handler.link.spi.LinkHandlerConfig;
-import io.wcm.handler.link.spi.LinkMarkupBuilder;
-import io.wcm.handler.link.spi.LinkProcessor;
-import io.wcm.handler.link.spi.LinkType;
-import io.wcm.sling.commons.adapter.AdaptTo;
 import io.wcm.sling.models.annotations.AemObject;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.Adaptable;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.annotations.injectorspecific.OSGiService;
 import org.apache.sling.models.annotations.injectorspecific.Self;
+import org.apache.sling.models.annotations.injectorspecific.SlingObject;
 
 import com.day.cq.wcm.api.Page;
 
@@ -55,6 +55,12 @@ public final class LinkHandlerImpl implements LinkHandler {
   @AemObject
   private Page currentPage;
 
+  // optional injections (only available if called inside a request)
+  @SlingObject(optional = true)
+  private SlingHttpServletRequest request;
+  @OSGiService(optional = true)
+  private LinkHandlerInstrumentation instrumentation;
+
   @Override
   public LinkBuilder get(Resource resource) {
     return new LinkBuilderImpl(resource, this);
@@ -70,73 +76,85 @@ public final class LinkHandlerImpl implements LinkHandler {
     return new LinkBuilderImpl(linkRequest, this);
   }
 
+  @Override
+  public List<Link> getAll(List<LinkRequest> linkRequests) {
+    if (linkRequests == null) {
+      throw new IllegalArgumentException("Link requests list is null.");
+    }
+    LinkPipeline pipeline = newPipeline();
+    List<Link> links = new ArrayList<>(linkRequests.size());
+    for (LinkRequest linkRequest : linkRequests) {
+      if (linkRequest == null) {
+        throw new IllegalArgumentException("Link request is null.");
+      }
+      // clone link args to make sure the original object is not modified
+      LinkRequest clonedLinkRequest = new LinkRequest(linkRequest.getResource(), linkRequest.getPage(),
+          linkRequest.getLinkArgs().clone());
+      links.add(processRequest(clonedLinkRequest, pipeline));
+    }
+    return links;
+  }
+
+  @Override
+  public List<Link> getAll(List<Page> pages, LinkArgs linkArgs) {
+    if (pages == null) {
+      throw new IllegalArgumentException("Pages list is null.");
+    }
+    LinkArgs args = linkArgs != null ? linkArgs : new LinkArgs();
+    List<LinkRequest> linkRequests = new ArrayList<>(pages.size());
+    for (Page page : pages) {
+      linkRequests.add(new LinkRequest(null, page, args));
+    }
+    return getAll(linkRequests);
+  }
+
   /**
-   * Resolves the link
+   * Resolves the link. Within a request, resolved links are cached and reused for further link requests
+   * with the same link reference and link arguments.
    * @param linkRequest Link request
    * @return Link metadata (never null)
    */
   Link processRequest(LinkRequest linkRequest) {
+    return processRequest(linkRequest, null);
+  }
 
-    // detect link type - first accepting wins
-    LinkType linkType = null;
-    List<Class<? extends LinkType>> linkTypes = linkHandlerConfig.getLinkTypes();
-    if (linkTypes == null || linkTypes.isEmpty()) {
-      throw new RuntimeException("No link types defined.");
-    }
-    for (Class<? extends LinkType> candidateLinkTypeClass : linkTypes) {
-      LinkType candidateLinkType = AdaptTo.notNull(adaptable, candidateLinkTypeClass);
-      if (candidateLinkType.accepts(linkRequest)) {
-        linkType = candidateLinkType;
-        break;
-      }
-    }
-    Link link = new Link(linkType, linkRequest);
-
-    // preprocess link before resolving
-    List<Class<? extends LinkProcessor>> linkPreProcessors = linkHandlerConfig.getPreProcessors();
-    if (linkPreProcessors != null) {
-      for (Class<? extends LinkProcessor> processorClass : linkPreProcessors) {
-        LinkProcessor processor = AdaptTo.notNull(adaptable, processorClass);
-        link = processor.process(link);
-        if (link == null) {
-          throw new RuntimeException("LinkPreProcessor '" + processor + "' returned null, page '" + currentPage.getPath() + "'.");
-        }
-      }
+  /**
+   * Resolves the link, using the given pipeline if not null.
+   * @param linkRequest Link request
+   * @param pipeline Link pipeline shared by multiple link requests or null
+   * @return Link metadata (never null)
+   */
+  private Link processRequest(LinkRequest linkRequest, LinkPipeline pipeline) {
+    if (request == null) {
+      return resolveRequest(linkRequest, pipeline);
     }
 
-    // resolve link
-    if (linkType != null) {
-      link = linkType.resolveLink(link);
-      if (link == null) {
-        throw new RuntimeException("LinkType '" + linkType + "' returned null, page '" + currentPage.getPath() + "'.");
-      }
+    LinkResolutionCache cache = LinkResolutionCache.get(request);
+    Object key = LinkResolutionCache.key(linkRequest, linkHandlerConfig.getClass().getName()
+        + "|" + (currentPage != null ? currentPage.getPath() : null));
+    Link link = cache.get(key, linkRequest);
+    if (link == null) {
+      link = resolveRequest(linkRequest, pipeline);
+      cache.put(key, link);
     }
+    return link;
+  }
 
-    // generate markup (if markup builder is available) - first accepting wins
-    List<Class<? extends LinkMarkupBuilder>> linkMarkupBuilders = linkHandlerConfig.getMarkupBuilders();
-    if (linkMarkupBuilders != null) {
-      for (Class<? extends LinkMarkupBuilder> linkMarkupBuilderClass : linkMarkupBuilders) {
-        LinkMarkupBuilder linkMarkupBuilder = AdaptTo.notNull(adaptable, linkMarkupBuilderClass);
-        if (linkMarkupBuilder.accepts(link)) {
-          link.setAnchor(linkMarkupBuilder.build(link));
-          break;
-        }
-      }
-    }
+  private LinkPipeline newPipeline() {
+    return new LinkPipeline(adaptable, linkHandlerConfig, currentPage, request, instrumentation);
+  }
 
-    // postprocess link after resolving
-    List<Class<? extends LinkProcessor>> linkPostProcessors = linkHandlerConfig.getPostProcessors();
-    if (linkPostProcessors != null) {
-      for (Class<? extends LinkProcessor> processorClass : linkPostProcessors) {
-        LinkProcessor processor = AdaptTo.notNull(adaptable, processorClass);
-        link = processor.process(link);
-        if (link == null) {
-          throw new RuntimeException("LinkPostProcessor '" + processor + "' returned null, page '" + currentPage.getPath() + "'.");
-        }
-      }
+  /**
+   * Resolves the link
+   * @param linkRequest Link request
+   * @param pipeline Link pipeline shared by multiple link requests or null
+   * @return Link metadata (never null)
+   */
+  private Link resolveRequest(LinkRequest linkRequest, LinkPipeline pipeline) {
+    if (pipeline != null) {
+      return pipeline.process(linkRequest);
     }
-
-    return link;
+    return newPipeline().process(linkRequest);
   }
 
 }
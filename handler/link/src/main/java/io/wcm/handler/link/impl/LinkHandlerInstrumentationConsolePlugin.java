@@ -0,0 +1,56 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import io.wcm.handler.commons.instrumentation.AbstractHandlerInstrumentation;
+import io.wcm.handler.commons.instrumentation.AbstractHandlerInstrumentationConsolePlugin;
+
+import javax.servlet.Servlet;
+
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.Service;
+
+/**
+ * Felix web console plugin showing the statistics of {@link LinkHandlerInstrumentation}.
+ */
+@Component(immediate = true)
+@Service(Servlet.class)
+@Properties({
+  @Property(name = "felix.webconsole.label", value = LinkHandlerInstrumentationConsolePlugin.LABEL),
+  @Property(name = "felix.webconsole.title", value = "wcm.io Link Handler Instrumentation"),
+  @Property(name = "felix.webconsole.category", value = "Status")
+})
+public final class LinkHandlerInstrumentationConsolePlugin extends AbstractHandlerInstrumentationConsolePlugin {
+  private static final long serialVersionUID = 1L;
+
+  static final String LABEL = "wcmio-handler-link-instrumentation";
+
+  @Reference
+  private LinkHandlerInstrumentation instrumentation;
+
+  @Override
+  protected AbstractHandlerInstrumentation getInstrumentation() {
+    return instrumentation;
+  }
+
+}
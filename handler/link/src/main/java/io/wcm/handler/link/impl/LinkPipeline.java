@@ -0,0 +1,224 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import io.wcm.handler.commons.instrumentation.AbstractHandlerInstrumentation;
+import io.wcm.handler.link.Link;
+import io.wcm.handler.link.LinkRequest;
+import io.wcm.handler.link.impl.LinkHandlerInstrumentation.Phase;
+import io.wcm.handler.link.spi.LinkHandlerConfig;
+import io.wcm.handler.link.spi.LinkMarkupBuilder;
+import io.wcm.handler.link.spi.LinkProcessor;
+import io.wcm.handler.link.spi.LinkType;
+import io.wcm.sling.commons.adapter.AdaptTo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.adapter.Adaptable;
+
+import com.day.cq.wcm.api.Page;
+
+/**
+ * Resolves links using the link types, processors and markup builders defined in the link handler configuration.
+ * The implementations are adapted lazily on first use and reused for all links resolved by the same pipeline
+ * instance. Built-in link types are detected via {@link LinkTypeDispatchTable} and adapted only if they accept
+ * the link.
+ */
+final class LinkPipeline {
+
+  private final Adaptable adaptable;
+  private final Page currentPage;
+  private final SlingHttpServletRequest request;
+  private final LinkHandlerInstrumentation instrumentation;
+
+  private final List<Class<? extends LinkType>> linkTypeClasses;
+  private final List<Class<? extends LinkProcessor>> preProcessorClasses;
+  private final List<Class<? extends LinkMarkupBuilder>> markupBuilderClasses;
+  private final List<Class<? extends LinkProcessor>> postProcessorClasses;
+
+  private final LinkTypeDispatchTable linkTypeDispatchTable;
+  private final LinkType[] linkTypes;
+  private final LinkTypeDispatchTable.LinkTypeProvider linkTypeProvider = new LinkTypeDispatchTable.LinkTypeProvider() {
+    @Override
+    public LinkType get(int index) {
+      return getLinkType(index);
+    }
+  };
+  private List<LinkProcessor> preProcessors;
+  private final List<LinkMarkupBuilder> markupBuilders;
+  private List<LinkProcessor> postProcessors;
+
+  LinkPipeline(Adaptable adaptable, LinkHandlerConfig linkHandlerConfig, Page currentPage,
+      SlingHttpServletRequest request, LinkHandlerInstrumentation instrumentation) {
+    this.adaptable = adaptable;
+    this.currentPage = currentPage;
+    this.request = request;
+    this.instrumentation = instrumentation;
+
+    this.linkTypeClasses = linkHandlerConfig.getLinkTypes();
+    if (this.linkTypeClasses == null || this.linkTypeClasses.isEmpty()) {
+      throw new RuntimeException("No link types defined.");
+    }
+    this.preProcessorClasses = emptyIfNull(linkHandlerConfig.getPreProcessors());
+    this.markupBuilderClasses = emptyIfNull(linkHandlerConfig.getMarkupBuilders());
+    this.postProcessorClasses = emptyIfNull(linkHandlerConfig.getPostProcessors());
+
+    this.linkTypeDispatchTable = LinkTypeDispatchTable.get(this.linkTypeClasses);
+    this.linkTypes = new LinkType[this.linkTypeClasses.size()];
+    this.markupBuilders = new ArrayList<>(this.markupBuilderClasses.size());
+  }
+
+  private static <T> List<T> emptyIfNull(List<T> list) {
+    if (list == null) {
+      return Collections.emptyList();
+    }
+    return list;
+  }
+
+  /**
+   * Resolves the link
+   * @param linkRequest Link request
+   * @return Link metadata (never null)
+   */
+  public Link process(LinkRequest linkRequest) {
+    AbstractHandlerInstrumentation.Timer timer = instrumentation != null ? instrumentation.start() : null;
+
+    // detect link type - first accepting wins
+    LinkType linkType = null;
+    int linkTypeIndex = linkTypeDispatchTable.detect(linkRequest, linkTypeProvider);
+    if (linkTypeIndex >= 0) {
+      linkType = getLinkType(linkTypeIndex);
+    }
+    Link link = new Link(linkType, linkRequest);
+    if (timer != null) {
+      timer.phase(Phase.TYPE_DETECTION);
+    }
+
+    // preprocess link before resolving
+    for (LinkProcessor processor : getPreProcessors()) {
+      link = processor.process(link);
+      if (link == null) {
+        throw new RuntimeException("LinkPreProcessor '" + processor + "' returned null, page '" + currentPage.getPath() + "'.");
+      }
+    }
+    if (timer != null) {
+      timer.phase(Phase.PRE_PROCESS);
+    }
+
+    // resolve link
+    if (linkType != null) {
+      link = linkType.resolveLink(link);
+      if (link == null) {
+        throw new RuntimeException("LinkType '" + linkType + "' returned null, page '" + currentPage.getPath() + "'.");
+      }
+    }
+    if (timer != null) {
+      timer.phase(Phase.RESOLVE);
+    }
+
+    // generate markup (if markup builder is available) - first accepting wins
+    for (int i = 0; i < markupBuilderClasses.size(); i++) {
+      LinkMarkupBuilder linkMarkupBuilder = getMarkupBuilder(i);
+      if (linkMarkupBuilder.accepts(link)) {
+        link.setAnchor(linkMarkupBuilder.build(link));
+        break;
+      }
+    }
+    if (timer != null) {
+      timer.phase(Phase.MARKUP);
+    }
+
+    // postprocess link after resolving
+    for (LinkProcessor processor : getPostProcessors()) {
+      link = processor.process(link);
+      if (link == null) {
+        throw new RuntimeException("LinkPostProcessor '" + processor + "' returned null, page '" + currentPage.getPath() + "'.");
+      }
+    }
+    if (timer != null) {
+      timer.phase(Phase.POST_PROCESS);
+      instrumentation.record(timer, linkType != null ? linkType.getId() : null, getReference(linkRequest, linkType),
+          request);
+    }
+
+    return link;
+  }
+
+  /**
+   * @param linkRequest Link request
+   * @param linkType Detected link type
+   * @return Link reference for instrumentation
+   */
+  private static String getReference(LinkRequest linkRequest, LinkType linkType) {
+    if (linkRequest.getPage() != null) {
+      return linkRequest.getPage().getPath();
+    }
+    if (linkType != null) {
+      String linkRef = linkRequest.getResourceProperties().get(linkType.getPrimaryLinkRefProperty(), String.class);
+      if (linkRef != null) {
+        return linkRef;
+      }
+    }
+    if (linkRequest.getResource() != null) {
+      return linkRequest.getResource().getPath();
+    }
+    return null;
+  }
+
+  private LinkType getLinkType(int index) {
+    if (linkTypes[index] == null) {
+      linkTypes[index] = AdaptTo.notNull(adaptable, linkTypeClasses.get(index));
+    }
+    return linkTypes[index];
+  }
+
+  private LinkMarkupBuilder getMarkupBuilder(int index) {
+    if (index == markupBuilders.size()) {
+      markupBuilders.add(AdaptTo.notNull(adaptable, markupBuilderClasses.get(index)));
+    }
+    return markupBuilders.get(index);
+  }
+
+  private List<LinkProcessor> getPreProcessors() {
+    if (preProcessors == null) {
+      preProcessors = adaptProcessors(preProcessorClasses);
+    }
+    return preProcessors;
+  }
+
+  private List<LinkProcessor> getPostProcessors() {
+    if (postProcessors == null) {
+      postProcessors = adaptProcessors(postProcessorClasses);
+    }
+    return postProcessors;
+  }
+
+  private List<LinkProcessor> adaptProcessors(List<Class<? extends LinkProcessor>> processorClasses) {
+    List<LinkProcessor> processors = new ArrayList<>(processorClasses.size());
+    for (Class<? extends LinkProcessor> processorClass : processorClasses) {
+      processors.add(AdaptTo.notNull(adaptable, processorClass));
+    }
+    return processors;
+  }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import io.wcm.handler.commons.dom.Anchor;
+import io.wcm.handler.link.Link;
+import io.wcm.handler.link.LinkArgs;
+import io.wcm.handler.link.LinkRequest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+
+import com.day.cq.wcm.api.Page;
+
+/**
+ * Request-scoped memo of resolved links. Links are cached per link reference (resource path and properties, or
+ * target page), link arguments, link handler configuration and current page.
+ * <p>
+ * Each cache hit returns a copy of the cached link with its own anchor element and the caller's link request, so
+ * callers can modify it safely.
+ * </p>
+ * <p>
+ * Resource properties in the JCR system namespaces (e.g. <code>jcr:lastModified</code>) are not link-relevant and
+ * not part of the cache key.
+ * </p>
+ */
+public final class LinkResolutionCache {
+
+  /**
+   * Request attribute holding the cache for the current request. Can be used to access the cache statistics for
+   * diagnostic purposes.
+   */
+  public static final String REQUEST_ATTRIBUTE = LinkResolutionCache.class.getName();
+
+  private static final String[] IGNORED_PROPERTY_PREFIXES = new String[] {
+    "jcr:",
+    "cq:",
+    "sling:",
+    "rep:"
+  };
+
+  private final Map<CacheKey, Link> links = new HashMap<>();
+  private int hitCount;
+  private int missCount;
+
+  /**
+   * Get link resolution cache for the given request.
+   * @param request Request
+   * @return Link resolution cache
+   */
+  static LinkResolutionCache get(SlingHttpServletRequest request) {
+    Object cache = request.getAttribute(REQUEST_ATTRIBUTE);
+    if (cache instanceof LinkResolutionCache) {
+      return (LinkResolutionCache)cache;
+    }
+    LinkResolutionCache newCache = new LinkResolutionCache();
+    request.setAttribute(REQUEST_ATTRIBUTE, newCache);
+    return newCache;
+  }
+
+  /**
+   * Build cache key.
+   * @param linkRequest Link request
+   * @param scope Additional scope information, e.g. link handler config and current page
+   * @return Cache key
+   */
+  static Object key(LinkRequest linkRequest, String scope) {
+    return new CacheKey(linkRequest, scope);
+  }
+
+  /**
+   * @param key Cache key
+   * @param linkRequest Link request of the caller, attached to the returned link
+   * @return Copy of cached link or null if not cached
+   */
+  Link get(Object key, LinkRequest linkRequest) {
+    Link link = links.get(key);
+    if (link == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    return copy(link, linkRequest);
+  }
+
+  /**
+   * @param key Cache key
+   * @param link Resolved link. A copy of the link is stored.
+   */
+  void put(Object key, Link link) {
+    links.put((CacheKey)key, copy(link, link.getLinkRequest()));
+  }
+
+  /**
+   * @return Number of links resolved from cache in current request
+   */
+  public int getHitCount() {
+    return this.hitCount;
+  }
+
+  /**
+   * @return Number of links that had to be resolved in current request
+   */
+  public int getMissCount() {
+    return this.missCount;
+  }
+
+  /**
+   * @return Number of distinct links cached for the current request
+   */
+  public int getSize() {
+    return links.size();
+  }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("size", getSize())
+        .append("hitCount", hitCount)
+        .append("missCount", missCount)
+        .toString();
+  }
+
+  private static Link copy(Link link, LinkRequest linkRequest) {
+    Link copy = new Link(link.getLinkType(), linkRequest);
+    copy.setLinkReferenceInvalid(link.isLinkReferenceInvalid());
+    Anchor anchor = link.getAnchor();
+    if (anchor != null) {
+      copy.setAnchor((Anchor)anchor.clone());
+    }
+    copy.setUrl(link.getUrl());
+    copy.setTargetPage(link.getTargetPage());
+    copy.setTargetAsset(link.getTargetAsset());
+    copy.setTargetRendition(link.getTargetRendition());
+    return copy;
+  }
+
+
+  private static final class CacheKey {
+
+    private final String resourcePath;
+    private final Map<String, Object> resourceProperties;
+    private final String pagePath;
+    private final LinkArgs linkArgs;
+    private final String scope;
+    private final int hashCode;
+
+    CacheKey(LinkRequest linkRequest, String scope) {
+      Resource resource = linkRequest.getResource();
+      Page page = linkRequest.getPage();
+      this.resourcePath = resource != null ? resource.getPath() : null;
+      this.resourceProperties = resource != null ? getLinkRelevantProperties(resource) : null;
+      this.pagePath = page != null ? page.getPath() : null;
+      // clone link args to make sure the key is not modified afterwards
+      this.linkArgs = linkRequest.getLinkArgs().clone();
+      this.scope = scope;
+      this.hashCode = new HashCodeBuilder()
+          .append(resourcePath)
+          .append(resourceProperties)
+          .append(pagePath)
+          .append(linkArgs)
+          .append(scope)
+          .toHashCode();
+    }
+
+    /**
+     * Collect link-relevant properties. Arrays are converted to lists to compare them by content.
+     */
+    private static Map<String, Object> getLinkRelevantProperties(Resource resource) {
+      Map<String, Object> props = new TreeMap<>();
+      for (Map.Entry<String, Object> entry : resource.getValueMap().entrySet()) {
+        if (StringUtils.startsWithAny(entry.getKey(), IGNORED_PROPERTY_PREFIXES)) {
+          continue;
+        }
+        Object value = entry.getValue();
+        if (value instanceof Object[]) {
+          value = Arrays.asList((Object[])value);
+        }
+        props.put(entry.getKey(), value);
+      }
+      return props;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey other = (CacheKey)obj;
+      return new EqualsBuilder()
+          .append(hashCode, other.hashCode)
+          .append(resourcePath, other.resourcePath)
+          .append(pagePath, other.pagePath)
+          .append(scope, other.scope)
+          .append(resourceProperties, other.resourceProperties)
+          .append(linkArgs, other.linkArgs)
+          .isEquals();
+    }
+
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import io.wcm.handler.link.LinkNameConstants;
+import io.wcm.handler.link.LinkRequest;
+import io.wcm.handler.link.spi.LinkType;
+import io.wcm.handler.link.type.ExternalLinkType;
+import io.wcm.handler.link.type.InternalLinkType;
+import io.wcm.handler.link.type.MediaLinkType;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.ValueMap;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Precomputed link type detection for the link types defined by a link handler configuration.
+ * For the built-in link types the detection is done on the link properties directly, without adapting the
+ * link type models. Only custom link types and direct links to pages are checked by calling the model's
+ * {@link LinkType#accepts(LinkRequest)} method. The order of the link types is preserved - first accepting wins.
+ */
+final class LinkTypeDispatchTable {
+
+  /**
+   * Built-in link types that are detected without model instance. The instances created here are not injected,
+   * they are only used for {@link LinkType#getId()}, {@link LinkType#getPrimaryLinkRefProperty()} and
+   * {@link LinkType#accepts(String)}, which do not depend on injected objects.
+   */
+  private static final ImmutableMap<Class<? extends LinkType>, LinkType> BUILT_IN_LINK_TYPES =
+      ImmutableMap.<Class<? extends LinkType>, LinkType>of(
+          InternalLinkType.class, new InternalLinkType(),
+          ExternalLinkType.class, new ExternalLinkType(),
+          MediaLinkType.class, new MediaLinkType());
+
+  /**
+   * Weak keys: compares lists by identity, and releases the table when the configuration is discarded.
+   */
+  private static final LoadingCache<List<Class<? extends LinkType>>, LinkTypeDispatchTable> TABLE_CACHE =
+      CacheBuilder.newBuilder()
+      .weakKeys()
+      .build(new CacheLoader<List<Class<? extends LinkType>>, LinkTypeDispatchTable>() {
+        @Override
+        public LinkTypeDispatchTable load(List<Class<? extends LinkType>> linkTypeClasses) {
+          return new LinkTypeDispatchTable(linkTypeClasses);
+        }
+      });
+
+  private final Entry[] entries;
+
+  LinkTypeDispatchTable(List<Class<? extends LinkType>> linkTypeClasses) {
+    entries = new Entry[linkTypeClasses.size()];
+    for (int i = 0; i < entries.length; i++) {
+      Class<? extends LinkType> linkTypeClass = linkTypeClasses.get(i);
+      entries[i] = new Entry(BUILT_IN_LINK_TYPES.get(linkTypeClass), linkTypeClass == InternalLinkType.class);
+    }
+  }
+
+  /**
+   * Get dispatch table for the given link types.
+   * @param linkTypeClasses Link type classes from link handler config
+   * @return Dispatch table
+   */
+  static LinkTypeDispatchTable get(List<Class<? extends LinkType>> linkTypeClasses) {
+    return TABLE_CACHE.getUnchecked(linkTypeClasses);
+  }
+
+  /**
+   * Detects the link type for the given link request.
+   * @param linkRequest Link request
+   * @param linkTypes Provides model instances for the link types by their index, if required
+   * @return Index of the accepting link type or -1 if none accepts
+   */
+  int detect(LinkRequest linkRequest, LinkTypeProvider linkTypes) {
+    ValueMap props = null;
+    String linkTypeId = null;
+    for (int i = 0; i < entries.length; i++) {
+      Entry entry = entries[i];
+
+      // custom link types, and direct page links which are only accepted as internal link if the page is valid
+      if (entry.builtInLinkType == null || (entry.internal && linkRequest.getPage() != null)) {
+        if (linkTypes.get(i).accepts(linkRequest)) {
+          return i;
+        }
+        continue;
+      }
+
+      // same logic as AbstractLinkType.accepts(LinkRequest)
+      if (props == null) {
+        props = linkRequest.getResourceProperties();
+        linkTypeId = props.get(LinkNameConstants.PN_LINK_TYPE, String.class);
+      }
+      if (StringUtils.isNotEmpty(linkTypeId)) {
+        if (StringUtils.equals(linkTypeId, entry.builtInLinkType.getId())) {
+          return i;
+        }
+      }
+      else {
+        String linkRef = props.get(entry.builtInLinkType.getPrimaryLinkRefProperty(), String.class);
+        if (entry.builtInLinkType.accepts(linkRef)) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Provides model instances for link types.
+   */
+  interface LinkTypeProvider {
+
+    /**
+     * @param index Index of link type in link handler config
+     * @return Link type model instance
+     */
+    LinkType get(int index);
+
+  }
+
+  private static final class Entry {
+
+    private final LinkType builtInLinkType;
+    private final boolean internal;
+
+    Entry(LinkType builtInLinkType, boolean internal) {
+      this.builtInLinkType = builtInLinkType;
+      this.internal = internal;
+    }
+
+  }
+
+}
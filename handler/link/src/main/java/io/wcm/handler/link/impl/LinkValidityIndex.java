@@ -0,0 +1,293 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import io.wcm.handler.commons.caching.AbstractDependencyCache;
+import io.wcm.handler.link.spi.LinkHandlerConfig;
+
+import java.util.Calendar;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.commons.osgi.PropertiesUtil;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+import com.day.cq.replication.ReplicationAction;
+import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.PageEvent;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Index of the on/off-time validity and the link target validity of pages used by
+ * {@link io.wcm.handler.link.type.InternalLinkType}.
+ * <p>
+ * The on/off-time of a page is read once and converted to a validity flag. Upcoming on/off-time transitions are
+ * queued and applied by a scheduled job or - if the job is late - by the next lookup, so pages appear and disappear on
+ * schedule without reading page properties for each link.
+ * </p>
+ * <p>
+ * The result of {@link LinkHandlerConfig#isValidLinkTarget(Page)} is stored per link handler configuration class,
+ * assuming it depends on the page content only.
+ * </p>
+ * <p>
+ * Index entries are removed when page, replication or resource events are received for the page. Deleted or moved pages
+ * remove the entries of all pages below them as well. Only resource and replication events below /content are taken
+ * into account.
+ * </p>
+ */
+@Component(immediate = true, metatype = true,
+label = "wcm.io Link Handler Link Validity Index",
+description = "Indexes on/off-time and link target validity of pages for internal links.")
+@Service({
+  LinkValidityIndex.class, EventHandler.class, Runnable.class
+})
+@Properties({
+  @Property(name = EventConstants.EVENT_TOPIC, value = {
+      PageEvent.EVENT_TOPIC,
+      ReplicationAction.EVENT_TOPIC,
+      SlingConstants.TOPIC_RESOURCE_ADDED,
+      SlingConstants.TOPIC_RESOURCE_CHANGED,
+      SlingConstants.TOPIC_RESOURCE_REMOVED
+  }, propertyPrivate = true),
+  @Property(name = "scheduler.concurrent", boolValue = false, propertyPrivate = true),
+  @Property(name = AbstractDependencyCache.PROPERTY_ENABLED, boolValue = AbstractDependencyCache.DEFAULT_ENABLED,
+      label = "Enabled", description = "Switch to enable or disable the index."),
+  @Property(name = AbstractDependencyCache.PROPERTY_MAX_SIZE, intValue = LinkValidityIndex.DEFAULT_MAX_SIZE,
+      label = "Max. size", description = "Maximum number of indexed pages."),
+  @Property(name = AbstractDependencyCache.PROPERTY_EXPIRE_SECONDS, intValue = LinkValidityIndex.DEFAULT_EXPIRE_SECONDS,
+      label = "Expiry time",
+      description = "Time in seconds after which index entries expire even if no change event was received.")
+})
+public final class LinkValidityIndex extends AbstractDependencyCache<LinkValidityIndex.PageEntry> implements Runnable {
+
+  static final int DEFAULT_MAX_SIZE = 50000;
+  static final int DEFAULT_EXPIRE_SECONDS = 3600;
+  private static final boolean DEFAULT_LINK_TARGET_VALIDITY = true;
+  private static final long DEFAULT_SCHEDULER_PERIOD = 10;
+
+  @Property(boolValue = DEFAULT_LINK_TARGET_VALIDITY, label = "Link target validity",
+      description = "Index results of the link handler configuration's link target check as well. "
+          + "Disable if the check depends on anything else than the page content.")
+  static final String PROPERTY_LINK_TARGET_VALIDITY = "linkTargetValidity";
+
+  @Property(longValue = DEFAULT_SCHEDULER_PERIOD, label = "Scheduler period",
+      description = "Interval in seconds in which on/off-time transitions are applied in background.")
+  static final String PROPERTY_SCHEDULER_PERIOD = "scheduler.period";
+
+  private boolean linkTargetValidity = DEFAULT_LINK_TARGET_VALIDITY;
+
+  // upcoming on/off-time transitions, ordered by time
+  private final PriorityQueue<Transition> transitions = new PriorityQueue<>();
+  private volatile long nextTransitionTime = Long.MAX_VALUE;
+
+  /**
+   * Index with default configuration.
+   */
+  public LinkValidityIndex() {
+    super(DEFAULT_MAX_SIZE, DEFAULT_EXPIRE_SECONDS);
+  }
+
+  @Activate
+  void activate(ComponentContext componentContext) {
+    configure(componentContext.getProperties());
+    linkTargetValidity = PropertiesUtil.toBoolean(componentContext.getProperties().get(PROPERTY_LINK_TARGET_VALIDITY),
+        DEFAULT_LINK_TARGET_VALIDITY);
+    synchronized (transitions) {
+      transitions.clear();
+      nextTransitionTime = Long.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Checks if the page is valid concerning its on/off-time.
+   * @param page Page
+   * @return true if page is valid
+   */
+  public boolean isValid(Page page) {
+    if (!isEnabled()) {
+      return page.isValid();
+    }
+    return getEntry(page).valid;
+  }
+
+  /**
+   * Checks if the page is acceptable as link target for the given link handler configuration.
+   * @param page Page
+   * @param linkHandlerConfig Link handler configuration
+   * @return true if page is acceptable as link target
+   */
+  public boolean isValidLinkTarget(Page page, LinkHandlerConfig linkHandlerConfig) {
+    if (!isEnabled() || !linkTargetValidity) {
+      return linkHandlerConfig.isValidLinkTarget(page);
+    }
+    PageEntry entry = getEntry(page);
+    String configKey = linkHandlerConfig.getClass().getName();
+    Boolean valid = entry.linkTargetValidity.get(configKey);
+    if (valid == null) {
+      valid = linkHandlerConfig.isValidLinkTarget(page);
+      entry.linkTargetValidity.put(configKey, valid);
+    }
+    return valid;
+  }
+
+  private PageEntry getEntry(final Page page) {
+    final long now = System.currentTimeMillis();
+    if (now >= nextTransitionTime) {
+      applyTransitions(now);
+    }
+    return getValue(page.getPath(), new Supplier<PageEntry>() {
+      @Override
+      public PageEntry get() {
+        PageEntry entry = new PageEntry(page.getPath(), page.getOnTime(), page.getOffTime(), now);
+        scheduleTransitions(entry, now);
+        return entry;
+      }
+    });
+  }
+
+  private void scheduleTransitions(PageEntry entry, long now) {
+    // transitions after the expiry of the entry are not required, the page is read again after expiry
+    long horizon = now + TimeUnit.SECONDS.toMillis(getExpireSeconds());
+    boolean onTransition = entry.onTime > now && entry.onTime <= horizon;
+    boolean offTransition = entry.offTime >= now && entry.offTime < horizon;
+    if (!onTransition && !offTransition) {
+      return;
+    }
+    synchronized (transitions) {
+      if (onTransition) {
+        transitions.add(new Transition(entry.onTime, entry));
+      }
+      if (offTransition) {
+        transitions.add(new Transition(entry.offTime + 1, entry));
+      }
+      updateNextTransitionTime();
+    }
+  }
+
+  /**
+   * Applies all on/off-time transitions that are due at the given time.
+   * @param now Current time
+   */
+  void applyTransitions(long now) {
+    synchronized (transitions) {
+      Transition transition = transitions.peek();
+      while (transition != null && transition.time <= now) {
+        transitions.poll();
+        transition.entry.update(now);
+        transition = transitions.peek();
+      }
+      updateNextTransitionTime();
+    }
+  }
+
+  private void updateNextTransitionTime() {
+    Transition transition = transitions.peek();
+    nextTransitionTime = transition != null ? transition.time : Long.MAX_VALUE;
+  }
+
+  @Override
+  public void run() {
+    applyTransitions(System.currentTimeMillis());
+  }
+
+  @Override
+  protected Set<String> getDependencyPaths(PageEntry entry) {
+    return entry.paths;
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if (StringUtils.equals(event.getTopic(), ReplicationAction.EVENT_TOPIC)) {
+      ReplicationAction action = ReplicationAction.fromEvent(event);
+      if (action == null || action.getPaths() == null) {
+        return;
+      }
+      for (String path : action.getPaths()) {
+        if (isContentPath(path)) {
+          invalidate(getContainerPath(path), true);
+        }
+      }
+    }
+    else {
+      super.handleEvent(event);
+    }
+  }
+
+
+  /**
+   * Indexed validity of a single page.
+   */
+  static final class PageEntry {
+
+    private final Set<String> paths;
+    private final long onTime;
+    private final long offTime;
+    private volatile boolean valid;
+    private final ConcurrentMap<String, Boolean> linkTargetValidity = new ConcurrentHashMap<>();
+
+    PageEntry(String path, Calendar onTime, Calendar offTime, long now) {
+      this.paths = ImmutableSet.of(path);
+      this.onTime = onTime != null ? onTime.getTimeInMillis() : Long.MIN_VALUE;
+      this.offTime = offTime != null ? offTime.getTimeInMillis() : Long.MAX_VALUE;
+      update(now);
+    }
+
+    void update(long now) {
+      // same semantics as Page.isValid()
+      this.valid = (onTime <= now) && (now <= offTime);
+    }
+
+  }
+
+  /**
+   * Upcoming on/off-time transition of a page.
+   */
+  private static final class Transition implements Comparable<Transition> {
+
+    private final long time;
+    private final PageEntry entry;
+
+    Transition(long time, PageEntry entry) {
+      this.time = time;
+      this.entry = entry;
+    }
+
+    @Override
+    public int compareTo(Transition other) {
+      return Long.compare(time, other.time);
+    }
+
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import io.wcm.handler.commons.caching.AbstractDependencyCache;
+
+import java.util.Set;
+
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.SlingConstants;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+import com.day.cq.wcm.api.PageEvent;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Application-wide cache for the resolution of redirect page chains by
+ * {@link io.wcm.handler.link.type.InternalLinkType}.
+ * Each cached chain remembers the paths of all pages that were involved in resolving it - including link targets
+ * that did not exist at resolution time, see {@link AbstractDependencyCache} for the invalidation rules.
+ */
+@Component(immediate = true, metatype = true,
+label = "wcm.io Link Handler Redirect Chain Cache",
+description = "Caches the resolution of redirect page chains for internal links.")
+@Service({
+  RedirectChainCache.class, EventHandler.class
+})
+@Properties({
+  @Property(name = EventConstants.EVENT_TOPIC, value = {
+      PageEvent.EVENT_TOPIC,
+      SlingConstants.TOPIC_RESOURCE_ADDED,
+      SlingConstants.TOPIC_RESOURCE_CHANGED,
+      SlingConstants.TOPIC_RESOURCE_REMOVED
+  }, propertyPrivate = true),
+  @Property(name = AbstractDependencyCache.PROPERTY_ENABLED, boolValue = AbstractDependencyCache.DEFAULT_ENABLED,
+      label = "Enabled", description = "Switch to enable or disable the cache."),
+  @Property(name = AbstractDependencyCache.PROPERTY_MAX_SIZE, intValue = RedirectChainCache.DEFAULT_MAX_SIZE,
+      label = "Max. size", description = "Maximum number of cached redirect chains."),
+  @Property(name = AbstractDependencyCache.PROPERTY_EXPIRE_SECONDS,
+      intValue = RedirectChainCache.DEFAULT_EXPIRE_SECONDS, label = "Expiry time",
+      description = "Time in seconds after which cached redirect chains expire even if no change event was received. "
+          + "This also limits the time until on/off-time changes of pages within a chain take effect.")
+})
+public final class RedirectChainCache extends AbstractDependencyCache<RedirectChainCache.RedirectChain> {
+
+  static final int DEFAULT_MAX_SIZE = 10000;
+  static final int DEFAULT_EXPIRE_SECONDS = 600;
+
+  /**
+   * Cache with default configuration.
+   */
+  public RedirectChainCache() {
+    super(DEFAULT_MAX_SIZE, DEFAULT_EXPIRE_SECONDS);
+  }
+
+  @Activate
+  void activate(ComponentContext componentContext) {
+    configure(componentContext.getProperties());
+  }
+
+  /**
+   * Returns the cached redirect chain for the given key, or resolves and caches it.
+   * @param key Cache key - has to contain all context information the resolution depends on
+   * @param resolver Resolves the redirect chain if it is not cached
+   * @return Redirect chain
+   */
+  public RedirectChain get(String key, Supplier<RedirectChain> resolver) {
+    return getValue(key, resolver);
+  }
+
+  @Override
+  protected Set<String> getDependencyPaths(RedirectChain chain) {
+    return chain.getPagePaths();
+  }
+
+
+  /**
+   * Result of a redirect chain resolution.
+   */
+  public static final class RedirectChain {
+
+    private final String targetRedirectPagePath;
+    private final Set<String> pagePaths;
+
+    /**
+     * @param targetRedirectPagePath Path of the last redirect page in the chain, which has to be resolved to get the
+     *          link target. Null if the chain could not be resolved (e.g. endless loop).
+     * @param pagePaths Paths of all pages the resolution depends on
+     */
+    public RedirectChain(String targetRedirectPagePath, Set<String> pagePaths) {
+      this.targetRedirectPagePath = targetRedirectPagePath;
+      this.pagePaths = ImmutableSet.copyOf(pagePaths);
+    }
+
+    /**
+     * @return Path of the last redirect page in the chain, or null if the chain could not be resolved
+     */
+    public String getTargetRedirectPagePath() {
+      return this.targetRedirectPagePath;
+    }
+
+    /**
+     * @return Paths of all pages the resolution depends on
+     */
+    public Set<String> getPagePaths() {
+      return this.pagePaths;
+    }
+
+  }
+
+}
@@ -25,6 +25,9 @@ import io.wcm.handler.link.LinkHandler;
 import io.wcm.handler.link.LinkNameConstants;
 import io.wcm.handler.link.LinkRequest;
 import io.wcm.handler.link.SyntheticLinkResource;
+import io.wcm.handler.link.impl.LinkValidityIndex;
+import io.wcm.handler.link.impl.RedirectChainCache;
+import io.wcm.handler.link.impl.RedirectChainCache.RedirectChain;
 import io.wcm.handler.link.spi.LinkHandlerConfig;
 import io.wcm.handler.link.type.helpers.LinkResolveCounter;
 import io.wcm.handler.url.UrlHandler;
@@ -34,7 +37,9 @@ import io.wcm.wcm.commons.contenttype.FileExtension;
 import io.wcm.wcm.commons.util.RunMode;
 
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
@@ -50,6 +55,8 @@ import org.osgi.annotation.versioning.ProviderType;
 import com.day.cq.wcm.api.Page;
 import com.day.cq.wcm.api.PageManager;
 import com.day.cq.wcm.api.WCMMode;
+import com.day.text.Text;
+import com.google.common.base.Supplier;
 
 /**
  * Default implementation of {@link io.wcm.handler.link.spi.LinkType} for internal links.
@@ -66,6 +73,11 @@ public final class InternalLinkType extends AbstractLinkType {
    */
   public static final String ID = "internal";
 
+  /**
+   * Maximum number of redirect pages in a chain - same as allowed by {@link LinkResolveCounter}.
+   */
+  private static final int MAX_REDIRECT_PAGES = 5;
+
   @Self
   private LinkHandlerConfig linkHandlerConfig;
   @Self
@@ -78,8 +90,17 @@ public final class InternalLinkType extends AbstractLinkType {
   private PageManager pageManager;
   @AemObject(optional = true)
   private WCMMode wcmMode;
+  @AemObject(optional = true)
+  private Page currentPage;
   @OSGiService
   private SlingSettingsService slingSettings;
+  @OSGiService(optional = true)
+  private RedirectChainCache redirectChainCache;
+  @OSGiService(optional = true)
+  private LinkValidityIndex linkValidityIndex;
+
+  // detected on first use - instances may be reused for resolving multiple links
+  private Boolean publishRunMode;
 
   /**
    * @return Link type ID (is stored as identifier in repository)
@@ -183,16 +204,26 @@ public final class InternalLinkType extends AbstractLinkType {
   /**
    * Resolves link of redirect or integrator page. Those pages contain the link reference information in their
    * content resource (jcr:content node). This information is used to resolve the link.
+   * Chains of redirect pages pointing to each other are followed up to the last redirect page first - this
+   * resolution is cached application-wide if the {@link RedirectChainCache} is available.
    * @param redirectPage Redirect or integrator page
    * @param link Link metadata
    * @return Link metadata
    */
   private Link recursiveResolveLink(Page redirectPage, Link link) {
 
-    // set link reference to content resource of redirect page, keep other parameters
+    // follow chain of redirect pages pointing to other redirect pages
+    Page targetRedirectPage = getTargetRedirectPage(redirectPage);
+    if (targetRedirectPage == null) {
+      // endless loop detected - set link to invalid link
+      link.setUrl(null);
+      return link;
+    }
+
+    // set link reference to content resource of last redirect page, keep other parameters
     LinkRequest linkRequest = link.getLinkRequest();
     LinkRequest redirectLinkRequest = new LinkRequest(
-        redirectPage.getContentResource(),
+        targetRedirectPage.getContentResource(),
         null,
         linkRequest.getLinkArgs());
 
@@ -215,6 +246,120 @@ public final class InternalLinkType extends AbstractLinkType {
     }
   }
 
+  /**
+   * Gets the last redirect page of the chain starting with the given redirect page, using the redirect chain cache
+   * if available.
+   * @param redirectPage Redirect or integrator page
+   * @return Last redirect page in chain or null if the chain is too long or contains an endless loop
+   */
+  private Page getTargetRedirectPage(final Page redirectPage) {
+    RedirectChain chain;
+    if (redirectChainCache != null) {
+      chain = redirectChainCache.get(buildRedirectChainCacheKey(redirectPage), new Supplier<RedirectChain>() {
+        @Override
+        public RedirectChain get() {
+          return resolveRedirectChain(redirectPage);
+        }
+      });
+    }
+    else {
+      chain = resolveRedirectChain(redirectPage);
+    }
+
+    String targetRedirectPagePath = chain.getTargetRedirectPagePath();
+    if (targetRedirectPagePath == null) {
+      return null;
+    }
+    if (StringUtils.equals(targetRedirectPagePath, redirectPage.getPath())) {
+      return redirectPage;
+    }
+    Page targetRedirectPage = pageManager.getPage(targetRedirectPagePath);
+    if (targetRedirectPage == null) {
+      // page was removed after resolving the chain, resolve again
+      targetRedirectPagePath = resolveRedirectChain(redirectPage).getTargetRedirectPagePath();
+      if (targetRedirectPagePath != null) {
+        targetRedirectPage = pageManager.getPage(targetRedirectPagePath);
+      }
+    }
+    return targetRedirectPage;
+  }
+
+  /**
+   * The resolution depends on the link handler configuration and the site context of the current page,
+   * because link targets are rewritten to the current site context. It depends on the user as well, because only
+   * pages the user is allowed to read are followed - so chains are never shared between users with different
+   * access rights.
+   * @param redirectPage Redirect page
+   * @return Cache key
+   */
+  private String buildRedirectChainCacheKey(Page redirectPage) {
+    StringBuilder key = new StringBuilder();
+    key.append(linkHandlerConfig.getClass().getName()).append('|').append(redirectPage.getPath());
+    Resource redirectPageResource = redirectPage.adaptTo(Resource.class);
+    if (redirectPageResource != null) {
+      key.append('|').append(redirectPageResource.getResourceResolver().getUserID());
+    }
+    if (currentPage != null) {
+      String currentPagePath = currentPage.getPath();
+      key.append('|').append(Text.getAbsoluteParent(currentPagePath, urlHandlerConfig.getSiteRootLevel(currentPagePath)));
+    }
+    return key.toString();
+  }
+
+  /**
+   * Follows the internal link references of redirect and integrator pages as long as they point to other redirect or
+   * integrator pages.
+   * @param redirectPage Redirect or integrator page
+   * @return Redirect chain with last redirect page and the paths of all involved pages
+   */
+  private RedirectChain resolveRedirectChain(Page redirectPage) {
+    Set<String> pagePaths = new LinkedHashSet<>();
+    pagePaths.add(redirectPage.getPath());
+    Page page = redirectPage;
+    int redirectPageCount = 1;
+    while (true) {
+      Page targetPage = getRedirectTargetPage(page, pagePaths);
+      if (targetPage == null
+          || !(linkHandlerConfig.isRedirect(targetPage) || urlHandlerConfig.isIntegrator(targetPage))) {
+        return new RedirectChain(page.getPath(), pagePaths);
+      }
+      redirectPageCount++;
+      if (redirectPageCount > MAX_REDIRECT_PAGES) {
+        return new RedirectChain(null, pagePaths);
+      }
+      page = targetPage;
+    }
+  }
+
+  /**
+   * Gets the target page of a redirect page, if it is an internal link.
+   * @param redirectPage Redirect page
+   * @param pagePaths Collects the paths of all pages the resolution depends on
+   * @return Target page or null if redirect page does not point to an acceptable internal link target
+   */
+  private Page getRedirectTargetPage(Page redirectPage, Set<String> pagePaths) {
+    ValueMap props = redirectPage.getProperties();
+    String linkTypeId = props.get(LinkNameConstants.PN_LINK_TYPE, String.class);
+    String targetPath = props.get(getPrimaryLinkRefProperty(), String.class);
+    if (StringUtils.isEmpty(targetPath)
+        || (StringUtils.isNotEmpty(linkTypeId) ? !StringUtils.equals(linkTypeId, ID) : !accepts(targetPath))) {
+      return null;
+    }
+    String rewrittenPath = urlHandler.rewritePathToContext(targetPath);
+    if (StringUtils.isEmpty(rewrittenPath)) {
+      return null;
+    }
+    // track path even if page does not exist, it may be created later
+    pagePaths.add(rewrittenPath);
+    Page targetPage = pageManager.getPage(rewrittenPath);
+    if (acceptPage(targetPage)) {
+      return targetPage;
+    }
+    else {
+      return null;
+    }
+  }
+
   /**
    * Check if a given page is valid and acceptable to link upon.
    * @param page Page
@@ -231,18 +376,39 @@ public final class InternalLinkType extends AbstractLinkType {
     }
 
     // check if page is valid concerning on/off-time (only in publish environment)
-    if (RunMode.isPublish(slingSettings.getRunModes()) && !page.isValid()) {
+    if (isPublishRunMode() && !isValid(page)) {
       return false;
     }
 
     // check if page is acceptable based on link handler config
-    if (!linkHandlerConfig.isValidLinkTarget(page)) {
+    if (!isValidLinkTarget(page)) {
       return false;
     }
 
     return true;
   }
 
+  private boolean isValid(Page page) {
+    if (linkValidityIndex != null) {
+      return linkValidityIndex.isValid(page);
+    }
+    return page.isValid();
+  }
+
+  private boolean isValidLinkTarget(Page page) {
+    if (linkValidityIndex != null) {
+      return linkValidityIndex.isValidLinkTarget(page, linkHandlerConfig);
+    }
+    return linkHandlerConfig.isValidLinkTarget(page);
+  }
+
+  private boolean isPublishRunMode() {
+    if (publishRunMode == null) {
+      publishRunMode = RunMode.isPublish(slingSettings.getRunModes());
+    }
+    return publishRunMode;
+  }
+
   /**
    * Returns the target page for the given internal content link reference.
    * Checks validity of page.
@@ -21,6 +21,8 @@ package io.wcm.handler.link.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import io.wcm.config.spi.ApplicationProvider;
 import io.wcm.config.spi.annotations.Application;
 import io.wcm.handler.link.Link;
@@ -108,6 +110,105 @@ public class LinkHandlerImplTest {
 
   }
 
+  /**
+   * Test that resolved links are reused within the same request
+   */
+  @Test
+  public void testLinkResolutionCache() {
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+
+    SyntheticLinkResource linkResource = new SyntheticLinkResource(context.resourceResolver(),
+        ImmutableValueMap.builder()
+        .put(LinkNameConstants.PN_LINK_TYPE, "dummy")
+        .put("dummyLinkRef", "/path1")
+        .build());
+    LinkRequest linkRequest = new LinkRequest(linkResource, null, new LinkArgs().urlMode(UrlModes.DEFAULT));
+    Link link1 = linkHandler.get(linkRequest).build();
+    Link link2 = linkHandler.get(linkRequest).build();
+    Link link3 = linkHandler.get(linkRequest).selectors("sel1").build();
+
+    assertEquals("http://xyz/path1/pre1/post1", link1.getUrl());
+    assertEquals(link1.getUrl(), link2.getUrl());
+    assertEquals(link1.getAnchor().getHRef(), link2.getAnchor().getHRef());
+    assertNotSame(link1.getAnchor(), link2.getAnchor());
+    assertEquals(true, link3.isValid());
+
+    if (adaptable() instanceof SlingHttpServletRequest) {
+      LinkResolutionCache cache = (LinkResolutionCache)context.request().getAttribute(LinkResolutionCache.REQUEST_ATTRIBUTE);
+      assertEquals(1, cache.getHitCount());
+      assertEquals(2, cache.getMissCount());
+      assertEquals(2, cache.getSize());
+    }
+  }
+
+  /**
+   * Test that link resources with equal link-relevant properties share cached links
+   */
+  @Test
+  public void testLinkResolutionCache_EqualProperties() {
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+
+    LinkRequest linkRequest1 = new LinkRequest(new SyntheticLinkResource(context.resourceResolver(),
+        ImmutableValueMap.builder()
+        .put(LinkNameConstants.PN_LINK_TYPE, "dummy")
+        .put("dummyLinkRef", "/path1")
+        .put("values", new String[] {
+            "a", "b"
+        })
+        .put("jcr:lastModifiedBy", "user1")
+        .build()), null, null);
+    LinkRequest linkRequest2 = new LinkRequest(new SyntheticLinkResource(context.resourceResolver(),
+        ImmutableValueMap.builder()
+        .put(LinkNameConstants.PN_LINK_TYPE, "dummy")
+        .put("dummyLinkRef", "/path1")
+        .put("values", new String[] {
+            "a", "b"
+        })
+        .put("jcr:lastModifiedBy", "user2")
+        .build()), null, null);
+    Link link1 = linkHandler.get(linkRequest1).build();
+    Link link2 = linkHandler.get(linkRequest2).build();
+
+    assertEquals("http://xyz/path1/pre1/post1", link2.getUrl());
+    assertSame(linkRequest1.getResource(), link1.getLinkRequest().getResource());
+    assertSame(linkRequest2.getResource(), link2.getLinkRequest().getResource());
+
+    if (adaptable() instanceof SlingHttpServletRequest) {
+      LinkResolutionCache cache = (LinkResolutionCache)context.request().getAttribute(LinkResolutionCache.REQUEST_ATTRIBUTE);
+      assertEquals(1, cache.getHitCount());
+      assertEquals(1, cache.getSize());
+    }
+  }
+
+  /**
+   * Test resolving multiple links at once
+   */
+  @Test
+  public void testGetAll() {
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+
+    List<LinkRequest> linkRequests = ImmutableList.of(
+        new LinkRequest(new SyntheticLinkResource(context.resourceResolver(),
+            ImmutableValueMap.of(LinkNameConstants.PN_LINK_TYPE, "dummy", "dummyLinkRef", "/path1")), null, null),
+        new LinkRequest(new SyntheticLinkResource(context.resourceResolver(),
+            ImmutableValueMap.of(LinkNameConstants.PN_LINK_TYPE, "dummy", "dummyLinkRef", "/path2")), null,
+            new LinkArgs().urlMode(UrlModes.DEFAULT)));
+    List<Link> links = linkHandler.getAll(linkRequests);
+
+    assertEquals(2, links.size());
+    assertEquals("http://xyz/path1/pre1/post1", links.get(0).getUrl());
+    assertEquals("http://xyz/path2/pre1/post1", links.get(1).getUrl());
+
+    // make sure initial link arguments are unmodified
+    assertEquals(UrlModes.DEFAULT, linkRequests.get(1).getLinkArgs().getUrlMode());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetAllNull() {
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+    linkHandler.getAll(null);
+  }
+
 
   public static class TestApplicationProvider implements ApplicationProvider {
 
@@ -0,0 +1,81 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import io.wcm.handler.link.LinkHandler;
+import io.wcm.handler.link.testcontext.AppAemContext;
+import io.wcm.handler.link.testcontext.DummyAppTemplate;
+import io.wcm.handler.link.type.InternalLinkType;
+import io.wcm.sling.commons.adapter.AdaptTo;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.day.cq.wcm.api.Page;
+
+/**
+ * Test {@link LinkHandlerInstrumentation}.
+ */
+public class LinkHandlerInstrumentationTest {
+
+  @Rule
+  public final AemContext context = AppAemContext.newAemContext();
+
+  @Test
+  public void testDisabled() {
+    LinkHandlerInstrumentation underTest = context.registerInjectActivateService(new LinkHandlerInstrumentation());
+    assertFalse(underTest.isEnabled());
+    assertNull(underTest.start());
+  }
+
+  @Test
+  public void testStatistics() throws Exception {
+    LinkHandlerInstrumentation underTest = context.registerInjectActivateService(new LinkHandlerInstrumentation(),
+        ImmutableValueMap.of(LinkHandlerInstrumentation.PROPERTY_ENABLED, true,
+            LinkHandlerInstrumentation.PROPERTY_SLOW_THRESHOLD_MILLIS, -1L));
+
+    Page targetPage = context.create().page("/content/unittest/de_test/brand/de/section/content",
+        DummyAppTemplate.CONTENT.getTemplatePath());
+    LinkHandler linkHandler = AdaptTo.notNull(context.currentResource(), LinkHandler.class);
+    linkHandler.get(targetPage).build();
+
+    JSONObject json = underTest.toJson();
+    JSONObject internal = json.getJSONObject("linkTypes").getJSONObject(InternalLinkType.ID);
+    assertEquals(1, internal.getJSONObject("total").getLong("count"));
+    assertEquals(1, internal.getJSONObject("phases").getJSONObject("resolve").getLong("count"));
+
+    JSONArray slowestReferences = json.getJSONArray("slowestReferences");
+    assertEquals(1, slowestReferences.length());
+    assertEquals(targetPage.getPath(), slowestReferences.getJSONObject(0).getString("reference"));
+    assertEquals(1, underTest.getSlowestReferences().length);
+
+    underTest.reset();
+    assertEquals(0, underTest.toJson().getJSONObject("linkTypes").length());
+    assertEquals(0, underTest.getSlowestReferences().length);
+  }
+
+}
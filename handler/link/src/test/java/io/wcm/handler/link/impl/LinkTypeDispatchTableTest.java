@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.wcm.handler.link.LinkNameConstants;
+import io.wcm.handler.link.LinkRequest;
+import io.wcm.handler.link.SyntheticLinkResource;
+import io.wcm.handler.link.spi.LinkType;
+import io.wcm.handler.link.type.ExternalLinkType;
+import io.wcm.handler.link.type.InternalLinkType;
+import io.wcm.handler.link.type.MediaLinkType;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.day.cq.wcm.api.Page;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Test {@link LinkTypeDispatchTable}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LinkTypeDispatchTableTest {
+
+  private static final List<Class<? extends LinkType>> BUILT_IN_LINK_TYPES = ImmutableList.<Class<? extends LinkType>>of(
+      InternalLinkType.class,
+      ExternalLinkType.class,
+      MediaLinkType.class);
+
+  @Mock
+  private ResourceResolver resourceResolver;
+  @Mock
+  private LinkTypeDispatchTable.LinkTypeProvider linkTypeProvider;
+  @Mock
+  private LinkType linkType;
+  @Mock
+  private Page page;
+
+  private LinkTypeDispatchTable underTest;
+
+  @Before
+  public void setUp() {
+    underTest = new LinkTypeDispatchTable(BUILT_IN_LINK_TYPES);
+  }
+
+  @Test
+  public void testLinkTypeId() {
+    assertEquals(0, underTest.detect(linkRequest(ImmutableValueMap.of(
+        LinkNameConstants.PN_LINK_TYPE, InternalLinkType.ID)), linkTypeProvider));
+    assertEquals(1, underTest.detect(linkRequest(ImmutableValueMap.of(
+        LinkNameConstants.PN_LINK_TYPE, ExternalLinkType.ID)), linkTypeProvider));
+    assertEquals(2, underTest.detect(linkRequest(ImmutableValueMap.of(
+        LinkNameConstants.PN_LINK_TYPE, MediaLinkType.ID)), linkTypeProvider));
+    assertEquals(-1, underTest.detect(linkRequest(ImmutableValueMap.of(
+        LinkNameConstants.PN_LINK_TYPE, "unknown")), linkTypeProvider));
+    verify(linkTypeProvider, never()).get(anyInt());
+  }
+
+  @Test
+  public void testLinkRef() {
+    assertEquals(0, underTest.detect(linkRequest(ImmutableValueMap.of(
+        LinkNameConstants.PN_LINK_CONTENT_REF, "/content/page1")), linkTypeProvider));
+    assertEquals(1, underTest.detect(linkRequest(ImmutableValueMap.of(
+        LinkNameConstants.PN_LINK_EXTERNAL_REF, "http://xyz")), linkTypeProvider));
+    assertEquals(2, underTest.detect(linkRequest(ImmutableValueMap.of(
+        LinkNameConstants.PN_LINK_MEDIA_REF, "/content/dam/asset1.jpg")), linkTypeProvider));
+    assertEquals(-1, underTest.detect(linkRequest(ImmutableValueMap.of(
+        LinkNameConstants.PN_LINK_CONTENT_REF, "/content/dam/asset1.jpg")), linkTypeProvider));
+    verify(linkTypeProvider, never()).get(anyInt());
+  }
+
+  @Test
+  public void testPage() {
+    LinkType internalLinkType = linkType;
+    when(linkTypeProvider.get(0)).thenReturn(internalLinkType);
+    LinkRequest linkRequest = new LinkRequest(null, page, null);
+
+    when(internalLinkType.accepts(linkRequest)).thenReturn(true);
+    assertEquals(0, underTest.detect(linkRequest, linkTypeProvider));
+
+    when(internalLinkType.accepts(linkRequest)).thenReturn(false);
+    assertEquals(-1, underTest.detect(linkRequest, linkTypeProvider));
+  }
+
+  @Test
+  public void testCustomLinkType() {
+    underTest = new LinkTypeDispatchTable(ImmutableList.<Class<? extends LinkType>>of(
+        InternalLinkType.class,
+        LinkType.class,
+        ExternalLinkType.class));
+    when(linkTypeProvider.get(1)).thenReturn(linkType);
+
+    LinkRequest linkRequest = linkRequest(ImmutableValueMap.of(LinkNameConstants.PN_LINK_EXTERNAL_REF, "http://xyz"));
+    when(linkType.accepts(linkRequest)).thenReturn(true);
+    assertEquals(1, underTest.detect(linkRequest, linkTypeProvider));
+
+    when(linkType.accepts(linkRequest)).thenReturn(false);
+    assertEquals(2, underTest.detect(linkRequest, linkTypeProvider));
+
+    // custom link type is not consulted if a previous built-in link type accepts
+    linkRequest = linkRequest(ImmutableValueMap.of(LinkNameConstants.PN_LINK_CONTENT_REF, "/content/page1"));
+    assertEquals(0, underTest.detect(linkRequest, linkTypeProvider));
+    verify(linkType, never()).accepts(linkRequest);
+  }
+
+  private LinkRequest linkRequest(Map<String, Object> props) {
+    return new LinkRequest(new SyntheticLinkResource(resourceResolver, props), null, null);
+  }
+
+}
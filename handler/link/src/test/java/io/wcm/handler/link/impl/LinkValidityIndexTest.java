@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.wcm.handler.link.spi.LinkHandlerConfig;
+import io.wcm.handler.link.testcontext.AppAemContext;
+import io.wcm.handler.link.testcontext.DummyAppTemplate;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+
+import java.util.Calendar;
+
+import org.apache.sling.api.SlingConstants;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.osgi.service.event.Event;
+
+import com.day.cq.wcm.api.NameConstants;
+import com.day.cq.wcm.api.Page;
+
+/**
+ * Test {@link LinkValidityIndex}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LinkValidityIndexTest {
+
+  private static final String SECTION_PATH = "/content/unittest/de_test/brand/de/section";
+  private static final long ONE_HOUR = 60 * 60 * 1000;
+
+  @Rule
+  public final AemContext context = AppAemContext.newAemContext();
+
+  @Mock
+  private LinkHandlerConfig linkHandlerConfig;
+
+  private LinkValidityIndex underTest;
+
+  @Before
+  public void setUp() {
+    underTest = context.getService(LinkValidityIndex.class);
+  }
+
+  @Test
+  public void testIsValid() {
+    Page page = context.create().page(SECTION_PATH + "/page", DummyAppTemplate.CONTENT.getTemplatePath());
+    assertTrue(underTest.isValid(page));
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testIsValid_OffTimeExpired() {
+    Page page = context.create().page(SECTION_PATH + "/page", DummyAppTemplate.CONTENT.getTemplatePath(),
+        ImmutableValueMap.of(NameConstants.PN_OFF_TIME, time(-ONE_HOUR)));
+    assertFalse(underTest.isValid(page));
+  }
+
+  @Test
+  public void testIsValid_OnTimeTransition() {
+    // both transitions have to be within the expiry time to be scheduled
+    underTest = context.registerInjectActivateService(new LinkValidityIndex(),
+        ImmutableValueMap.of(LinkValidityIndex.PROPERTY_EXPIRE_SECONDS, 4 * 60 * 60));
+
+    long now = System.currentTimeMillis();
+    Page page = context.create().page(SECTION_PATH + "/page", DummyAppTemplate.CONTENT.getTemplatePath(),
+        ImmutableValueMap.of(NameConstants.PN_ON_TIME, time(ONE_HOUR),
+            NameConstants.PN_OFF_TIME, time(2 * ONE_HOUR)));
+    assertFalse(underTest.isValid(page));
+
+    underTest.applyTransitions(now + ONE_HOUR + 1000);
+    assertTrue(underTest.isValid(page));
+
+    underTest.applyTransitions(now + 2 * ONE_HOUR + 1000);
+    assertFalse(underTest.isValid(page));
+  }
+
+  @Test
+  public void testIsValidLinkTarget() {
+    Page page = context.create().page(SECTION_PATH + "/page", DummyAppTemplate.CONTENT.getTemplatePath());
+    when(linkHandlerConfig.isValidLinkTarget(page)).thenReturn(false);
+
+    assertFalse(underTest.isValidLinkTarget(page, linkHandlerConfig));
+    assertFalse(underTest.isValidLinkTarget(page, linkHandlerConfig));
+    verify(linkHandlerConfig, times(1)).isValidLinkTarget(page);
+
+    // change on page content resets index entry
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, page.getPath() + "/jcr:content"));
+    assertEquals(0, underTest.getSize());
+
+    assertFalse(underTest.isValidLinkTarget(page, linkHandlerConfig));
+    verify(linkHandlerConfig, times(2)).isValidLinkTarget(page);
+  }
+
+  @Test
+  public void testInvalidateOnRemovedAncestor() {
+    Page page = context.create().page(SECTION_PATH + "/page", DummyAppTemplate.CONTENT.getTemplatePath());
+    underTest.isValid(page);
+
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, SECTION_PATH + "/jcr:content"));
+    assertEquals(1, underTest.getSize());
+
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, SECTION_PATH));
+    assertEquals(0, underTest.getSize());
+  }
+
+  @Test
+  public void testInvalidateOnRemovedAncestor_SiblingsKept() {
+    Page page1 = context.create().page(SECTION_PATH + "/page1", DummyAppTemplate.CONTENT.getTemplatePath());
+    Page page2 = context.create().page(SECTION_PATH + "/page1/page2", DummyAppTemplate.CONTENT.getTemplatePath());
+    Page page3 = context.create().page(SECTION_PATH + "/page10", DummyAppTemplate.CONTENT.getTemplatePath());
+    underTest.isValid(page1);
+    underTest.isValid(page2);
+    underTest.isValid(page3);
+
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, SECTION_PATH + "/page1"));
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testNoInvalidateOutsideContent() {
+    Page page = context.create().page(SECTION_PATH + "/page", DummyAppTemplate.CONTENT.getTemplatePath());
+    underTest.isValid(page);
+
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, "/var/audit"));
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, "/"));
+    assertEquals(1, underTest.getSize());
+  }
+
+  private static Calendar time(long offset) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(System.currentTimeMillis() + offset);
+    return calendar;
+  }
+
+  private static Event event(String topic, String path) {
+    return new Event(topic, ImmutableValueMap.of(SlingConstants.PROPERTY_PATH, path));
+  }
+
+}
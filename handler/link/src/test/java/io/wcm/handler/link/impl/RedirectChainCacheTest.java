@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import static org.junit.Assert.assertEquals;
+import io.wcm.handler.link.LinkHandler;
+import io.wcm.handler.link.LinkNameConstants;
+import io.wcm.handler.link.impl.RedirectChainCache.RedirectChain;
+import io.wcm.handler.link.testcontext.AppAemContext;
+import io.wcm.handler.link.testcontext.DummyAppTemplate;
+import io.wcm.handler.link.type.InternalLinkType;
+import io.wcm.sling.commons.adapter.AdaptTo;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+
+import java.util.Map;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+import com.day.cq.wcm.api.Page;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Test {@link RedirectChainCache} in combination with {@link InternalLinkType}.
+ */
+public class RedirectChainCacheTest {
+
+  private static final String SECTION_PATH = "/content/unittest/de_test/brand/de/section";
+
+  @Rule
+  public final AemContext context = AppAemContext.newAemContext();
+
+  private RedirectChainCache underTest;
+  private LinkHandler linkHandler;
+  private Page redirect1Page;
+  private Page redirect2Page;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = context.getService(RedirectChainCache.class);
+
+    context.currentPage(context.create().page(SECTION_PATH + "/page", DummyAppTemplate.CONTENT.getTemplatePath()));
+    context.create().page(SECTION_PATH + "/target1", DummyAppTemplate.CONTENT.getTemplatePath());
+    context.create().page(SECTION_PATH + "/target2", DummyAppTemplate.CONTENT.getTemplatePath());
+
+    // chain of redirect pages: redirect1 -> redirect2 -> redirect3 -> target1
+    context.create().page(SECTION_PATH + "/redirect3", DummyAppTemplate.REDIRECT.getTemplatePath(),
+        redirectProps(SECTION_PATH + "/target1"));
+    redirect2Page = context.create().page(SECTION_PATH + "/redirect2", DummyAppTemplate.REDIRECT.getTemplatePath(),
+        redirectProps(SECTION_PATH + "/redirect3"));
+    redirect1Page = context.create().page(SECTION_PATH + "/redirect1", DummyAppTemplate.REDIRECT.getTemplatePath(),
+        redirectProps(SECTION_PATH + "/redirect2"));
+
+    // use resource as adaptable to bypass the per-request link cache
+    linkHandler = AdaptTo.notNull(context.currentResource(), LinkHandler.class);
+  }
+
+  @Test
+  public void testCachedChain() {
+    assertEquals("http://www.dummysite.org" + SECTION_PATH + "/target1.html", linkHandler.get(redirect1Page).buildUrl());
+    assertEquals(1, underTest.getSize());
+
+    // change within chain is not visible without change event
+    changeRedirectTarget(redirect2Page, SECTION_PATH + "/target2");
+    assertEquals("http://www.dummysite.org" + SECTION_PATH + "/target1.html", linkHandler.get(redirect1Page).buildUrl());
+  }
+
+  @Test
+  public void testInvalidateOnChangeInChain() {
+    assertEquals("http://www.dummysite.org" + SECTION_PATH + "/target1.html", linkHandler.get(redirect1Page).buildUrl());
+
+    changeRedirectTarget(redirect2Page, SECTION_PATH + "/target2");
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, redirect2Page.getPath() + "/jcr:content"));
+
+    assertEquals(0, underTest.getSize());
+    assertEquals("http://www.dummysite.org" + SECTION_PATH + "/target2.html", linkHandler.get(redirect1Page).buildUrl());
+  }
+
+  @Test
+  public void testNoInvalidateOnUnrelatedChange() {
+    linkHandler.get(redirect1Page).buildUrl();
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, SECTION_PATH + "/target2/jcr:content"));
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, SECTION_PATH + "/target2/jcr:content/par"));
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testInvalidateOnRemovedAncestor() {
+    linkHandler.get(redirect1Page).buildUrl();
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, SECTION_PATH));
+    assertEquals(1, underTest.getSize());
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, SECTION_PATH));
+    assertEquals(0, underTest.getSize());
+  }
+
+  @Test
+  public void testNoInvalidateOutsideContent() {
+    linkHandler.get(redirect1Page).buildUrl();
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, "/var/audit"));
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, "/"));
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testNotCachedIfInvalidatedWhileResolving() {
+    underTest.get("key1", new Supplier<RedirectChain>() {
+      @Override
+      public RedirectChain get() {
+        // dependencies of a resolution in progress are not known yet
+        underTest.invalidate(SECTION_PATH + "/target1", false);
+        return new RedirectChain(SECTION_PATH + "/target1", ImmutableSet.of(SECTION_PATH + "/target1"));
+      }
+    });
+    assertEquals(0, underTest.getSize());
+
+    underTest.invalidate(SECTION_PATH + "/target1", false);
+    underTest.get("key1", new Supplier<RedirectChain>() {
+      @Override
+      public RedirectChain get() {
+        return new RedirectChain(SECTION_PATH + "/target1", ImmutableSet.of(SECTION_PATH + "/target1"));
+      }
+    });
+    assertEquals(1, underTest.getSize());
+  }
+
+  private static Map<String, Object> redirectProps(String targetPath) {
+    return ImmutableValueMap.of(
+        LinkNameConstants.PN_LINK_TYPE, InternalLinkType.ID,
+        LinkNameConstants.PN_LINK_CONTENT_REF, targetPath);
+  }
+
+  private void changeRedirectTarget(Page redirectPage, String targetPath) {
+    ModifiableValueMap props = redirectPage.getContentResource().adaptTo(ModifiableValueMap.class);
+    props.put(LinkNameConstants.PN_LINK_CONTENT_REF, targetPath);
+  }
+
+  private static Event event(String topic, String path) {
+    return new Event(topic, ImmutableValueMap.of(SlingConstants.PROPERTY_PATH, path));
+  }
+
+}
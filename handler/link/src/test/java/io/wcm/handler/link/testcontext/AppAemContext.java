@@ -22,6 +22,8 @@ package io.wcm.handler.link.testcontext;
 import io.wcm.config.spi.ApplicationProvider;
 import io.wcm.config.spi.ConfigurationFinderStrategy;
 import io.wcm.config.spi.ParameterProvider;
+import io.wcm.handler.link.impl.LinkValidityIndex;
+import io.wcm.handler.link.impl.RedirectChainCache;
 import io.wcm.handler.media.format.impl.MediaFormatProviderManagerImpl;
 import io.wcm.handler.url.UrlParams;
 import io.wcm.handler.url.impl.UrlHandlerParameterProviderImpl;
@@ -109,6 +111,12 @@ public final class AppAemContext {
       // media formats
       context.registerInjectActivateService(new MediaFormatProviderManagerImpl());
 
+      // redirect chain cache
+      context.registerInjectActivateService(new RedirectChainCache());
+
+      // link validity index
+      context.registerInjectActivateService(new LinkValidityIndex());
+
       // sling models registration
       context.addModelsForPackage("io.wcm.handler.url");
       context.addModelsForPackage("io.wcm.handler.media");
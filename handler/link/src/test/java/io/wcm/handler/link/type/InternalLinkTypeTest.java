@@ -25,6 +25,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import io.wcm.handler.link.Link;
+import io.wcm.handler.link.LinkArgs;
 import io.wcm.handler.link.LinkHandler;
 import io.wcm.handler.link.LinkNameConstants;
 import io.wcm.handler.link.SyntheticLinkResource;
@@ -39,6 +40,8 @@ import io.wcm.sling.commons.resource.ImmutableValueMap;
 import io.wcm.testing.mock.aem.junit.AemContext;
 import io.wcm.wcm.commons.contenttype.FileExtension;
 
+import java.util.List;
+
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.Adaptable;
 import org.apache.sling.api.resource.Resource;
@@ -49,6 +52,7 @@ import org.junit.Test;
 
 import com.day.cq.wcm.api.Page;
 import com.day.cq.wcm.api.WCMMode;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Test {@link InternalLinkType} methods.
@@ -202,6 +206,23 @@ public class InternalLinkTypeTest {
     assertNotNull("anchor", link.getAnchor());
   }
 
+  @Test
+  public void testGetAllPages() {
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+
+    Page secureTargetPage = context.create().page("/content/unittest/de_test/brand/de/section/contentSecure",
+        DummyAppTemplate.CONTENT_SECURE.getTemplatePath());
+
+    List<Link> links = linkHandler.getAll(ImmutableList.of(targetPage, secureTargetPage),
+        new LinkArgs().selectors("sel1"));
+
+    assertEquals(2, links.size());
+    assertEquals("link url", "http://www.dummysite.org/content/unittest/de_test/brand/de/section/content.sel1.html",
+        links.get(0).getUrl());
+    assertEquals("link url", "https://www.dummysite.org/content/unittest/de_test/brand/de/section/contentSecure.sel1.html",
+        links.get(1).getUrl());
+  }
+
   @Test
   public void testRedirectInternal() throws Exception {
     LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
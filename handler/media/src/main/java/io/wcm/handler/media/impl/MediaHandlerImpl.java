@@ -20,6 +20,7 @@
 package io.wcm.handler.media.impl;
 
 import io.wcm.handler.commons.dom.HtmlElement;
+import io.wcm.handler.commons.instrumentation.AbstractHandlerInstrumentation;
 import io.wcm.handler.media.Media;
 import io.wcm.handler.media.MediaArgs;
 import io.wcm.handler.media.MediaBuilder;
@@ -28,6 +29,7 @@ import io.wcm.handler.media.MediaInvalidReason;
 import io.wcm.handler.media.MediaRequest;
 import io.wcm.handler.media.format.MediaFormat;
 import io.wcm.handler.media.format.MediaFormatHandler;
+import io.wcm.handler.media.impl.MediaHandlerInstrumentation.Phase;
 import io.wcm.handler.media.spi.MediaHandlerConfig;
 import io.wcm.handler.media.spi.MediaMarkupBuilder;
 import io.wcm.handler.media.spi.MediaProcessor;
@@ -40,7 +42,9 @@ import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.Adaptable;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.annotations.injectorspecific.OSGiService;
 import org.apache.sling.models.annotations.injectorspecific.Self;
+import org.apache.sling.models.annotations.injectorspecific.SlingObject;
 
 /**
  * Default Implementation of a {@link MediaHandler}.
@@ -57,6 +61,12 @@ public final class MediaHandlerImpl implements MediaHandler {
   @Self
   private MediaFormatHandler mediaFormatHandler;
 
+  // optional injections (only available if called inside a request or instrumentation is active)
+  @SlingObject(optional = true)
+  private SlingHttpServletRequest request;
+  @OSGiService(optional = true)
+  private MediaHandlerInstrumentation instrumentation;
+
   @Override
   public MediaBuilder get(Resource resource) {
     return new MediaBuilderImpl(resource, this);
@@ -98,6 +108,7 @@ public final class MediaHandlerImpl implements MediaHandler {
    * @return Media metadata (never null)
    */
   Media processRequest(final MediaRequest mediaRequest) {
+    AbstractHandlerInstrumentation.Timer timer = instrumentation != null ? instrumentation.start() : null;
 
     // resolve media format names to media formats
     resolveMediaFormats(mediaRequest.getMediaArgs());
@@ -116,6 +127,9 @@ public final class MediaHandlerImpl implements MediaHandler {
       }
     }
     Media media = new Media(mediaSource, mediaRequest);
+    if (timer != null) {
+      timer.phase(Phase.SOURCE_DETECTION);
+    }
 
     // preprocess media request before resolving
     List<Class<? extends MediaProcessor>> mediaPreProcessors = mediaHandlerConfig.getPreProcessors();
@@ -128,6 +142,9 @@ public final class MediaHandlerImpl implements MediaHandler {
         }
       }
     }
+    if (timer != null) {
+      timer.phase(Phase.PRE_PROCESS);
+    }
 
     // resolve media request
     if (mediaSource != null) {
@@ -139,6 +156,9 @@ public final class MediaHandlerImpl implements MediaHandler {
     else {
       media.setMediaInvalidReason(MediaInvalidReason.NO_MEDIA_SOURCE);
     }
+    if (timer != null) {
+      timer.phase(Phase.RESOLVE);
+    }
 
     // generate markup (if markup builder is available) - first accepting wins
     List<Class<? extends MediaMarkupBuilder>> mediaMarkupBuilders = mediaHandlerConfig.getMarkupBuilders();
@@ -151,6 +171,9 @@ public final class MediaHandlerImpl implements MediaHandler {
         }
       }
     }
+    if (timer != null) {
+      timer.phase(Phase.MARKUP);
+    }
 
     // postprocess media request after resolving
     List<Class<? extends MediaProcessor>> mediaPostProcessors = mediaHandlerConfig.getPostProcessors();
@@ -163,10 +186,29 @@ public final class MediaHandlerImpl implements MediaHandler {
         }
       }
     }
+    if (timer != null) {
+      timer.phase(Phase.POST_PROCESS);
+      instrumentation.record(timer, mediaSource != null ? mediaSource.getId() : null, getReference(mediaRequest),
+          request);
+    }
 
     return media;
   }
 
+  /**
+   * @param mediaRequest Media request
+   * @return Media reference for instrumentation
+   */
+  private static String getReference(MediaRequest mediaRequest) {
+    if (mediaRequest.getMediaRef() != null) {
+      return mediaRequest.getMediaRef();
+    }
+    if (mediaRequest.getResource() != null) {
+      return mediaRequest.getResource().getPath();
+    }
+    return null;
+  }
+
   @Override
   public boolean isValidElement(HtmlElement<?> element) {
 
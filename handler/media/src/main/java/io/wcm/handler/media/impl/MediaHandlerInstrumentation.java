@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.media.impl;
+
+import io.wcm.handler.commons.instrumentation.AbstractHandlerInstrumentation;
+import io.wcm.handler.commons.instrumentation.HandlerInstrumentationMBean;
+
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Service;
+import org.osgi.service.component.ComponentContext;
+
+/**
+ * Optional instrumentation of the media handler. Records the time spent in each phase of the media resolution
+ * per media source, and logs media references that take longer than a configurable threshold.
+ * The statistics are exposed via JMX and {@link MediaHandlerInstrumentationConsolePlugin}.
+ */
+@Component(immediate = true, metatype = true,
+label = "wcm.io Media Handler Instrumentation",
+description = "Records timing statistics of media resolution for diagnostic purposes.")
+@Service({
+  MediaHandlerInstrumentation.class, HandlerInstrumentationMBean.class
+})
+@Properties({
+  @Property(name = "jmx.objectname", value = "io.wcm.handler.media:type=MediaHandlerInstrumentation", propertyPrivate = true),
+  @Property(name = AbstractHandlerInstrumentation.PROPERTY_ENABLED,
+      boolValue = AbstractHandlerInstrumentation.DEFAULT_ENABLED,
+      label = "Enabled", description = "Record media resolution timings."),
+  @Property(name = AbstractHandlerInstrumentation.PROPERTY_SLOW_THRESHOLD_MILLIS,
+      longValue = AbstractHandlerInstrumentation.DEFAULT_SLOW_THRESHOLD_MILLIS,
+      label = "Slow threshold",
+      description = "Media requests taking longer than this time in milliseconds are logged as slow references."),
+  @Property(name = AbstractHandlerInstrumentation.PROPERTY_SLOW_LOG_PER_REQUEST,
+      intValue = AbstractHandlerInstrumentation.DEFAULT_SLOW_LOG_PER_REQUEST,
+      label = "Slow references per request",
+      description = "Maximum number of slow references logged per request."),
+  @Property(name = AbstractHandlerInstrumentation.PROPERTY_SLOWEST_SIZE,
+      intValue = AbstractHandlerInstrumentation.DEFAULT_SLOWEST_SIZE,
+      label = "Slowest references",
+      description = "Number of slowest references kept for the status report.")
+})
+public final class MediaHandlerInstrumentation extends AbstractHandlerInstrumentation {
+
+  /**
+   * Phases of media resolution.
+   */
+  enum Phase {
+    SOURCE_DETECTION,
+    PRE_PROCESS,
+    RESOLVE,
+    MARKUP,
+    POST_PROCESS
+  }
+
+  /**
+   * Instrumentation with default configuration.
+   */
+  public MediaHandlerInstrumentation() {
+    super("media", "mediaSource", Phase.values());
+  }
+
+  @Activate
+  void activate(ComponentContext componentContext) {
+    configure(componentContext.getProperties());
+  }
+
+}
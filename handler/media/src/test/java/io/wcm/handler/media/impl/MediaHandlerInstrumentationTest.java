@@ -0,0 +1,72 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.media.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import io.wcm.handler.commons.instrumentation.AbstractHandlerInstrumentation;
+import io.wcm.handler.media.impl.MediaHandlerInstrumentation.Phase;
+import io.wcm.handler.media.testcontext.AppAemContext;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+
+import org.apache.sling.commons.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Test {@link MediaHandlerInstrumentation}.
+ */
+public class MediaHandlerInstrumentationTest {
+
+  @Rule
+  public final AemContext context = AppAemContext.newAemContext();
+
+  @Test
+  public void testDisabled() {
+    MediaHandlerInstrumentation underTest = context.registerInjectActivateService(new MediaHandlerInstrumentation());
+    assertFalse(underTest.isEnabled());
+    assertNull(underTest.start());
+  }
+
+  @Test
+  public void testStatistics() throws Exception {
+    MediaHandlerInstrumentation underTest = context.registerInjectActivateService(new MediaHandlerInstrumentation(),
+        ImmutableValueMap.of(MediaHandlerInstrumentation.PROPERTY_ENABLED, true,
+            MediaHandlerInstrumentation.PROPERTY_SLOW_THRESHOLD_MILLIS, 1000L));
+
+    AbstractHandlerInstrumentation.Timer timer = underTest.start();
+    for (Phase phase : Phase.values()) {
+      timer.phase(phase);
+    }
+    underTest.record(timer, "dam", "/content/dam/test/image1.jpg", context.request());
+    underTest.record(underTest.start(), null, null, null);
+
+    JSONObject json = underTest.toJson();
+    assertEquals(1, json.getJSONObject("mediaSources").getJSONObject("dam").getJSONObject("total").getLong("count"));
+    assertEquals(1, json.getJSONObject("mediaSources").getJSONObject(AbstractHandlerInstrumentation.NO_CATEGORY)
+        .getJSONObject("phases").getJSONObject("markup").getLong("count"));
+
+    // below threshold
+    assertEquals(0, json.getJSONArray("slowestReferences").length());
+  }
+
+}
@@ -22,6 +22,8 @@ package io.wcm.handler.richtext;
 import io.wcm.handler.media.MediaArgs;
 import io.wcm.handler.url.UrlMode;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 
 import org.jdom2.Content;
@@ -66,6 +68,14 @@ public interface RichTextBuilder {
    */
   String buildMarkup();
 
+  /**
+   * Build formatted markup and write it to the given writer.
+   * If possible, the rich text is rewritten in streaming mode without building a DOM tree for the whole text.
+   * @param writer Writer for the formatted markup. Nothing is written if the rich text is invalid or empty.
+   * @throws IOException Is thrown if writing the markup failed
+   */
+  void buildMarkup(Writer writer) throws IOException;
+
   /**
    * Build formatted markup as DOM elements.
    * @return DOM elements or empty collection if invalid or empty.
@@ -26,6 +26,8 @@ import io.wcm.handler.richtext.RichTextRequest;
 import io.wcm.handler.richtext.TextMode;
 import io.wcm.handler.url.UrlMode;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 
 import org.apache.sling.api.resource.Resource;
@@ -82,9 +84,11 @@ final class RichTextBuilderImpl implements RichTextBuilder {
 
   @Override
   public RichText build() {
-    RichTextRequest request = new RichTextRequest(this.resource, this.text, this.urlMode,
-        this.textMode, this.mediaArgs);
-    return this.richTextHandler.processRequest(request);
+    return this.richTextHandler.processRequest(buildRequest());
+  }
+
+  private RichTextRequest buildRequest() {
+    return new RichTextRequest(this.resource, this.text, this.urlMode, this.textMode, this.mediaArgs);
   }
 
   @Override
@@ -92,6 +96,11 @@ final class RichTextBuilderImpl implements RichTextBuilder {
     return build().getMarkup();
   }
 
+  @Override
+  public void buildMarkup(Writer writer) throws IOException {
+    this.richTextHandler.writeMarkup(buildRequest(), writer);
+  }
+
   @Override
   public Collection<Content> buildContent() {
     return build().getContent();
@@ -0,0 +1,149 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.richtext.impl;
+
+import io.wcm.handler.commons.caching.AbstractDependencyCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.SlingConstants;
+import org.jdom2.Content;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+import com.day.cq.wcm.api.PageEvent;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Application-wide cache for rich text fragments rewritten by {@link RichTextHandlerImpl}.
+ * Each cached fragment remembers the path of the page or asset containing the text, and the paths of all link and
+ * media targets referenced in it - including targets that did not exist at rewrite time, see
+ * {@link AbstractDependencyCache} for the invalidation rules.
+ */
+@Component(immediate = true, metatype = true,
+label = "wcm.io Rich Text Handler Fragment Cache",
+description = "Caches rich text fragments with rewritten links and images.")
+@Service({
+  RichTextFragmentCache.class, EventHandler.class
+})
+@Properties({
+  @Property(name = EventConstants.EVENT_TOPIC, value = {
+      PageEvent.EVENT_TOPIC,
+      SlingConstants.TOPIC_RESOURCE_ADDED,
+      SlingConstants.TOPIC_RESOURCE_CHANGED,
+      SlingConstants.TOPIC_RESOURCE_REMOVED
+  }, propertyPrivate = true),
+  @Property(name = AbstractDependencyCache.PROPERTY_ENABLED, boolValue = AbstractDependencyCache.DEFAULT_ENABLED,
+      label = "Enabled", description = "Switch to enable or disable the cache."),
+  @Property(name = AbstractDependencyCache.PROPERTY_MAX_SIZE, intValue = RichTextFragmentCache.DEFAULT_MAX_SIZE,
+      label = "Max. size", description = "Maximum number of cached fragments."),
+  @Property(name = AbstractDependencyCache.PROPERTY_EXPIRE_SECONDS,
+      intValue = RichTextFragmentCache.DEFAULT_EXPIRE_SECONDS, label = "Expiry time",
+      description = "Time in seconds after which cached fragments expire even if no change event was received. "
+          + "This also limits the time until on/off-time or configuration changes affecting links take effect.")
+})
+public final class RichTextFragmentCache extends AbstractDependencyCache<RichTextFragmentCache.Fragment> {
+
+  static final int DEFAULT_MAX_SIZE = 5000;
+  static final int DEFAULT_EXPIRE_SECONDS = 300;
+
+  /**
+   * Cache with default configuration.
+   */
+  public RichTextFragmentCache() {
+    super(DEFAULT_MAX_SIZE, DEFAULT_EXPIRE_SECONDS);
+  }
+
+  @Activate
+  void activate(ComponentContext componentContext) {
+    configure(componentContext.getProperties());
+  }
+
+  /**
+   * Returns a copy of the cached fragment content for the given key, or rewrites and caches it.
+   * @param key Cache key - has to contain all context information the rewriting depends on
+   * @param rewriter Rewrites the fragment if it is not cached
+   * @return Rewritten content - the caller is free to modify the returned elements
+   */
+  public List<Content> get(String key, Supplier<Fragment> rewriter) {
+    if (!isEnabled()) {
+      return rewriter.get().getContent();
+    }
+    return getValue(key, rewriter).cloneContent();
+  }
+
+  @Override
+  protected Set<String> getDependencyPaths(Fragment fragment) {
+    return fragment.getDependencyPaths();
+  }
+
+
+  /**
+   * Rewritten rich text fragment.
+   */
+  public static final class Fragment {
+
+    private final List<Content> content;
+    private final Set<String> dependencyPaths;
+
+    /**
+     * @param content Rewritten content
+     * @param dependencyPaths Paths of all pages and assets the rewritten content depends on
+     */
+    public Fragment(List<Content> content, Set<String> dependencyPaths) {
+      this.content = ImmutableList.copyOf(content);
+      this.dependencyPaths = ImmutableSet.copyOf(dependencyPaths);
+    }
+
+    /**
+     * @return Rewritten content - must not be modified
+     */
+    public List<Content> getContent() {
+      return this.content;
+    }
+
+    /**
+     * @return Paths of all pages and assets the rewritten content depends on
+     */
+    public Set<String> getDependencyPaths() {
+      return this.dependencyPaths;
+    }
+
+    List<Content> cloneContent() {
+      List<Content> result = new ArrayList<>(content.size());
+      for (Content item : content) {
+        result.add(item.clone());
+      }
+      return ImmutableList.copyOf(result);
+    }
+
+  }
+
+}
@@ -19,7 +19,7 @@
  */
 package io.wcm.handler.richtext.impl;
 
-import io.wcm.handler.media.MediaArgs;
+import io.wcm.handler.commons.caching.AbstractDependencyCache;
 import io.wcm.handler.richtext.RichText;
 import io.wcm.handler.richtext.RichTextBuilder;
 import io.wcm.handler.richtext.RichTextHandler;
@@ -28,17 +28,26 @@ import io.wcm.handler.richtext.RichTextRequest;
 import io.wcm.handler.richtext.TextMode;
 import io.wcm.handler.richtext.util.RewriteContentHandler;
 import io.wcm.handler.richtext.util.RichTextUtil;
-import io.wcm.handler.url.UrlMode;
+import io.wcm.handler.richtext.util.StreamingRewriteContentHandler;
 import io.wcm.sling.models.annotations.AemObject;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.annotations.injectorspecific.OSGiService;
 import org.apache.sling.models.annotations.injectorspecific.Self;
+import org.apache.sling.models.annotations.injectorspecific.SlingObject;
 import org.jdom2.Content;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
@@ -46,7 +55,11 @@ import org.jdom2.Text;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.wcm.api.NameConstants;
 import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.WCMMode;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 
 /**
@@ -63,6 +76,12 @@ public final class RichTextHandlerImpl implements RichTextHandler {
   private RewriteContentHandler rewriteContentHandler;
   @AemObject
   private Page currentPage;
+  @AemObject(optional = true)
+  private WCMMode wcmMode;
+  @SlingObject(optional = true)
+  private SlingHttpServletRequest request;
+  @OSGiService(optional = true)
+  private RichTextFragmentCache fragmentCache;
 
   @Override
   public RichTextBuilder get(Resource resource) {
@@ -80,7 +99,7 @@ public final class RichTextHandlerImpl implements RichTextHandler {
 
     List<Content> content;
     if (textMode == TextMode.XHTML) {
-      content = processRichText(text, richTextRequest.getUrlMode(), richTextRequest.getMediaArgs());
+      content = processRichText(text, richTextRequest);
     }
     else {
       content = processPlainText(text);
@@ -89,6 +108,35 @@ public final class RichTextHandlerImpl implements RichTextHandler {
     return new RichText(richTextRequest, content);
   }
 
+  void writeMarkup(RichTextRequest richTextRequest, Writer writer) throws IOException {
+    String text = getRawText(richTextRequest);
+    TextMode textMode = getTextMode(richTextRequest);
+
+    // rewrite rich text in streaming mode if it is not cached
+    if (textMode == TextMode.XHTML && !isFragmentCacheable(richTextRequest)
+        && rewriteContentHandler instanceof StreamingRewriteContentHandler) {
+      if (isEmpty(text)) {
+        return;
+      }
+      // buffer the rewritten markup to avoid writing truncated markup if the text turns out to be invalid
+      StringWriter buffer = new StringWriter(text.length());
+      try {
+        RichTextUtil.rewriteContent(text, true, (StreamingRewriteContentHandler)rewriteContentHandler, buffer);
+        writer.write(buffer.toString());
+      }
+      catch (JDOMException ex) {
+        log.debug("Unable to parse XHTML text."
+            + (currentPage != null ? " Current page is " + currentPage.getPath() + "." : ""), ex);
+      }
+      return;
+    }
+
+    String markup = processRequest(richTextRequest).getMarkup();
+    if (markup != null) {
+      writer.write(markup);
+    }
+  }
+
   private String getRawText(RichTextRequest richTextRequest) {
     if (richTextRequest.getResource() != null) {
       return richTextRequest.getResourceProperties().get(RichTextNameConstants.PN_TEXT, String.class);
@@ -111,17 +159,64 @@ public final class RichTextHandlerImpl implements RichTextHandler {
     }
   }
 
-  private List<Content> processRichText(String text, UrlMode urlMode, MediaArgs mediaArgs) {
+  private List<Content> processRichText(final String text, RichTextRequest richTextRequest) {
     if (isEmpty(text)) {
       return ImmutableList.of();
     }
 
+    // use fragment cache for texts stored in resources
+    final Resource resource = richTextRequest.getResource();
+    if (isFragmentCacheable(richTextRequest)) {
+      return fragmentCache.get(getCacheKey(richTextRequest), new Supplier<RichTextFragmentCache.Fragment>() {
+        @Override
+        public RichTextFragmentCache.Fragment get() {
+          Set<String> dependencyPaths = new HashSet<>();
+          dependencyPaths.add(AbstractDependencyCache.getContainerPath(resource.getPath()));
+          RichTextRewriteContentHandlerImpl handler = (RichTextRewriteContentHandlerImpl)rewriteContentHandler;
+          handler.setReferencedPaths(dependencyPaths);
+          try {
+            return new RichTextFragmentCache.Fragment(rewriteRichText(text), dependencyPaths);
+          }
+          finally {
+            handler.setReferencedPaths(null);
+          }
+        }
+      });
+    }
+
+    return rewriteRichText(text);
+  }
+
+  /**
+   * @param richTextRequest Rich text request
+   * @return true if the rich text is rewritten via the fragment cache, false if it may be streamed
+   */
+  boolean isFragmentCacheable(RichTextRequest richTextRequest) {
+    return fragmentCache != null && fragmentCache.isEnabled() && richTextRequest.getResource() != null
+        && rewriteContentHandler instanceof RichTextRewriteContentHandlerImpl;
+  }
+
+  private List<Content> rewriteRichText(String text) {
     // Parse text
     try {
       Element contentParent = RichTextUtil.parseText(text, true);
 
+      // Resolve all link and media references at once
+      RichTextRewriteContentHandlerImpl batchRewriteContentHandler = null;
+      if (rewriteContentHandler instanceof RichTextRewriteContentHandlerImpl) {
+        batchRewriteContentHandler = (RichTextRewriteContentHandlerImpl)rewriteContentHandler;
+        batchRewriteContentHandler.resolveReferences(contentParent);
+      }
+
       // Rewrite content (e.g. anchor tags)
-      RichTextUtil.rewriteContent(contentParent, rewriteContentHandler);
+      try {
+        RichTextUtil.rewriteContent(contentParent, rewriteContentHandler);
+      }
+      finally {
+        if (batchRewriteContentHandler != null) {
+          batchRewriteContentHandler.clearResolvedReferences();
+        }
+      }
 
       // return xhtml elements
       return ImmutableList.copyOf(contentParent.cloneContent());
@@ -133,6 +228,37 @@ public final class RichTextHandlerImpl implements RichTextHandler {
     }
   }
 
+  /**
+   * Builds cache key from text resource, last modification date and all context information that influences link
+   * and media resolution, including the current user and the request selectors.
+   * @param richTextRequest Rich text request
+   * @return Cache key
+   */
+  private String getCacheKey(RichTextRequest richTextRequest) {
+    ValueMap props = richTextRequest.getResourceProperties();
+    Calendar lastModified = props.get(JcrConstants.JCR_LASTMODIFIED, Calendar.class);
+    if (lastModified == null) {
+      lastModified = props.get(NameConstants.PN_PAGE_LAST_MOD, Calendar.class);
+    }
+    StringBuilder key = new StringBuilder()
+        .append(richTextRequest.getResource().getPath())
+        .append('|').append(RichTextNameConstants.PN_TEXT)
+        .append('|').append(lastModified != null ? lastModified.getTimeInMillis() : 0L)
+        .append('|').append(currentPage != null ? currentPage.getPath() : "")
+        // link targets are checked with the access rights of the current user
+        .append('|').append(richTextRequest.getResource().getResourceResolver().getUserID())
+        // links and images are rendered differently e.g. in edit mode
+        .append('|').append(wcmMode != null ? wcmMode.name() : "");
+    if (request != null) {
+      key.append('|').append(request.getScheme())
+          .append("://").append(request.getServerName())
+          .append(':').append(request.getServerPort())
+          // selectors switch e.g. the integrator template mode
+          .append('|').append(StringUtils.defaultString(request.getRequestPathInfo().getSelectorString()));
+    }
+    return key.toString();
+  }
+
   private List<Content> processPlainText(String text) {
     if (StringUtils.isBlank(text)) {
       return ImmutableList.of();
@@ -30,14 +30,22 @@ import io.wcm.handler.link.type.MediaLinkType;
 import io.wcm.handler.media.Media;
 import io.wcm.handler.media.MediaHandler;
 import io.wcm.handler.richtext.util.RewriteContentHandler;
+import io.wcm.handler.richtext.util.StreamingRewriteContentHandler;
 import io.wcm.sling.commons.adapter.AdaptTo;
 import io.wcm.wcm.commons.contenttype.FileExtension;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.commons.lang3.CharEncoding;
 import org.apache.commons.lang3.StringUtils;
@@ -56,6 +64,7 @@ import org.jdom2.Attribute;
 import org.jdom2.Content;
 import org.jdom2.Element;
 import org.jdom2.Text;
+import org.jdom2.filter.Filters;
 
 import com.day.cq.commons.jcr.JcrConstants;
 import com.google.common.collect.ImmutableSet;
@@ -66,7 +75,7 @@ import com.google.common.collect.ImmutableSet;
 @Model(adaptables = {
     SlingHttpServletRequest.class, Resource.class
 }, adapters = RewriteContentHandler.class)
-public final class RichTextRewriteContentHandlerImpl implements RewriteContentHandler {
+public final class RichTextRewriteContentHandlerImpl implements StreamingRewriteContentHandler {
 
   @Self
   private Adaptable adaptable;
@@ -79,6 +88,13 @@ public final class RichTextRewriteContentHandlerImpl implements RewriteContentHa
   @Self
   private MediaHandler mediaHandler;
 
+  private Set<String> referencedPaths;
+
+  // links and media resolved in advance, null if references are resolved one by one
+  private Map<Element, String> resolvedLinkKeys;
+  private Map<String, Link> resolvedLinks;
+  private Map<String, Media> resolvedMedia;
+
   /**
    * List of all tag names that should not be rendered "self-closing" to avoid interpretation errors in browsers
    */
@@ -94,6 +110,82 @@ public final class RichTextRewriteContentHandlerImpl implements RewriteContentHa
       "li"
       );
 
+  /**
+   * List of all tag names that are rewritten even if they have child content
+   */
+  private static final Set<String> REWRITE_CANDIDATE_TAGS = ImmutableSet.of(
+      "a",
+      "img",
+      "br"
+      );
+
+  /**
+   * Starts or stops collecting the paths of all pages and assets referenced by rewritten anchor and image elements.
+   * @param paths Set to add the referenced paths to, or null to stop collecting
+   */
+  void setReferencedPaths(Set<String> paths) {
+    this.referencedPaths = paths;
+  }
+
+  /**
+   * Collects all link and media references of the given content, and resolves each distinct reference once.
+   * The results are used when the content is rewritten afterwards, until {@link #clearResolvedReferences()} is
+   * called. References that were not collected in advance (e.g. in content replaced by the rewrite handler) are
+   * resolved on demand.
+   * @param parent Parent element of the content
+   */
+  void resolveReferences(Element parent) {
+
+    // first pass: collect distinct references
+    resolvedLinkKeys = new IdentityHashMap<>();
+    Map<String, SyntheticLinkResource> linkResources = new LinkedHashMap<>();
+    Set<String> mediaRefs = new LinkedHashSet<>();
+    for (Element element : parent.getDescendants(Filters.element())) {
+      if (StringUtils.equalsIgnoreCase(element.getName(), "a")) {
+        SyntheticLinkResource resource = getAnchorLinkResource(element);
+        String key = getLinkKey(resource.getValueMap());
+        resolvedLinkKeys.put(element, key);
+        if (!linkResources.containsKey(key)) {
+          linkResources.put(key, resource);
+        }
+      }
+      else if (StringUtils.equalsIgnoreCase(element.getName(), "img")) {
+        String ref = element.getAttributeValue("src");
+        mediaRefs.add(StringUtils.isNotEmpty(ref) ? unexternalizeImageRef(ref) : ref);
+      }
+    }
+
+    // resolve all distinct references
+    resolvedLinks = new HashMap<>();
+    for (Map.Entry<String, SyntheticLinkResource> entry : linkResources.entrySet()) {
+      resolvedLinks.put(entry.getKey(), resolveLink(entry.getValue()));
+    }
+    resolvedMedia = new HashMap<>();
+    for (String ref : mediaRefs) {
+      resolvedMedia.put(ref, resolveMedia(ref));
+    }
+  }
+
+  /**
+   * Discards the references resolved by {@link #resolveReferences(Element)}.
+   */
+  void clearResolvedReferences() {
+    resolvedLinkKeys = null;
+    resolvedLinks = null;
+    resolvedMedia = null;
+  }
+
+  private void addReferencedPath(String path) {
+    if (referencedPaths != null && StringUtils.startsWith(path, "/")) {
+      referencedPaths.add(path);
+    }
+  }
+
+  @Override
+  public boolean isRewriteCandidate(String elementName) {
+    return REWRITE_CANDIDATE_TAGS.contains(StringUtils.lowerCase(elementName));
+  }
+
   /**
    * Checks if the given element has to be rewritten.
    * Is called for every child single element of the parent given to rewriteContent method.
@@ -176,6 +268,32 @@ public final class RichTextRewriteContentHandlerImpl implements RewriteContentHa
    * @return Link metadata
    */
   private Link getAnchorLink(Element element) {
+
+    // use link resolved in advance
+    if (resolvedLinks != null) {
+      String key = resolvedLinkKeys.get(element);
+      if (key != null) {
+        return resolvedLinks.get(key);
+      }
+      SyntheticLinkResource resource = getAnchorLinkResource(element);
+      key = getLinkKey(resource.getValueMap());
+      Link link = resolvedLinks.get(key);
+      if (link == null) {
+        link = resolveLink(resource);
+        resolvedLinks.put(key, link);
+      }
+      return link;
+    }
+
+    return resolveLink(getAnchorLinkResource(element));
+  }
+
+  /**
+   * Extracts link metadata from the DOM elements attributes.
+   * @param element DOM element
+   * @return Synthetic link resource with link metadata
+   */
+  private SyntheticLinkResource getAnchorLinkResource(Element element) {
     SyntheticLinkResource resource = new SyntheticLinkResource(resourceResolver);
     ValueMap resourceProps = resource.getValueMap();
 
@@ -190,10 +308,52 @@ public final class RichTextRewriteContentHandlerImpl implements RewriteContentHa
       }
     }
 
+    return resource;
+  }
+
+  /**
+   * Resolves link metadata to a {@link Link} object.
+   * @param resource Synthetic link resource with link metadata
+   * @return Link metadata
+   */
+  private Link resolveLink(SyntheticLinkResource resource) {
+    ValueMap resourceProps = resource.getValueMap();
+
     // build anchor via linkhandler
-    return linkHandler.get(resource).build();
+    Link link = linkHandler.get(resource).build();
+
+    // remember link targets - including those that could not be resolved
+    if (referencedPaths != null) {
+      addReferencedPath(resourceProps.get(LinkNameConstants.PN_LINK_CONTENT_REF, String.class));
+      addReferencedPath(resourceProps.get(LinkNameConstants.PN_LINK_MEDIA_REF, String.class));
+      if (link.getTargetPage() != null) {
+        addReferencedPath(link.getTargetPage().getPath());
+      }
+      if (link.getTargetAsset() != null) {
+        addReferencedPath(link.getTargetAsset().getPath());
+      }
+    }
+
+    return link;
   }
 
+  /**
+   * Builds a key for the link metadata that is identical for all anchors pointing to the same link target.
+   * @param resourceProps Link metadata
+   * @return Link key
+   */
+  private static String getLinkKey(ValueMap resourceProps) {
+    StringBuilder key = new StringBuilder();
+    for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(resourceProps).entrySet()) {
+      Object value = entry.getValue();
+      key.append(entry.getKey()).append('=')
+          .append(value instanceof Object[] ? Arrays.toString((Object[])value) : value)
+          .append('\n');
+    }
+    return key.toString();
+  }
+
+
   /**
    * Builds anchor element for given link metadata.
    * @param pLink Link metadata
@@ -201,7 +361,9 @@ public final class RichTextRewriteContentHandlerImpl implements RewriteContentHa
    * @return Anchor element or null if link is invalid
    */
   private Element buildAnchorElement(Link pLink, Element element) {
-    return pLink.getAnchor();
+    // the same link may be used for multiple anchors
+    Element anchor = pLink.getAnchor();
+    return anchor != null ? anchor.clone() : null;
   }
 
   /**
@@ -400,7 +562,37 @@ public final class RichTextRewriteContentHandlerImpl implements RewriteContentHa
     if (StringUtils.isNotEmpty(ref)) {
       ref = unexternalizeImageRef(ref);
     }
-    return mediaHandler.get(ref).build();
+
+    // use media resolved in advance
+    if (resolvedMedia != null) {
+      Media media = resolvedMedia.get(ref);
+      if (media == null) {
+        media = resolveMedia(ref);
+        resolvedMedia.put(ref, media);
+      }
+      return media;
+    }
+
+    return resolveMedia(ref);
+  }
+
+  /**
+   * Resolves media reference to a {@link Media} object.
+   * @param ref Media reference
+   * @return Media metadata
+   */
+  private Media resolveMedia(String ref) {
+    Media media = mediaHandler.get(ref).build();
+
+    // remember media targets - including those that could not be resolved
+    if (referencedPaths != null) {
+      addReferencedPath(ref);
+      if (media.getAsset() != null) {
+        addReferencedPath(media.getAsset().getPath());
+      }
+    }
+
+    return media;
   }
 
   /**
@@ -20,5 +20,5 @@
 /**
  * RichText Handler API.
  */
-@org.osgi.annotation.versioning.Version("0.5.0")
+@org.osgi.annotation.versioning.Version("0.6.0")
 package io.wcm.handler.richtext;
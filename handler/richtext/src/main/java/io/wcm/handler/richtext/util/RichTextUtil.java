@@ -21,6 +21,7 @@ package io.wcm.handler.richtext.util;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,7 +32,11 @@ import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.jdom2.Text;
 import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.sax.XMLReaders;
 import org.osgi.annotation.versioning.ProviderType;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 /**
  * Utility methods for handling XHTML rich text fragments i.e. used for FCKEditor.
@@ -56,6 +61,9 @@ public final class RichTextUtil {
           + "\"" + XHtmlResource.ENTITIES_SPECIAL.getSystemId() + "\">"
           + "%HTMLspecial;";
 
+  private static final String NAMESPACE_PREFIXES_FEATURE = "http://xml.org/sax/features/namespace-prefixes";
+  private static final String LEXICAL_HANDLER_PROPERTY = "http://xml.org/sax/properties/lexical-handler";
+
   /**
    * Check if the given formatted text block is empty.
    * A text block containing only one paragraph element and whitespaces is considered as empty.
@@ -138,17 +146,13 @@ public final class RichTextUtil {
   public static Element parseText(String text, boolean xhtmlEntities) throws JDOMException {
 
     // add root element
-    String xhtmlString =
-        (xhtmlEntities ? "<!DOCTYPE root [" + XHTML_ENTITY_DEF + "]>" : "")
-        + "<root>" + text + "</root>";
+    String xhtmlString = toXhtmlDocument(text, xhtmlEntities);
 
     try {
-      SAXBuilder saxBuilder = new SAXBuilder();
-
-      if (xhtmlEntities) {
+      SAXBuilder saxBuilder = new SAXBuilder(XMLReaders.NONVALIDATING);
+      if (isDtdRequired(xhtmlString)) {
         saxBuilder.setEntityResolver(XHtmlEntityResolver.getInstance());
       }
-
       Document doc = saxBuilder.build(new StringReader(xhtmlString));
       return doc.getRootElement();
     }
@@ -158,6 +162,65 @@ public final class RichTextUtil {
 
   }
 
+  /**
+   * Adds a wrapping "root" element to the XHTML text string. XHTML entities are expanded in advance to skip DTD
+   * processing whenever possible.
+   * @param text XHTML text string (root element not needed)
+   * @param xhtmlEntities If set to true, Resolving of XHtml entities in XHtml fragment is supported.
+   * @return XML document string
+   */
+  private static String toXhtmlDocument(String text, boolean xhtmlEntities) {
+    String expandedText = xhtmlEntities ? XHtmlEntityResolver.getInstance().expandEntities(text) : text;
+    if (expandedText == null) {
+      return "<!DOCTYPE root [" + XHTML_ENTITY_DEF + "]>" + "<root>" + text + "</root>";
+    }
+    return "<root>" + expandedText + "</root>";
+  }
+
+  private static boolean isDtdRequired(String xhtmlString) {
+    return xhtmlString.startsWith("<!DOCTYPE");
+  }
+
+  /**
+   * Parses XHTML text string, rewrites it and writes the result directly to the given writer.
+   * No DOM tree is built for the text, only elements that may have to be rewritten are built as DOM elements and
+   * passed to the rewrite content handler. The output is formatted the same way as
+   * {@link io.wcm.handler.richtext.RichText#getMarkup()}.
+   * If the text is not valid XHTML, the markup that was written before the error was detected remains in the writer.
+   * @param text XHTML text string (root element not needed)
+   * @param xhtmlEntities If set to true, Resolving of XHtml entities in XHtml fragment is supported.
+   * @param rewriteContentHandler Rewrite content handler
+   * @param writer Writer for the rewritten markup
+   * @throws JDOMException Is thrown if the text could not be parsed as XHTML
+   * @throws IOException Is thrown if writing the markup failed
+   */
+  public static void rewriteContent(String text, boolean xhtmlEntities,
+      StreamingRewriteContentHandler rewriteContentHandler, Writer writer) throws JDOMException, IOException {
+
+    // add root element
+    String xhtmlString = toXhtmlDocument(text, xhtmlEntities);
+
+    XHtmlStreamingRewriter streamingRewriter = new XHtmlStreamingRewriter(rewriteContentHandler, writer);
+    XMLReader xmlReader = XMLReaders.NONVALIDATING.createXMLReader();
+    try {
+      xmlReader.setFeature(NAMESPACE_PREFIXES_FEATURE, true);
+      xmlReader.setContentHandler(streamingRewriter);
+      xmlReader.setErrorHandler(streamingRewriter);
+      xmlReader.setProperty(LEXICAL_HANDLER_PROPERTY, streamingRewriter);
+      if (isDtdRequired(xhtmlString)) {
+        xmlReader.setEntityResolver(XHtmlEntityResolver.getInstance());
+      }
+      xmlReader.parse(new InputSource(new StringReader(xhtmlString)));
+    }
+    catch (SAXException ex) {
+      if (ex.getException() instanceof IOException) {
+        throw (IOException)ex.getException();
+      }
+      throw new JDOMException("Error parsing XHTML fragment.", ex);
+    }
+
+  }
+
   /**
    * Rewrites all children/sub-tree of the given parent element.
    * For rewrite operations the given rewrite content handler is called.
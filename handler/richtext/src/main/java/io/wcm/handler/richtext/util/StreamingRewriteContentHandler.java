@@ -0,0 +1,43 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.richtext.util;
+
+import org.osgi.annotation.versioning.ConsumerType;
+
+/**
+ * Rewrite content handler that supports streaming rewriting via
+ * {@link RichTextUtil#rewriteContent(String, boolean, StreamingRewriteContentHandler, java.io.Writer)}.
+ * Only elements that may have to be rewritten are built as DOM elements and passed to the rewrite methods, all other
+ * markup is written directly to the output.
+ */
+@ConsumerType
+public interface StreamingRewriteContentHandler extends RewriteContentHandler {
+
+  /**
+   * Checks if elements with the given name may have to be rewritten if they have child content.
+   * Those elements are built as DOM elements including all their children and passed to
+   * {@link #rewriteElement(org.jdom2.Element)}. Elements without child content and all text nodes are always passed
+   * to the rewrite methods.
+   * @param elementName Element name
+   * @return true if elements with this name may have to be rewritten
+   */
+  boolean isRewriteCandidate(String elementName);
+
+}
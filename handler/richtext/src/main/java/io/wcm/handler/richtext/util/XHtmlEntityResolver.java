@@ -19,31 +19,74 @@
  */
 package io.wcm.handler.richtext.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+
 /**
  * Entity resolver for XHtml DTD and Entities.
  * Loads XHtml resources/entity set from package de.gedas.day.gcq.richtext.xhtml.
+ * All resources are loaded once from the class path and kept in memory.
  */
 final class XHtmlEntityResolver implements EntityResolver {
 
+  private static final Pattern ENTITY_DECLARATION = Pattern.compile("<!ENTITY\\s+(\\w+)\\s+\"([^\"]*)\">");
+
+  /**
+   * Entities predefined by XML - they are never expanded.
+   */
+  private static final ImmutableSet<String> XML_ENTITIES = ImmutableSet.of("amp", "lt", "gt", "quot", "apos");
+
   private static final XHtmlEntityResolver INSTANCE = new XHtmlEntityResolver();
 
-  private final Map<String, String> xhtmlResourceMap = new HashMap<String, String>();
+  private final Map<String, byte[]> xhtmlResourceMap = new HashMap<String, byte[]>();
+  private final Map<String, String> entityMap;
   private final String resourceFolder = "/" + getClass().getPackage().getName().replace('.', '/') + "/xhtml";
 
   private XHtmlEntityResolver() {
-    // cache public id's from xhtml resources
+    // cache content of xhtml resources by public id
+    ImmutableMap.Builder<String, String> entities = ImmutableMap.builder();
     for (XHtmlResource resource : EnumSet.allOf(XHtmlResource.class)) {
-      xhtmlResourceMap.put(resource.getPublicId(), resource.getFilename());
+      byte[] data = loadResource(resource.getFilename());
+      xhtmlResourceMap.put(resource.getPublicId(), data);
+
+      // collect character entity definitions
+      if (resource.getFilename().endsWith(".ent")) {
+        Matcher matcher = ENTITY_DECLARATION.matcher(new String(data, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+          if (!XML_ENTITIES.contains(matcher.group(1))) {
+            entities.put(matcher.group(1), matcher.group(2));
+          }
+        }
+      }
+    }
+    entityMap = entities.build();
+  }
+
+  private byte[] loadResource(String filename) {
+    String resourceName = resourceFolder + "/" + filename;
+    try (InputStream is = XHtmlEntityResolver.class.getResourceAsStream(resourceName)) {
+      if (is == null) {
+        throw new IllegalStateException("Resource '" + resourceName + "' not found in class path.");
+      }
+      return ByteStreams.toByteArray(is);
+    }
+    catch (IOException ex) {
+      throw new IllegalStateException("Unable to read resource '" + resourceName + "' from class path.", ex);
     }
   }
 
@@ -56,24 +99,59 @@ final class XHtmlEntityResolver implements EntityResolver {
   }
 
   /**
-   * Resolve XHtml resource entities, load from classpath resources.
+   * Resolve XHtml resource entities from in-memory copies of the classpath resources.
    */
   @Override
   public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
 
-    String filename = xhtmlResourceMap.get(publicId);
-    if (filename != null) {
-      String resourceName = resourceFolder + "/" + filename;
-      InputStream is = XHtmlEntityResolver.class.getResourceAsStream(resourceName);
+    byte[] data = xhtmlResourceMap.get(publicId);
+    if (data != null) {
+      InputSource inputSource = new InputSource(new ByteArrayInputStream(data));
+      inputSource.setPublicId(publicId);
+      inputSource.setSystemId(systemId);
+      return inputSource;
+    }
 
-      if (is == null) {
-        throw new IOException("Resource '" + resourceName + "' not found in class path.");
-      }
+    return null;
+  }
 
-      return new InputSource(is);
+  /**
+   * Replaces all XHtml character entity references in the given text by numeric character references,
+   * so the text can be parsed without any DTD processing. XML predefined entities and numeric character
+   * references are left untouched.
+   * @param text XHTML text string
+   * @return Text with expanded entities, or null if the text contains an unknown or malformed entity reference
+   */
+  public String expandEntities(String text) {
+    int pos = text.indexOf('&');
+    if (pos < 0) {
+      return text;
     }
 
-    return null;
+    StringBuilder result = new StringBuilder(text.length() + 16);
+    int start = 0;
+    while (pos >= 0) {
+      int end = text.indexOf(';', pos + 1);
+      if (end < 0) {
+        return null;
+      }
+      String name = text.substring(pos + 1, end);
+      result.append(text, start, pos);
+      if (name.startsWith("#") || XML_ENTITIES.contains(name)) {
+        result.append(text, pos, end + 1);
+      }
+      else {
+        String value = entityMap.get(name);
+        if (value == null) {
+          return null;
+        }
+        result.append(value);
+      }
+      start = end + 1;
+      pos = text.indexOf('&', start);
+    }
+    result.append(text, start, text.length());
+    return result.toString();
   }
 
 }
@@ -0,0 +1,341 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.richtext.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jdom2.CDATA;
+import org.jdom2.Comment;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.ProcessingInstruction;
+import org.jdom2.Text;
+import org.jdom2.output.Format;
+import org.jdom2.output.Format.TextMode;
+import org.jdom2.output.XMLOutputter;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX handler that rewrites a XHTML fragment wrapped in a root element and writes the result directly to a writer.
+ * Markup is written unchanged as it is parsed. Only rewrite candidates and elements without content are built as DOM
+ * elements and rewritten via {@link RichTextUtil#rewriteContent(Element, RewriteContentHandler)}.
+ * The output is formatted the same way as {@link io.wcm.handler.richtext.RichText#getMarkup()}.
+ */
+final class XHtmlStreamingRewriter extends DefaultHandler implements LexicalHandler {
+
+  private static final Format JDOM_FORMAT = Format.getCompactFormat().setTextMode(TextMode.PRESERVE);
+
+  private final StreamingRewriteContentHandler rewriteContentHandler;
+  private final Writer writer;
+  private final XMLOutputter xmlOutputter = new XMLOutputter(JDOM_FORMAT);
+  private final Element rewriteParent = new Element("root");
+  private final StringBuilder textBuffer = new StringBuilder();
+  private final Map<String, String> prefixMappings = new LinkedHashMap<>();
+
+  // element nesting depth - 1 = wrapping root element
+  private int depth;
+
+  // streamed element whose start tag was not written yet because no child content was found so far
+  private PendingElement pendingElement;
+
+  // element that is currently built as DOM element, null if streaming
+  private Element currentElement;
+
+  private boolean inCdata;
+  private boolean inDtd;
+
+  XHtmlStreamingRewriter(StreamingRewriteContentHandler rewriteContentHandler, Writer writer) {
+    this.rewriteContentHandler = rewriteContentHandler;
+    this.writer = writer;
+  }
+
+  @Override
+  public void startPrefixMapping(String prefix, String uri) {
+    prefixMappings.put(prefix, uri);
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+    flushText();
+    depth++;
+
+    // skip wrapping root element
+    if (depth == 1) {
+      prefixMappings.clear();
+      return;
+    }
+
+    // build DOM element
+    if (currentElement != null) {
+      Element element = createElement(uri, localName, qName, attributes);
+      currentElement.addContent(element);
+      currentElement = element;
+    }
+    else {
+      writePendingStartTag();
+      if (rewriteContentHandler.isRewriteCandidate(getName(localName, qName))) {
+        currentElement = createElement(uri, localName, qName, attributes);
+      }
+      else {
+        pendingElement = new PendingElement(uri, localName, qName, attributes, prefixMappings);
+      }
+    }
+    prefixMappings.clear();
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) throws SAXException {
+    flushText();
+    depth--;
+
+    // skip wrapping root element
+    if (depth == 0) {
+      return;
+    }
+
+    if (currentElement != null) {
+      Element parent = currentElement.getParentElement();
+      if (parent == null) {
+        Element element = currentElement;
+        currentElement = null;
+        writeRewritten(element);
+      }
+      else {
+        currentElement = parent;
+      }
+    }
+    else if (pendingElement != null) {
+      // element without any content
+      Element element = createElement(pendingElement.uri, pendingElement.localName, pendingElement.qName,
+          pendingElement.attributes);
+      pendingElement = null;
+      writeRewritten(element);
+    }
+    else {
+      write("</" + qName + ">");
+    }
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) {
+    textBuffer.append(ch, start, length);
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) throws SAXException {
+    flushText();
+    addContent(new ProcessingInstruction(target, data));
+  }
+
+  @Override
+  public void comment(char[] ch, int start, int length) throws SAXException {
+    // ignore comments from xhtml entity definitions
+    if (inDtd) {
+      return;
+    }
+    flushText();
+    addContent(new Comment(new String(ch, start, length)));
+  }
+
+  @Override
+  public void startCDATA() throws SAXException {
+    flushText();
+    inCdata = true;
+  }
+
+  @Override
+  public void endCDATA() throws SAXException {
+    flushText();
+    inCdata = false;
+  }
+
+  @Override
+  public void startDTD(String name, String publicId, String systemId) {
+    inDtd = true;
+  }
+
+  @Override
+  public void endDTD() {
+    inDtd = false;
+  }
+
+  @Override
+  public void startEntity(String name) {
+    // entities are expanded by parser
+  }
+
+  @Override
+  public void endEntity(String name) {
+    // entities are expanded by parser
+  }
+
+  @Override
+  public void error(SAXParseException ex) throws SAXException {
+    throw ex;
+  }
+
+  private void flushText() throws SAXException {
+    if (textBuffer.length() == 0) {
+      return;
+    }
+    String text = textBuffer.toString();
+    textBuffer.setLength(0);
+    addContent(inCdata ? new CDATA(text) : new Text(text));
+  }
+
+  private void addContent(Content content) throws SAXException {
+    if (currentElement != null) {
+      currentElement.addContent(content);
+    }
+    else {
+      writePendingStartTag();
+      writeRewritten(content);
+    }
+  }
+
+  /**
+   * Rewrites the given content and writes the result.
+   * @param content Content without parent
+   */
+  private void writeRewritten(Content content) throws SAXException {
+    rewriteParent.addContent(content);
+    try {
+      RichTextUtil.rewriteContent(rewriteParent, rewriteContentHandler);
+      xmlOutputter.output(rewriteParent.getContent(), writer);
+    }
+    catch (IOException ex) {
+      throw new SAXException(ex);
+    }
+    finally {
+      rewriteParent.removeContent();
+    }
+  }
+
+  /**
+   * Writes start tag of pending streamed element, because child content was found.
+   */
+  private void writePendingStartTag() throws SAXException {
+    if (pendingElement == null) {
+      return;
+    }
+    StringBuilder startTag = new StringBuilder();
+    startTag.append('<').append(pendingElement.qName);
+    for (Map.Entry<String, String> prefixMapping : pendingElement.prefixMappings.entrySet()) {
+      startTag.append(" xmlns");
+      if (StringUtils.isNotEmpty(prefixMapping.getKey())) {
+        startTag.append(':').append(prefixMapping.getKey());
+      }
+      appendAttributeValue(startTag, prefixMapping.getValue());
+    }
+    Attributes attributes = pendingElement.attributes;
+    for (int i = 0; i < attributes.getLength(); i++) {
+      if (!isNamespaceDeclaration(attributes.getQName(i))) {
+        startTag.append(' ').append(attributes.getQName(i));
+        appendAttributeValue(startTag, attributes.getValue(i));
+      }
+    }
+    startTag.append('>');
+    pendingElement = null;
+    write(startTag.toString());
+  }
+
+  private void appendAttributeValue(StringBuilder sb, String value) {
+    sb.append("=\"").append(xmlOutputter.escapeAttributeEntities(value)).append('"');
+  }
+
+  private void write(String markup) throws SAXException {
+    try {
+      writer.write(markup);
+    }
+    catch (IOException ex) {
+      throw new SAXException(ex);
+    }
+  }
+
+  private static Element createElement(String uri, String localName, String qName, Attributes attributes) {
+    Element element;
+    if (StringUtils.isEmpty(uri)) {
+      element = new Element(getName(localName, qName));
+    }
+    else {
+      element = new Element(localName, Namespace.getNamespace(getPrefix(qName), uri));
+    }
+    for (int i = 0; i < attributes.getLength(); i++) {
+      String attributeQName = attributes.getQName(i);
+      if (isNamespaceDeclaration(attributeQName)) {
+        continue;
+      }
+      String attributeUri = attributes.getURI(i);
+      if (StringUtils.isEmpty(attributeUri)) {
+        element.setAttribute(getName(attributes.getLocalName(i), attributeQName), attributes.getValue(i));
+      }
+      else {
+        element.setAttribute(attributes.getLocalName(i), attributes.getValue(i),
+            Namespace.getNamespace(getPrefix(attributeQName), attributeUri));
+      }
+    }
+    return element;
+  }
+
+  private static String getName(String localName, String qName) {
+    return StringUtils.isNotEmpty(localName) ? localName : qName;
+  }
+
+  private static String getPrefix(String qName) {
+    return StringUtils.contains(qName, ':') ? StringUtils.substringBefore(qName, ":") : "";
+  }
+
+  private static boolean isNamespaceDeclaration(String qName) {
+    return StringUtils.equals(qName, "xmlns") || StringUtils.startsWith(qName, "xmlns:");
+  }
+
+
+  private static final class PendingElement {
+
+    private final String uri;
+    private final String localName;
+    private final String qName;
+    private final Attributes attributes;
+    private final Map<String, String> prefixMappings;
+
+    PendingElement(String uri, String localName, String qName, Attributes attributes,
+        Map<String, String> prefixMappings) {
+      this.uri = uri;
+      this.localName = localName;
+      this.qName = qName;
+      this.attributes = new AttributesImpl(attributes);
+      this.prefixMappings = prefixMappings.isEmpty()
+          ? Collections.<String, String>emptyMap() : new LinkedHashMap<>(prefixMappings);
+    }
+
+  }
+
+}
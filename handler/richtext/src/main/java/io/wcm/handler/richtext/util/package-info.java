@@ -20,5 +20,5 @@
 /**
  * Helper classes for RichText handling.
  */
-@org.osgi.annotation.versioning.Version("0.5.0")
+@org.osgi.annotation.versioning.Version("0.6.0")
 package io.wcm.handler.richtext.util;
@@ -0,0 +1,234 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.richtext.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import io.wcm.handler.richtext.RichTextHandler;
+import io.wcm.handler.richtext.RichTextNameConstants;
+import io.wcm.handler.richtext.testcontext.AppAemContext;
+import io.wcm.handler.richtext.testcontext.DummyAppTemplate;
+import io.wcm.handler.url.integrator.IntegratorHandler;
+import io.wcm.sling.commons.adapter.AdaptTo;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+
+import java.util.List;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceWrapper;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.Text;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+import com.day.cq.wcm.api.WCMMode;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Test {@link RichTextFragmentCache} in combination with {@link RichTextHandlerImpl}.
+ */
+public class RichTextFragmentCacheTest {
+
+  private static final String TARGET_PATH = AppAemContext.ROOTPATH_CONTENT + "/target";
+  private static final String TEXT = "<p>Zum <a href='#' data-link-type-id='internal' "
+      + "data-link-content-ref='" + TARGET_PATH + "'>Ziel</a>.</p>";
+
+  @Rule
+  public final AemContext context = AppAemContext.newAemContext();
+
+  private RichTextFragmentCache underTest;
+  private Resource textResource;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = context.getService(RichTextFragmentCache.class);
+    textResource = context.create().resource(AppAemContext.ROOTPATH_CONTENT + "/jcr:content/text",
+        ImmutableValueMap.of(RichTextNameConstants.PN_TEXT, TEXT));
+  }
+
+  @Test
+  public void testCachedFragment() {
+    context.create().page(TARGET_PATH, DummyAppTemplate.CONTENT.getTemplatePath());
+    String markup = buildMarkup();
+    assertTrue(markup, markup.contains(TARGET_PATH + ".html"));
+    assertEquals(1, underTest.getSize());
+
+    // change of text is not visible without change event
+    changeText("<p>Neu</p>");
+    assertEquals(markup, buildMarkup());
+  }
+
+  @Test
+  public void testInvalidateOnTextChange() {
+    buildMarkup();
+    changeText("<p>Neu</p>");
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, textResource.getPath()));
+
+    assertEquals(0, underTest.getSize());
+    assertEquals("<p>Neu</p>", buildMarkup());
+  }
+
+  @Test
+  public void testInvalidateOnLinkTargetAdded() {
+    // link target does not exist yet - link is removed
+    String markup = buildMarkup();
+    assertFalse(markup, markup.contains("<a "));
+
+    context.create().page(TARGET_PATH, DummyAppTemplate.CONTENT.getTemplatePath());
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_ADDED, TARGET_PATH));
+
+    assertEquals(0, underTest.getSize());
+    markup = buildMarkup();
+    assertTrue(markup, markup.contains(TARGET_PATH + ".html"));
+  }
+
+  @Test
+  public void testNoInvalidateOnUnrelatedChange() {
+    buildMarkup();
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, AppAemContext.ROOTPATH_CONTENT + "/other/jcr:content"));
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, TARGET_PATH + "X"));
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testCachedPerWcmMode() {
+    context.create().page(TARGET_PATH, DummyAppTemplate.CONTENT.getTemplatePath());
+    RichTextHandler richTextHandler = AdaptTo.notNull(context.request(), RichTextHandler.class);
+    richTextHandler.get(textResource).buildMarkup();
+    assertEquals(1, underTest.getSize());
+
+    WCMMode.EDIT.toRequest(context.request());
+    richTextHandler = AdaptTo.notNull(context.request(), RichTextHandler.class);
+    richTextHandler.get(textResource).buildMarkup();
+    assertEquals(2, underTest.getSize());
+  }
+
+  @Test
+  public void testCachedPerUser() {
+    context.create().page(TARGET_PATH, DummyAppTemplate.CONTENT.getTemplatePath());
+    buildMarkup();
+    assertEquals(1, underTest.getSize());
+
+    // same text read by another user
+    final ResourceResolver otherUserResolver = mock(ResourceResolver.class);
+    when(otherUserResolver.getUserID()).thenReturn("otherUser");
+    Resource otherUserTextResource = new ResourceWrapper(textResource) {
+      @Override
+      public ResourceResolver getResourceResolver() {
+        return otherUserResolver;
+      }
+    };
+    RichTextHandler richTextHandler = AdaptTo.notNull(context.currentResource(), RichTextHandler.class);
+    richTextHandler.get(otherUserTextResource).buildMarkup();
+    assertEquals(2, underTest.getSize());
+  }
+
+  @Test
+  public void testCachedPerIntegratorTemplateMode() {
+    context.create().page(TARGET_PATH, DummyAppTemplate.CONTENT.getTemplatePath());
+    RichTextHandler richTextHandler = AdaptTo.notNull(context.request(), RichTextHandler.class);
+    richTextHandler.get(textResource).buildMarkup();
+    assertEquals(1, underTest.getSize());
+
+    context.requestPathInfo().setSelectorString(IntegratorHandler.SELECTOR_INTEGRATORTEMPLATE);
+    richTextHandler = AdaptTo.notNull(context.request(), RichTextHandler.class);
+    richTextHandler.get(textResource).buildMarkup();
+    assertEquals(2, underTest.getSize());
+  }
+
+  @Test
+  public void testNoInvalidateOutsideContent() {
+    underTest.get("key1", fragment("/etc/designs/test"));
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, "/etc/designs/test"));
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, "/etc"));
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testInvalidateDescendantsOnly() {
+    underTest.get("key1", fragment("/content/a/b"));
+    underTest.get("key2", fragment("/content/ab"));
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, "/content/a"));
+    assertEquals(1, underTest.getSize());
+    assertEquals("/content/ab", ((Text)underTest.get("key2", fragment("/content/other")).get(0)).getText());
+  }
+
+  @Test
+  public void testNotCachedIfInvalidatedWhileRewriting() {
+    underTest.get("key1", new Supplier<RichTextFragmentCache.Fragment>() {
+      @Override
+      public RichTextFragmentCache.Fragment get() {
+        // concurrent change of a resource the fragment depends on
+        underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, "/content/a/jcr:content"));
+        return fragment("/content/a").get();
+      }
+    });
+    assertEquals(0, underTest.getSize());
+
+    underTest.get("key1", fragment("/content/a"));
+    assertEquals(1, underTest.getSize());
+  }
+
+  @Test
+  public void testReturnedContentIsCopy() {
+    RichTextHandler richTextHandler = AdaptTo.notNull(context.currentResource(), RichTextHandler.class);
+    Element element = (Element)richTextHandler.get(textResource).buildContent().iterator().next();
+    element.setName("div");
+    element.removeContent();
+    assertTrue(buildMarkup().startsWith("<p>Zum "));
+  }
+
+  private String buildMarkup() {
+    // use resource as adaptable to bypass the per-request link cache
+    RichTextHandler richTextHandler = AdaptTo.notNull(context.currentResource(), RichTextHandler.class);
+    return richTextHandler.get(textResource).buildMarkup();
+  }
+
+  private void changeText(String text) {
+    textResource.adaptTo(ModifiableValueMap.class).put(RichTextNameConstants.PN_TEXT, text);
+  }
+
+  private static Supplier<RichTextFragmentCache.Fragment> fragment(final String dependencyPath) {
+    return new Supplier<RichTextFragmentCache.Fragment>() {
+      @Override
+      public RichTextFragmentCache.Fragment get() {
+        List<Content> content = ImmutableList.<Content>of(new Text(dependencyPath));
+        return new RichTextFragmentCache.Fragment(content, ImmutableSet.of(dependencyPath));
+      }
+    };
+  }
+
+  private static Event event(String topic, String path) {
+    return new Event(topic, ImmutableValueMap.of(SlingConstants.PROPERTY_PATH, path));
+  }
+
+}
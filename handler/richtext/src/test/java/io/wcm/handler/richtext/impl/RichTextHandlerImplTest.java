@@ -20,20 +20,27 @@
 package io.wcm.handler.richtext.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.wcm.handler.commons.caching.AbstractDependencyCache;
 import io.wcm.handler.richtext.RichText;
 import io.wcm.handler.richtext.RichTextHandler;
 import io.wcm.handler.richtext.RichTextNameConstants;
+import io.wcm.handler.richtext.RichTextRequest;
 import io.wcm.handler.richtext.TextMode;
 import io.wcm.handler.richtext.testcontext.AppAemContext;
 import io.wcm.sling.commons.adapter.AdaptTo;
 import io.wcm.sling.commons.resource.ImmutableValueMap;
 import io.wcm.testing.mock.aem.junit.AemContext;
 
+import java.io.StringWriter;
+
 import org.apache.sling.api.adapter.Adaptable;
 import org.apache.sling.api.resource.Resource;
 import org.junit.Rule;
 import org.junit.Test;
+import org.osgi.framework.Constants;
 
 /**
  * Test {@link RichTextHandler}
@@ -65,6 +72,16 @@ public class RichTextHandlerImplTest {
       + "<a href=\"http://www.jodelkaiser.de\" target=\"_blank\">Ötztal</a> "
       + "ist wieder daheim.</p>";
 
+  private static final String RICHTEXT_FRAGMENT_DUPLICATE_LINKS = "<p>"
+      + "<a href='#' data-link-type-id='external' data-link-external-ref='http://www.jodelkaiser.de' "
+      + "data-link-window-target='_blank'>Der Jodelkaiser</a> aus dem "
+      + "<a href='#' data-link-type-id='external' data-link-external-ref='http://www.jodelkaiser.de' "
+      + "data-link-window-target='_blank'>Ötztal</a></p>";
+
+  private static final String RICHTEXT_FRAGMENT_DUPLICATE_LINKS_REWRITTEN = "<p>"
+      + "<a href=\"http://www.jodelkaiser.de\" target=\"_blank\">Der Jodelkaiser</a> aus dem "
+      + "<a href=\"http://www.jodelkaiser.de\" target=\"_blank\">Ötztal</a></p>";
+
   private static final String PLAINTEXT_FRAGMENT = "Der Jodelkaiser\naus dem Ötztal\nist wieder daheim.";
   private static final String PLAINTEXT_FRAGMENT_REWRITTEN = "Der Jodelkaiser<br />aus dem Ötztal<br />ist wieder daheim.";
 
@@ -93,6 +110,45 @@ public class RichTextHandlerImplTest {
     assertEquals(RICHTEXT_FRAGMENT_REWRITTEN, richText.getMarkup());
   }
 
+  @Test
+  public void testContent_DuplicateLinks() {
+    RichTextHandler richTextHandler = AdaptTo.notNull(adaptable(), RichTextHandler.class);
+    RichText richText = richTextHandler.get(RICHTEXT_FRAGMENT_DUPLICATE_LINKS).build();
+    assertEquals(RICHTEXT_FRAGMENT_DUPLICATE_LINKS_REWRITTEN, richText.getMarkup());
+  }
+
+  @Test
+  public void testContentStreaming() throws Exception {
+    RichTextHandler richTextHandler = AdaptTo.notNull(adaptable(), RichTextHandler.class);
+    StringWriter writer = new StringWriter();
+    richTextHandler.get(RICHTEXT_FRAGMENT).buildMarkup(writer);
+    assertEquals(RICHTEXT_FRAGMENT_REWRITTEN, writer.toString());
+  }
+
+  @Test
+  public void testContentStreaming_LegacyRel() throws Exception {
+    RichTextHandler richTextHandler = AdaptTo.notNull(adaptable(), RichTextHandler.class);
+    StringWriter writer = new StringWriter();
+    richTextHandler.get(RICHTEXT_FRAGMENT_LEGACY_REL).buildMarkup(writer);
+    assertEquals(RICHTEXT_FRAGMENT_REWRITTEN, writer.toString());
+  }
+
+  @Test
+  public void testContentStreaming_Null() throws Exception {
+    RichTextHandler richTextHandler = AdaptTo.notNull(adaptable(), RichTextHandler.class);
+    StringWriter writer = new StringWriter();
+    richTextHandler.get((String)null).buildMarkup(writer);
+    assertEquals("", writer.toString());
+  }
+
+  @Test
+  public void testContentStreaming_Invalid() throws Exception {
+    RichTextHandler richTextHandler = AdaptTo.notNull(adaptable(), RichTextHandler.class);
+    StringWriter writer = new StringWriter();
+    richTextHandler.get("<p>Text 1</p><p>Text 2").buildMarkup(writer);
+    assertEquals("", writer.toString());
+  }
+
   @Test
   public void testContent_LegacyData() {
     RichTextHandler richTextHandler = AdaptTo.notNull(adaptable(), RichTextHandler.class);
@@ -124,6 +180,43 @@ public class RichTextHandlerImplTest {
     assertEquals(RICHTEXT_FRAGMENT_REWRITTEN, richText.getMarkup());
   }
 
+  @Test
+  public void testContentStreamingFromResource() throws Exception {
+    RichTextHandler richTextHandler = AdaptTo.notNull(adaptable(), RichTextHandler.class);
+
+    Resource resource = context.create().resource("/text/resource",
+        ImmutableValueMap.of(RichTextNameConstants.PN_TEXT, RICHTEXT_FRAGMENT));
+    StringWriter writer = new StringWriter();
+    richTextHandler.get(resource).buildMarkup(writer);
+    assertEquals(RICHTEXT_FRAGMENT_REWRITTEN, writer.toString());
+  }
+
+  @Test
+  public void testContentStreamingFromResource_FragmentCacheDisabled() throws Exception {
+    RichTextFragmentCache fragmentCache = context.registerInjectActivateService(new RichTextFragmentCache(),
+        ImmutableValueMap.of(AbstractDependencyCache.PROPERTY_ENABLED, false, Constants.SERVICE_RANKING, 1000));
+    RichTextHandler richTextHandler = AdaptTo.notNull(adaptable(), RichTextHandler.class);
+
+    Resource resource = context.create().resource("/text/resource",
+        ImmutableValueMap.of(RichTextNameConstants.PN_TEXT, RICHTEXT_FRAGMENT));
+    RichTextRequest richTextRequest = new RichTextRequest(resource, null, null, null, null);
+    assertFalse(((RichTextHandlerImpl)richTextHandler).isFragmentCacheable(richTextRequest));
+
+    StringWriter writer = new StringWriter();
+    richTextHandler.get(resource).buildMarkup(writer);
+    assertEquals(RICHTEXT_FRAGMENT_REWRITTEN, writer.toString());
+    assertEquals(0, fragmentCache.getSize());
+  }
+
+  @Test
+  public void testFragmentCacheableFromResource() {
+    RichTextHandler richTextHandler = AdaptTo.notNull(adaptable(), RichTextHandler.class);
+    Resource resource = context.create().resource("/text/resource",
+        ImmutableValueMap.of(RichTextNameConstants.PN_TEXT, RICHTEXT_FRAGMENT));
+    RichTextRequest richTextRequest = new RichTextRequest(resource, null, null, null, null);
+    assertTrue(((RichTextHandlerImpl)richTextHandler).isFragmentCacheable(richTextRequest));
+  }
+
   @Test
   public void testPlainTextContentFromResource() {
     RichTextHandler richTextHandler = AdaptTo.notNull(adaptable(), RichTextHandler.class);
@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.richtext.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import io.wcm.handler.richtext.testcontext.AppAemContext;
+import io.wcm.handler.richtext.util.RewriteContentHandler;
+import io.wcm.handler.richtext.util.RichTextUtil;
+import io.wcm.sling.commons.adapter.AdaptTo;
+import io.wcm.testing.mock.aem.junit.AemContext;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Test resolving references in advance in {@link RichTextRewriteContentHandlerImpl}.
+ */
+public class RichTextRewriteContentHandlerImplTest {
+
+  private static final String IMAGE_REF = AppAemContext.DAM_PATH + "/image1.jpg";
+  private static final String LINK_REF = AppAemContext.ROOTPATH_CONTENT + "/page1";
+
+  @Rule
+  public final AemContext context = AppAemContext.newAemContext();
+
+  private RichTextRewriteContentHandlerImpl underTest;
+  private Set<String> referencedPaths;
+
+  @Before
+  public void setUp() {
+    underTest = (RichTextRewriteContentHandlerImpl)AdaptTo.notNull(context.request(), RewriteContentHandler.class);
+    referencedPaths = new HashSet<>();
+  }
+
+  @Test
+  public void testDuplicateImages() throws Exception {
+    Element parent = RichTextUtil.parseText("<p><img src='" + IMAGE_REF + "'/>"
+        + "<img src='" + IMAGE_REF + "/jcr:content.default'/></p>", true);
+    Element paragraph = parent.getChild("p");
+    underTest.resolveReferences(parent);
+
+    // both images use the media resolved once in advance
+    underTest.setReferencedPaths(referencedPaths);
+    List<Content> image1 = underTest.rewriteElement(paragraph.getChildren().get(0));
+    List<Content> image2 = underTest.rewriteElement(paragraph.getChildren().get(1));
+    assertEquals(1, image1.size());
+    assertEquals(1, image2.size());
+    assertEquals(ImmutableSet.of(), referencedPaths);
+  }
+
+  @Test
+  public void testImageNotResolvedInAdvance() throws Exception {
+    underTest.resolveReferences(RichTextUtil.parseText("<p>Text</p>", true));
+
+    // image was not part of the content resolved in advance, e.g. because it was added by a rewrite step
+    underTest.setReferencedPaths(referencedPaths);
+    Element image = new Element("img").setAttribute("src", IMAGE_REF);
+    List<Content> content = underTest.rewriteElement(image);
+    assertEquals(1, content.size());
+    assertEquals(ImmutableSet.of(IMAGE_REF), referencedPaths);
+
+    // media resolved on demand is reused
+    referencedPaths.clear();
+    underTest.rewriteElement(image.clone());
+    assertTrue(referencedPaths.isEmpty());
+  }
+
+  @Test
+  public void testLinkNotResolvedInAdvance() throws Exception {
+    underTest.resolveReferences(RichTextUtil.parseText("<p><a href='#' data-link-type-id='external' "
+        + "data-link-external-ref='http://www.jodelkaiser.de'>Text</a></p>", true));
+
+    // anchor was not part of the content resolved in advance
+    underTest.setReferencedPaths(referencedPaths);
+    Element anchor = new Element("a").setAttribute("href", "#")
+        .setAttribute("data-link-type-id", "internal")
+        .setAttribute("data-link-content-ref", LINK_REF)
+        .setText("Text");
+    underTest.rewriteElement(anchor);
+    assertEquals(ImmutableSet.of(LINK_REF), referencedPaths);
+
+    // anchor with same link metadata uses the link resolved on demand
+    referencedPaths.clear();
+    underTest.rewriteElement(anchor.clone());
+    assertTrue(referencedPaths.isEmpty());
+
+    // anchor with same link metadata as one resolved in advance
+    Element externalAnchor = new Element("a").setAttribute("href", "#")
+        .setAttribute("data-link-type-id", "external")
+        .setAttribute("data-link-external-ref", "http://www.jodelkaiser.de")
+        .setText("Text");
+    List<Content> content = underTest.rewriteElement(externalAnchor);
+    assertEquals("http://www.jodelkaiser.de", ((Element)content.get(0)).getAttributeValue("href"));
+    assertTrue(referencedPaths.isEmpty());
+  }
+
+}
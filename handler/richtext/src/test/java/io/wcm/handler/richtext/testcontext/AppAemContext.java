@@ -23,6 +23,7 @@ import io.wcm.config.spi.ApplicationProvider;
 import io.wcm.config.spi.ConfigurationFinderStrategy;
 import io.wcm.config.spi.ParameterProvider;
 import io.wcm.handler.media.format.impl.MediaFormatProviderManagerImpl;
+import io.wcm.handler.richtext.impl.RichTextFragmentCache;
 import io.wcm.handler.url.UrlParams;
 import io.wcm.handler.url.impl.UrlHandlerParameterProviderImpl;
 import io.wcm.sling.commons.resource.ImmutableValueMap;
@@ -107,6 +108,9 @@ public final class AppAemContext {
       // media formats
       context.registerInjectActivateService(new MediaFormatProviderManagerImpl());
 
+      // rich text fragment cache
+      context.registerInjectActivateService(new RichTextFragmentCache());
+
       // sling models registration
       context.addModelsForPackage("io.wcm.handler.url");
       context.addModelsForPackage("io.wcm.handler.media");
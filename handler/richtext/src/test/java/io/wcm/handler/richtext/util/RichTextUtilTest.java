@@ -22,8 +22,10 @@ package io.wcm.handler.richtext.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -158,6 +160,46 @@ public class RichTextUtilTest {
 
   }
 
+  @Test
+  public void testRewriteContentStreaming() throws Exception {
+    String[] inputs = new String[] {
+        "",
+        "<test1 /><test2 />",
+        "<test1 /><to-remove /><test2 />",
+        "<test1 /><to-keep /><test2 />",
+        "<test1 /><to-keep-attribute /><test2 />",
+        "<test1 /><to-replace-multiple /><test2 />",
+        "<test1 /><to-replace-single><test-3 /><to-remove /><test-4 /></to-replace-single><test2 />",
+        "<test1 /><to-replace-single /><!-- comment --><test2 />",
+        "<test1 /><to-replace-once /><to-replace-once /><test2 />",
+        "<div class=\"a&amp;b\"><p>Text &lt;1&gt; <to-replace-single>x</to-replace-single></p><![CDATA[<c>]]>\r\n</div>",
+        "<div xmlns:x=\"urn:x\"><x:p x:a=\"1\">Text</x:p></div>"
+    };
+    for (String input : inputs) {
+      assertEquals(input, rewriteContent(input), rewriteContentStreaming(input, false));
+    }
+  }
+
+  @Test
+  public void testRewriteContentStreamingXhtmlEntities() throws Exception {
+    assertEquals("<p>Der Jodelkaiser aus dem Ötztal.</p>",
+        rewriteContentStreaming("<p>Der Jodelkaiser aus dem &Ouml;tztal.</p>", true));
+    // unknown entity in comment forces DTD processing
+    assertEquals("<p>Der Jodelkaiser aus dem Ötztal&amp;</p><!-- &unknown; -->",
+        rewriteContentStreaming("<p>Der Jodelkaiser aus dem &Ouml;tztal&amp;</p><!-- &unknown; -->", true));
+  }
+
+  @Test(expected = JDOMException.class)
+  public void testRewriteContentStreamingInvalid() throws Exception {
+    rewriteContentStreaming("Der <br>Jodelkaiser", false);
+  }
+
+  private String rewriteContentStreaming(String input, boolean xhtmlEntities) throws Exception {
+    StringWriter writer = new StringWriter();
+    RichTextUtil.rewriteContent(input, xhtmlEntities, new TestStreamingRewriteContentHandler(), writer);
+    return writer.toString();
+  }
+
   private String rewriteContent(String input) throws Exception {
     Element root = RichTextUtil.parseText(input);
     RichTextUtil.rewriteContent(root, new TestRewriteContentHandler());
@@ -252,6 +294,16 @@ public class RichTextUtilTest {
 
   }
 
+  static class TestStreamingRewriteContentHandler extends TestRewriteContentHandler
+      implements StreamingRewriteContentHandler {
+
+    @Override
+    public boolean isRewriteCandidate(String elementName) {
+      return StringUtils.startsWith(elementName, "to-");
+    }
+
+  }
+
   @Test
   public void testXhtmlEntities() throws Exception {
 
@@ -260,4 +312,31 @@ public class RichTextUtilTest {
 
   }
 
+  @Test
+  public void testXhtmlEntitiesMixed() throws Exception {
+
+    Element element = RichTextUtil.parseText("<p>A&nbsp;&amp;&#160;B &euro;&lt;&hellip;</p>", true);
+    assertEquals("text", "A\u00a0&\u00a0B \u20ac<\u2026", element.getChild("p").getText());
+
+  }
+
+  @Test(expected = JDOMException.class)
+  public void testXhtmlEntitiesUnknown() throws Exception {
+    RichTextUtil.parseText("Der Jodelkaiser aus dem &unknown;tztal.", true);
+  }
+
+  @Test(expected = JDOMException.class)
+  public void testXhtmlEntitiesWithoutXhtmlEntities() throws Exception {
+    RichTextUtil.parseText("Der Jodelkaiser aus dem &Ouml;tztal.", false);
+  }
+
+  @Test
+  public void testExpandEntities() {
+    XHtmlEntityResolver resolver = XHtmlEntityResolver.getInstance();
+    assertEquals("no entities", "abc", resolver.expandEntities("abc"));
+    assertEquals("&#214;tztal &amp; &#60;", resolver.expandEntities("&Ouml;tztal &amp; &#60;"));
+    assertNull("unknown", resolver.expandEntities("&unknown;"));
+    assertNull("malformed", resolver.expandEntities("a & b"));
+  }
+
 }
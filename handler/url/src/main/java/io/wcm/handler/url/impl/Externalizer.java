@@ -23,8 +23,6 @@ import io.wcm.sling.commons.util.Escape;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
@@ -50,6 +48,20 @@ final class Externalizer {
    *         configured), and the path is URL-encoded if it contains special chars.
    */
   public static String externalizeUrl(String url, ResourceResolver resolver, SlingHttpServletRequest request) {
+    return externalizeUrl(url, resolver, request, null);
+  }
+
+  /**
+   * Externalizes an URL by applying Sling Mapping, reusing mapping results from the given cache.
+   * @param url Unexternalized URL (without scheme or hostname)
+   * @param resolver Resource resolver
+   * @param request Request
+   * @param mappingCache Resource mapping cache or null
+   * @return Exernalized URL without scheme or hostname
+   * @see #externalizeUrl(String, ResourceResolver, SlingHttpServletRequest)
+   */
+  public static String externalizeUrl(String url, ResourceResolver resolver, SlingHttpServletRequest request,
+      ResourceMappingCache mappingCache) {
 
     // apply externalization only path part
     String path = url;
@@ -62,6 +74,31 @@ final class Externalizer {
       path = path.substring(0, urlRemainderPos);
     }
 
+    // apply sling mapping - reuse previous result for same path and request context if available
+    if (mappingCache != null) {
+      path = mappingCache.map(path, resolver, request);
+    }
+    else {
+      path = mapPath(path, resolver, request);
+    }
+
+    // build full URL again
+    if (urlRemainder == null) {
+      return path;
+    }
+    return path + urlRemainder;
+  }
+
+  /**
+   * Applies Sling Mapping to the given path and removes scheme and hostname that may be added by the mapping.
+   * @param path Path without query string or fragment
+   * @param resolver Resource resolver
+   * @param request Request
+   * @return Mapped path, the path is URL-encoded if it contains special chars.
+   */
+  static String mapPath(String path, ResourceResolver resolver, SlingHttpServletRequest request) {
+    String mappedPath;
+
     // apply reverse mapping based on current sling mapping configuration for current request
     // e.g. to support a host-based prefix stripping mapping configuration configured at /etc/map
 
@@ -72,24 +109,21 @@ final class Externalizer {
     // 3. adds webapp context path if required
     // 4. url-encodes the whole url
     if (request != null) {
-      path = resolver.map(request, path);
+      mappedPath = resolver.map(request, path);
     }
     else {
-      path = resolver.map(path);
+      mappedPath = resolver.map(path);
     }
 
     // remove scheme and hostname (probably added by sling mapping), but leave path in escaped form
     try {
-      path = new URI(path).getRawPath();
+      mappedPath = new URI(mappedPath).getRawPath();
       // replace %2F back to / for better readability
-      path = StringUtils.replace(path, "%2F", "/");
+      return StringUtils.replace(mappedPath, "%2F", "/");
     }
     catch (URISyntaxException ex) {
-      throw new RuntimeException("Sling map method returned invalid URI: " + path, ex);
+      throw new RuntimeException("Sling map method returned invalid URI: " + mappedPath, ex);
     }
-
-    // build full URL again
-    return path + (urlRemainder != null ? urlRemainder : "");
   }
 
   /**
@@ -145,30 +179,52 @@ final class Externalizer {
         || StringUtils.startsWith(url, "#"); // anchor or integrator placeholder detected
   }
 
-  private static final String MANGLED_NAMESPACE_PREFIX = "/_";
-  private static final String MANGLED_NAMESPACE_SUFFIX = "_";
   private static final char NAMESPACE_SEPARATOR = ':';
-  private static final Pattern NAMESPACE_PATTERN = Pattern.compile("/([^:/]+):");
+  private static final char PATH_SEPARATOR = '/';
+  private static final char MANGLED_NAMESPACE_DELIMITER = '_';
 
   /**
    * Mangle the namespaces in the given path for usage in sling-based URLs.
    * <p>
    * Example: /path/jcr:content to /path/_jcr_content
    * </p>
+   * <p>
+   * The path is scanned once without regular expressions, a new string is only created if a namespace was found.
+   * </p>
    * @param path Path to mangle
    * @return Mangled path
    */
   public static String mangleNamespaces(String path) {
-    if (!StringUtils.contains(path, NAMESPACE_SEPARATOR)) {
+    if (path == null || path.indexOf(NAMESPACE_SEPARATOR) < 0) {
       return path;
     }
-    Matcher matcher = NAMESPACE_PATTERN.matcher(path);
-    StringBuffer sb = new StringBuffer();
-    while (matcher.find()) {
-      String replacement = MANGLED_NAMESPACE_PREFIX + matcher.group(1) + MANGLED_NAMESPACE_SUFFIX;
-      matcher.appendReplacement(sb, replacement);
+    StringBuilder sb = null;
+    int copiedPos = 0;
+    int segmentStart = -1;
+    for (int i = 0; i < path.length(); i++) {
+      char c = path.charAt(i);
+      if (c == PATH_SEPARATOR) {
+        segmentStart = i + 1;
+      }
+      else if (c == NAMESPACE_SEPARATOR) {
+        // namespace prefix detected: "/prefix:" -> "/_prefix_"
+        if (segmentStart >= 0 && i > segmentStart) {
+          if (sb == null) {
+            sb = new StringBuilder(path.length() + 8);
+          }
+          sb.append(path, copiedPos, segmentStart)
+          .append(MANGLED_NAMESPACE_DELIMITER)
+          .append(path, segmentStart, i)
+          .append(MANGLED_NAMESPACE_DELIMITER);
+          copiedPos = i + 1;
+        }
+        segmentStart = -1;
+      }
+    }
+    if (sb == null) {
+      return path;
     }
-    matcher.appendTail(sb);
+    sb.append(path, copiedPos, path.length());
     return sb.toString();
   }
 
@@ -0,0 +1,195 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.osgi.PropertiesUtil;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches the results of the Sling resource mapping applied by {@link Externalizer}.
+ * The cache key consists of the path, the user ID of the resource resolver and the scheme, host, port and servlet
+ * context path of the current request, because Sling Mapping configurations may be host-specific and vanity paths
+ * or aliases of resources are only applied if the resolver's user is allowed to read them.
+ * The cache is invalidated completely when the Sling Mapping configuration below /etc/map changes, when vanity
+ * path or alias properties are added, changed or removed, or when resources below /content or /etc/map are removed.
+ */
+@Component(immediate = true, metatype = true,
+label = "wcm.io URL Handler Resource Mapping Cache",
+description = "Caches the results of Sling Mapping for URL externalization.")
+@Service({
+  ResourceMappingCache.class, EventHandler.class
+})
+@Property(name = EventConstants.EVENT_TOPIC, value = {
+    SlingConstants.TOPIC_RESOURCE_ADDED,
+    SlingConstants.TOPIC_RESOURCE_CHANGED,
+    SlingConstants.TOPIC_RESOURCE_REMOVED
+}, propertyPrivate = true)
+public final class ResourceMappingCache implements EventHandler {
+
+  static final String MAPPING_ROOT_PATH = "/etc/map";
+  static final String CONTENT_ROOT_PATH = "/content";
+
+  private static final String[] MAPPING_PROPERTY_NAMES = new String[] {
+    "sling:vanityPath",
+    "sling:vanityOrder",
+    "sling:redirect",
+    "sling:alias"
+  };
+
+  private static final boolean DEFAULT_ENABLED = true;
+  private static final int DEFAULT_MAX_SIZE = 10000;
+  private static final int DEFAULT_EXPIRE_SECONDS = 600;
+
+  @Property(boolValue = DEFAULT_ENABLED, label = "Enabled", description = "Switch to enable or disable the cache.")
+  static final String PROPERTY_ENABLED = "enabled";
+
+  @Property(intValue = DEFAULT_MAX_SIZE, label = "Max. size", description = "Maximum number of cached mappings.")
+  static final String PROPERTY_MAX_SIZE = "maxSize";
+
+  @Property(intValue = DEFAULT_EXPIRE_SECONDS, label = "Expiry time",
+      description = "Time in seconds after which cached mappings expire even if no change event was received.")
+  static final String PROPERTY_EXPIRE_SECONDS = "expireSeconds";
+
+  private boolean enabled = DEFAULT_ENABLED;
+  private Cache<String, String> cache = buildCache(DEFAULT_MAX_SIZE, DEFAULT_EXPIRE_SECONDS);
+
+  // incremented on each invalidation to prevent caching of mappings that were computed before
+  private final AtomicLong generation = new AtomicLong();
+
+  @Activate
+  void activate(ComponentContext componentContext) {
+    enabled = PropertiesUtil.toBoolean(componentContext.getProperties().get(PROPERTY_ENABLED), DEFAULT_ENABLED);
+    int maxSize = PropertiesUtil.toInteger(componentContext.getProperties().get(PROPERTY_MAX_SIZE), DEFAULT_MAX_SIZE);
+    int expireSeconds = PropertiesUtil.toInteger(componentContext.getProperties().get(PROPERTY_EXPIRE_SECONDS),
+        DEFAULT_EXPIRE_SECONDS);
+    cache = buildCache(maxSize, expireSeconds);
+  }
+
+  private static Cache<String, String> buildCache(int maxSize, int expireSeconds) {
+    return CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  /**
+   * Applies Sling Mapping to the given path, or returns the result of a previous mapping with the same request
+   * context.
+   * @param path Path without query string or fragment
+   * @param resolver Resource resolver
+   * @param request Request
+   * @return Mapped path without scheme or hostname
+   */
+  public String map(String path, ResourceResolver resolver, SlingHttpServletRequest request) {
+    if (!enabled) {
+      return Externalizer.mapPath(path, resolver, request);
+    }
+    String key = buildKey(path, resolver, request);
+    String mappedPath = cache.getIfPresent(key);
+    if (mappedPath == null) {
+      long currentGeneration = generation.get();
+      mappedPath = Externalizer.mapPath(path, resolver, request);
+      if (currentGeneration == generation.get()) {
+        cache.put(key, mappedPath);
+      }
+    }
+    return mappedPath;
+  }
+
+  private static String buildKey(String path, ResourceResolver resolver, SlingHttpServletRequest request) {
+    String userId = StringUtils.defaultString(resolver.getUserID());
+    if (request == null) {
+      return userId + '|' + path;
+    }
+    String contextPath = StringUtils.defaultString(request.getContextPath());
+    String scheme = StringUtils.defaultString(request.getScheme());
+    String serverName = StringUtils.defaultString(request.getServerName());
+    StringBuilder key = new StringBuilder(userId.length() + scheme.length() + serverName.length()
+        + contextPath.length() + path.length() + 16);
+    key.append(userId).append('|')
+    .append(scheme).append("://").append(serverName).append(':').append(request.getServerPort())
+    .append(contextPath).append('|').append(path);
+    return key.toString();
+  }
+
+  /**
+   * Removes all cached mappings.
+   */
+  public void invalidate() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if (isMappingRelevant(event)) {
+      invalidate();
+    }
+  }
+
+  private boolean isMappingRelevant(Event event) {
+    String path = (String)event.getProperty(SlingConstants.PROPERTY_PATH);
+    if (isPathOrDescendant(path, MAPPING_ROOT_PATH)) {
+      return true;
+    }
+    // removed content resources may have had a vanity path or alias - attributes are not contained in remove events
+    if (StringUtils.equals(event.getTopic(), SlingConstants.TOPIC_RESOURCE_REMOVED)) {
+      return isPathOrDescendant(path, CONTENT_ROOT_PATH);
+    }
+    return containsMappingProperty(event.getProperty(SlingConstants.PROPERTY_ADDED_ATTRIBUTES))
+        || containsMappingProperty(event.getProperty(SlingConstants.PROPERTY_CHANGED_ATTRIBUTES))
+        || containsMappingProperty(event.getProperty(SlingConstants.PROPERTY_REMOVED_ATTRIBUTES));
+  }
+
+  private static boolean isPathOrDescendant(String path, String rootPath) {
+    return StringUtils.equals(path, rootPath) || StringUtils.startsWith(path, rootPath + "/");
+  }
+
+  private static boolean containsMappingProperty(Object attributes) {
+    if (!(attributes instanceof String[])) {
+      return false;
+    }
+    for (String attribute : (String[])attributes) {
+      if (ArrayUtils.contains(MAPPING_PROPERTY_NAMES, attribute)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
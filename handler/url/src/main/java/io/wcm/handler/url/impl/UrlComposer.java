@@ -0,0 +1,190 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import io.wcm.handler.url.UrlHandler;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Composes URLs from path, selectors, extension, suffix, query parameters and fragment in a single buffer.
+ * <p>
+ * The buffer is sized for typical URLs up front, so building an URL usually allocates only the buffer and the
+ * resulting string. Create one instance per URL and call {@link #build()} when done.
+ * </p>
+ */
+final class UrlComposer {
+
+  private static final String SUFFIX_SELECTOR = "." + UrlHandler.SELECTOR_SUFFIX;
+  private static final int INITIAL_CAPACITY = 128;
+
+  private final StringBuilder buffer = new StringBuilder(INITIAL_CAPACITY);
+  private int queryStringStart = -1;
+  private int queryStringSeparatorPos = -1;
+
+  /**
+   * Appends path with selectors, extension and suffix.
+   * If a suffix is given the ".suffix" selector is added, and the extension is appended to the suffix if it has
+   * no own file extension.
+   * @param path Path (not blank)
+   * @param selectors Selector string (with or without leading dot) or null
+   * @param extension Extension (without dot) or null
+   * @param suffix Suffix (with or without leading slash) or null
+   * @return this
+   */
+  public UrlComposer path(String path, String selectors, String extension, String suffix) {
+    boolean hasExtension = StringUtils.isNotBlank(extension);
+    boolean hasSuffix = StringUtils.isNotBlank(suffix);
+
+    buffer.append(path);
+
+    // selectors
+    if (StringUtils.isNotBlank(selectors)) {
+      if (selectors.charAt(0) != '.') {
+        buffer.append('.');
+      }
+      buffer.append(selectors);
+    }
+    // add a ".suffix" selector to avoid overlapping of filenames between suffixed and non-suffixed versions of the same page in the dispatcher cache
+    if (hasSuffix) {
+      buffer.append(SUFFIX_SELECTOR);
+    }
+
+    // extension
+    if (hasExtension) {
+      buffer.append('.').append(extension);
+    }
+
+    // suffix - if suffix does not contain a file extension add main file extension
+    if (hasSuffix) {
+      if (suffix.charAt(0) != '/') {
+        buffer.append('/');
+      }
+      buffer.append(suffix);
+      if (hasExtension && suffix.indexOf('.') < 0) {
+        buffer.append('.').append(extension);
+      }
+    }
+
+    return this;
+  }
+
+  /**
+   * Starts query string handling. Existing query parameters that are already part of the path are kept.
+   * @return this
+   */
+  public UrlComposer startQueryString() {
+    queryStringSeparatorPos = buffer.indexOf("?");
+    if (queryStringSeparatorPos < 0) {
+      queryStringSeparatorPos = buffer.length();
+      buffer.append('?');
+    }
+    queryStringStart = queryStringSeparatorPos + 1;
+    return this;
+  }
+
+  /**
+   * Appends a query string fragment.
+   * @param queryString Query string fragment (e.g. "param1=value1&amp;param2=value2") or null
+   * @return this
+   */
+  public UrlComposer queryString(String queryString) {
+    if (StringUtils.isNotBlank(queryString)) {
+      appendQueryParameterSeparator();
+      buffer.append(queryString);
+    }
+    return this;
+  }
+
+  /**
+   * Appends a single query parameter.
+   * @param name Parameter name
+   * @param value Parameter value
+   * @return this
+   */
+  public UrlComposer queryParameter(String name, String value) {
+    appendQueryParameterSeparator();
+    buffer.append(name).append('=').append(value);
+    return this;
+  }
+
+  private void appendQueryParameterSeparator() {
+    if (buffer.length() > queryStringStart) {
+      buffer.append('&');
+    }
+  }
+
+  /**
+   * Checks if the query string already contains the given parameter.
+   * @param name Parameter name
+   * @return true if a "name=" is part of the query string
+   */
+  public boolean hasQueryParameter(String name) {
+    int pos = queryStringStart;
+    while ((pos = buffer.indexOf(name, pos)) >= 0) {
+      int endPos = pos + name.length();
+      if (endPos < buffer.length() && buffer.charAt(endPos) == '=') {
+        return true;
+      }
+      pos++;
+    }
+    return false;
+  }
+
+  /**
+   * Ends query string handling. The query string separator is removed if no query parameters were added.
+   * @return this
+   */
+  public UrlComposer endQueryString() {
+    if (buffer.length() == queryStringStart) {
+      buffer.setLength(queryStringSeparatorPos);
+    }
+    queryStringStart = -1;
+    queryStringSeparatorPos = -1;
+    return this;
+  }
+
+  /**
+   * Replaces an existing fragment or appends the given one.
+   * @param fragment Fragment (with or without leading "#")
+   * @return this
+   */
+  public UrlComposer fragment(String fragment) {
+    int index = buffer.indexOf("#");
+    if (index >= 0) {
+      buffer.setLength(index);
+    }
+    if (StringUtils.isNotBlank(fragment)) {
+      if (fragment.charAt(0) != '#') {
+        buffer.append('#');
+      }
+      buffer.append(fragment);
+    }
+    return this;
+  }
+
+  /**
+   * @return Composed URL
+   */
+  public String build() {
+    return buffer.toString();
+  }
+
+}
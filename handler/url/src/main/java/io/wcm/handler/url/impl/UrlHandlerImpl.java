@@ -26,6 +26,8 @@ import io.wcm.handler.url.spi.UrlHandlerConfig;
 import io.wcm.sling.commons.request.RequestParam;
 import io.wcm.sling.models.annotations.AemObject;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.ObjectUtils;
@@ -50,6 +52,9 @@ import com.day.cq.wcm.api.Page;
 }, adapters = UrlHandler.class)
 public final class UrlHandlerImpl implements UrlHandler {
 
+  private static final String RA_SITE_ROOTS = UrlHandlerImpl.class.getName() + ".siteRoots";
+  static final String RA_INHERITABLE_PARAMETERS = UrlHandlerImpl.class.getName() + ".inheritableParameters";
+
   @Self
   private Adaptable self;
   @Self
@@ -58,6 +63,8 @@ public final class UrlHandlerImpl implements UrlHandler {
   private ResourceResolver resolver;
   @OSGiService
   private SlingSettingsService slingSettings;
+  @OSGiService(optional = true)
+  private ResourceMappingCache resourceMappingCache;
 
   // optional injections (only available if called inside a request)
   @SlingObject(optional = true)
@@ -65,6 +72,8 @@ public final class UrlHandlerImpl implements UrlHandler {
   @AemObject(optional = true)
   private Page currentPage;
 
+  private Map<String, SiteRoot> siteRoots;
+
   @Override
   public UrlBuilder get(String path) {
     return new UrlBuilderImpl(path, this);
@@ -96,31 +105,96 @@ public final class UrlHandlerImpl implements UrlHandler {
       return path;
     }
 
-    // split up paths
-    String[] contextPathParts = StringUtils.split(contextPath, "/");
-    String[] pathParts = StringUtils.split(path, "/");
+    // check if context path is valid - return unchanged path if not
+    SiteRoot contextSiteRoot = getSiteRoot(contextPath);
+    if (contextSiteRoot.path == null) {
+      return path;
+    }
 
-    // check if both paths are valid - return unchanged path if not
-    int siteRootLevelContextPath = urlHandlerConfig.getSiteRootLevel(contextPath);
+    // fast path: path is already located within site root of context path
     int siteRootLevelPath = urlHandlerConfig.getSiteRootLevel(path);
-    if ((contextPathParts.length <= siteRootLevelContextPath)
-        || (pathParts.length <= siteRootLevelPath)
-        || !StringUtils.equals(contextPathParts[0], "content")
+    if (siteRootLevelPath == contextSiteRoot.level && isNormalizedPathWithin(path, contextSiteRoot.path)) {
+      return path;
+    }
+
+    // check if path is valid - return unchanged path if not
+    String[] pathParts = StringUtils.split(path, "/");
+    if ((pathParts.length <= siteRootLevelPath)
         || !StringUtils.equals(pathParts[0], "content")) {
       return path;
     }
 
     // rewrite path to current context
-    StringBuilder rewrittenPath = new StringBuilder();
-    for (int i = 0; i <= siteRootLevelContextPath; i++) {
-      rewrittenPath.append('/').append(contextPathParts[i]);
-    }
+    StringBuilder rewrittenPath = new StringBuilder(contextSiteRoot.path);
     for (int i = siteRootLevelPath + 1; i < pathParts.length; i++) {
       rewrittenPath.append('/').append(pathParts[i]);
     }
     return rewrittenPath.toString();
   }
 
+  /**
+   * Get site root for the given context path. The result is cached per request.
+   * @param contextPath Context path
+   * @return Site root
+   */
+  private SiteRoot getSiteRoot(String contextPath) {
+    Map<String, SiteRoot> cache = getSiteRootCache();
+    String key = urlHandlerConfig.getClass().getName() + "|" + contextPath;
+    SiteRoot siteRoot = cache.get(key);
+    if (siteRoot == null) {
+      int siteRootLevel = urlHandlerConfig.getSiteRootLevel(contextPath);
+      String[] contextPathParts = StringUtils.split(contextPath, "/");
+      String siteRootPath = null;
+      if (contextPathParts.length > siteRootLevel && StringUtils.equals(contextPathParts[0], "content")) {
+        StringBuilder siteRootPathBuilder = new StringBuilder();
+        for (int i = 0; i <= siteRootLevel; i++) {
+          siteRootPathBuilder.append('/').append(contextPathParts[i]);
+        }
+        siteRootPath = siteRootPathBuilder.toString();
+      }
+      siteRoot = new SiteRoot(siteRootPath, siteRootLevel);
+      cache.put(key, siteRoot);
+    }
+    return siteRoot;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, SiteRoot> getSiteRootCache() {
+    if (siteRoots == null) {
+      if (request != null) {
+        siteRoots = (Map<String, SiteRoot>)request.getAttribute(RA_SITE_ROOTS);
+        if (siteRoots == null) {
+          siteRoots = new HashMap<>();
+          request.setAttribute(RA_SITE_ROOTS, siteRoots);
+        }
+      }
+      else {
+        siteRoots = new HashMap<>();
+      }
+    }
+    return siteRoots;
+  }
+
+  /**
+   * Checks if the path equals the given site root path or is a descendant of it, and contains no
+   * empty path segments that would be removed when the path is rewritten.
+   * @param path Path
+   * @param siteRootPath Normalized site root path
+   * @return true if path can be used unchanged
+   */
+  private static boolean isNormalizedPathWithin(String path, String siteRootPath) {
+    if (!path.startsWith(siteRootPath)) {
+      return false;
+    }
+    int length = siteRootPath.length();
+    if (path.length() == length) {
+      return true;
+    }
+    return path.charAt(length) == '/'
+        && path.charAt(path.length() - 1) != '/'
+        && path.indexOf("//", length) < 0;
+  }
+
   String externalizeLinkUrl(final String url, final Page targetPage, final UrlMode urlMode) {
 
     // check for empty url
@@ -134,7 +208,7 @@ public final class UrlHandlerImpl implements UrlHandler {
     }
 
     // apply sling mapping, namespace mangling and add webapp context path if required
-    String externalizedUrl = Externalizer.externalizeUrl(url, resolver, request);
+    String externalizedUrl = Externalizer.externalizeUrl(url, resolver, request, resourceMappingCache);
 
     // add link URL prefix (scheme/hostname or integrator placeholder) if required
     String linkUrlPrefix = getLinkUrlPrefix(urlMode, targetPage);
@@ -167,7 +241,7 @@ public final class UrlHandlerImpl implements UrlHandler {
     }
 
     // apply sling mapping when externalizing URLs
-    String externalizedUrl = Externalizer.externalizeUrl(url, resolver, request);
+    String externalizedUrl = Externalizer.externalizeUrl(url, resolver, request, resourceMappingCache);
 
     // add resource URL prefix (scheme/hostname or integrator placeholder) if required
     String resourceUrlPrefix = getResourceUrlPrefix(urlMode, resource);
@@ -181,127 +255,120 @@ public final class UrlHandlerImpl implements UrlHandler {
     return mode.getResourceUrlPrefix(self, slingSettings.getRunModes(), currentPage, targetResource);
   }
 
-  String buildUrl(String path, String selector, String extension, String suffix) { //NOPMD
+  String buildUrl(String path, String selector, String extension, String suffix, //NOPMD
+      String queryString, Set<String> inheritableParameterNames, String fragment) {
     if (StringUtils.isBlank(path)) {
       return null;
     }
 
-    // Extension url part
-    StringBuilder extensionPart = new StringBuilder();
-    if (StringUtils.isNotBlank(extension)) {
-      extensionPart.append('.').append(extension);
-    }
+    UrlComposer url = new UrlComposer().path(path, selector, extension, suffix);
 
-    // Selector url part
-    StringBuilder selectorPart = new StringBuilder();
-    if (StringUtils.isNotBlank(selector)) {
-      // prepend delimiter to selector if required
-      if (!StringUtils.startsWith(selector, ".")) {
-        selectorPart.append('.');
+    // append query string and inherit query parameters from current request
+    if (StringUtils.isNotEmpty(queryString) || inheritableParameterNames != null) {
+      url.startQueryString().queryString(queryString);
+      if (inheritableParameterNames != null && request != null) {
+        appendInheritableParameters(url, inheritableParameterNames);
       }
-      selectorPart.append(selector);
+      url.endQueryString();
     }
 
-    // Suffix part
-    StringBuilder suffixPart = new StringBuilder();
-    if (StringUtils.isNotBlank(suffix)) {
-      // prepend delimiter to suffix if required and add extension
-      if (!StringUtils.startsWith(suffix, "/")) {
-        suffixPart = suffixPart.append("/");
-      }
-      suffixPart.append(suffix);
-
-      // if suffix does not contain a file extension add main file extension
-      if (!StringUtils.contains(suffix, ".")) {
-        suffixPart.append(extensionPart);
-      }
-
-      // add a ".suffix" selector to avoid overlapping of filenames between suffixed and non-suffixed versions of the same page in the dispatcher cache
-      selectorPart.append('.').append(UrlHandler.SELECTOR_SUFFIX);
+    // set fragment
+    if (StringUtils.isNotEmpty(fragment)) {
+      url.fragment(fragment);
     }
 
-    // build externalized url
-    return path + selectorPart.toString() + extensionPart.toString() + suffixPart.toString();
+    return url.build();
   }
 
-  String appendQueryString(String url, String queryString, Set<String> inheritableParameterNames) {
-    if (StringUtils.isEmpty(url)) {
-      return url;
+  /**
+   * Inherit query parameters from current request (only if the parameter is not already included in the query string).
+   * @param url Url composer
+   * @param inheritableParameterNames Inheritable parameter names
+   */
+  private void appendInheritableParameters(UrlComposer url, Set<String> inheritableParameterNames) {
+    InheritableParameters inheritableParameters = getInheritableParameters();
+    for (String parameterName : inheritableParameterNames) {
+      if (!url.hasQueryParameter(parameterName)) {
+        url.queryString(inheritableParameters.getQueryString(parameterName));
+      }
     }
+  }
 
-    // split url from existing query parameters
-    StringBuilder urlBuilder = new StringBuilder();
-    StringBuilder queryParams = new StringBuilder();
-    int separatorPos = url.indexOf('?');
-    if (separatorPos >= 0) {
-      queryParams.append(url.substring(separatorPos + 1));
-      urlBuilder.append(url.substring(0, separatorPos));
-    }
-    else {
-      urlBuilder.append(url);
+  /**
+   * Get query string fragments of inheritable parameters from current request.
+   * They are cached per request as long as the query string of the request does not change.
+   * @return Inheritable parameters
+   */
+  private InheritableParameters getInheritableParameters() {
+    String queryString = request.getQueryString();
+    Object cached = request.getAttribute(RA_INHERITABLE_PARAMETERS);
+    if (cached instanceof InheritableParameters
+        && StringUtils.equals(((InheritableParameters)cached).requestQueryString, queryString)) {
+      return (InheritableParameters)cached;
     }
+    InheritableParameters inheritableParameters = new InheritableParameters(request, queryString);
+    request.setAttribute(RA_INHERITABLE_PARAMETERS, inheritableParameters);
+    return inheritableParameters;
+  }
 
-    // append new query parameters
-    if (StringUtils.isNotBlank(queryString)) {
-      if (queryParams.length() > 0) {
-        queryParams.append('&');
-      }
-      queryParams.append(queryString);
-    }
+  /**
+   * Site root path and level for a context path.
+   */
+  private static final class SiteRoot {
 
-    // inherit query parameters from current request (only if the parameter is not already included in the params list)
-    if (inheritableParameterNames != null && request != null) {
-      for (String parameterName : inheritableParameterNames) {
-        if (queryParams.indexOf(parameterName + "=") == -1) {
-          String[] values = RequestParam.getMultiple(request, parameterName);
-          if (values != null) {
-            for (String value : values) {
-              if (StringUtils.isNotEmpty(value)) {
-                if (queryParams.length() > 0) {
-                  queryParams.append('&');
-                }
-                queryParams.append(parameterName);
-                queryParams.append('=');
-                queryParams.append(value);
-              }
-            }
-          }
-        }
-      }
-    }
+    /**
+     * Site root path, or null if context path is not valid.
+     */
+    private final String path;
+    private final int level;
 
-    // build complete url
-    if (queryParams.length() > 0) {
-      urlBuilder.append('?');
-      urlBuilder.append(queryParams);
+    SiteRoot(String path, int level) {
+      this.path = path;
+      this.level = level;
     }
-    return urlBuilder.toString();
+
   }
 
-  String setFragment(String url, String fragment) {
-    if (StringUtils.isEmpty(url)) {
-      return url;
-    }
+  /**
+   * Decoded query string fragments of request parameters, built lazily for each parameter name.
+   */
+  private static final class InheritableParameters {
 
-    // strip off anchor if already present
-    StringBuilder urlBuilder;
-    int index = url.indexOf('#');
-    if (index >= 0) {
-      urlBuilder = new StringBuilder(url.substring(0, index));
-    }
-    else {
-      urlBuilder = new StringBuilder(url);
+    private final SlingHttpServletRequest request;
+    private final String requestQueryString;
+    private final Map<String, String> queryStrings = new HashMap<>();
+
+    InheritableParameters(SlingHttpServletRequest request, String requestQueryString) {
+      this.request = request;
+      this.requestQueryString = requestQueryString;
     }
 
-    // prepend "#" for anchor if not present
-    if (StringUtils.isNotBlank(fragment)) {
-      if (!StringUtils.startsWith(fragment, "#")) {
-        urlBuilder.append('#');
+    /**
+     * @param parameterName Parameter name
+     * @return Query string fragment with all non-empty values of this parameter (e.g. "param=value1&amp;param=value2"),
+     *         or empty string if parameter is not set
+     */
+    String getQueryString(String parameterName) {
+      String queryString = queryStrings.get(parameterName);
+      if (queryString == null) {
+        StringBuilder fragment = new StringBuilder();
+        String[] values = RequestParam.getMultiple(request, parameterName);
+        if (values != null) {
+          for (String value : values) {
+            if (StringUtils.isNotEmpty(value)) {
+              if (fragment.length() > 0) {
+                fragment.append('&');
+              }
+              fragment.append(parameterName).append('=').append(value);
+            }
+          }
+        }
+        queryString = fragment.toString();
+        queryStrings.put(parameterName, queryString);
       }
-      urlBuilder.append(fragment);
+      return queryString;
     }
 
-    return urlBuilder.toString();
   }
 
 }
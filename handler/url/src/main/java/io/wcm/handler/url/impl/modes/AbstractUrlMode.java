@@ -62,6 +62,7 @@ abstract class AbstractUrlMode implements UrlMode {
 
   /**
    * Get URL configuration for target resource. If this is invalid or not available, get it from adaptable.
+   * Within a request the URL configurations are cached per resource path.
    * @param adaptable Adaptable (request or resource)
    * @param targetResource Target resource (may be null)
    * @return Url config (never null)
@@ -69,10 +70,10 @@ abstract class AbstractUrlMode implements UrlMode {
   protected UrlConfig getUrlConfigForTarget(Adaptable adaptable, Resource targetResource) {
     UrlConfig config = null;
     if (targetResource != null) {
-      config = new UrlConfig(targetResource);
+      config = UrlConfig.get(targetResource, adaptable);
     }
     if (config == null || !config.isValid()) {
-      config = new UrlConfig(adaptable);
+      config = UrlConfig.get(adaptable, adaptable);
     }
     return config;
   }
@@ -84,7 +84,7 @@ public final class DefaultUrlMode extends AbstractUrlMode {
     boolean notInCurrentSite = !StringUtils.equals(currentSiteRoot, pathSiteRoot);
 
     if (notInCurrentSite) {
-      UrlConfig targetUrlConfig = new UrlConfig(targetResource);
+      UrlConfig targetUrlConfig = UrlConfig.get(targetResource, adaptable);
       return targetUrlConfig.isValid();
     }
     else {
@@ -22,21 +22,32 @@ package io.wcm.handler.url.impl.modes;
 import io.wcm.config.api.Configuration;
 import io.wcm.handler.url.UrlParams;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.Adaptable;
+import org.apache.sling.api.resource.Resource;
 
 /**
  * Helper class for accessing site url configuration in URL mode implementation.
  */
 class UrlConfig {
 
+  static final String REQUEST_ATTRIBUTE_CACHE = UrlConfig.class.getName() + ".cache";
+
   private final Configuration config;
   private final String siteUrl;
   private final String siteUrlSecure;
   private final String siteUrlAuthor;
 
   public UrlConfig(Adaptable adaptable) {
-    this.config = adaptable.adaptTo(Configuration.class);
+    this(adaptable.adaptTo(Configuration.class));
+  }
+
+  private UrlConfig(Configuration config) {
+    this.config = config;
     if (this.config != null) {
       this.siteUrl = config.get(UrlParams.SITE_URL);
       this.siteUrlSecure = StringUtils.defaultString(config.get(UrlParams.SITE_URL_SECURE), this.siteUrl);
@@ -49,6 +60,70 @@ class UrlConfig {
     }
   }
 
+  /**
+   * Get URL configuration for the given resource or request. Inside a request the URL configurations are cached
+   * per configuration ID for the lifetime of the request, so resources sharing the same configuration share one
+   * URL configuration. The resource path is used as front cache to skip the configuration lookup for resources that
+   * were already resolved.
+   * @param adaptable Resource or request to get the URL configuration for
+   * @param requestContext Adaptable the URL handler was adapted from - used as cache scope if it is a request
+   * @return Url config (never null)
+   */
+  public static UrlConfig get(Adaptable adaptable, Adaptable requestContext) {
+    String path = getResourcePath(adaptable);
+    RequestCache cache = getRequestCache(requestContext);
+    if (path == null || cache == null) {
+      return new UrlConfig(adaptable);
+    }
+    UrlConfig urlConfig = cache.byPath.get(path);
+    if (urlConfig == null) {
+      Configuration config = adaptable.adaptTo(Configuration.class);
+      String configurationId = config != null ? config.getConfigurationId() : null;
+      urlConfig = cache.byConfigurationId.get(configurationId);
+      if (urlConfig == null) {
+        urlConfig = new UrlConfig(config);
+        cache.byConfigurationId.put(configurationId, urlConfig);
+      }
+      cache.byPath.put(path, urlConfig);
+    }
+    return urlConfig;
+  }
+
+  private static String getResourcePath(Adaptable adaptable) {
+    Resource resource = null;
+    if (adaptable instanceof Resource) {
+      resource = (Resource)adaptable;
+    }
+    else if (adaptable instanceof SlingHttpServletRequest) {
+      resource = ((SlingHttpServletRequest)adaptable).getResource();
+    }
+    return resource != null ? resource.getPath() : null;
+  }
+
+  private static RequestCache getRequestCache(Adaptable requestContext) {
+    if (!(requestContext instanceof SlingHttpServletRequest)) {
+      return null;
+    }
+    SlingHttpServletRequest request = (SlingHttpServletRequest)requestContext;
+    RequestCache cache = (RequestCache)request.getAttribute(REQUEST_ATTRIBUTE_CACHE);
+    if (cache == null) {
+      cache = new RequestCache();
+      request.setAttribute(REQUEST_ATTRIBUTE_CACHE, cache);
+    }
+    return cache;
+  }
+
+  /**
+   * URL configurations cached in a request attribute.
+   */
+  private static final class RequestCache {
+
+    // configuration id is null for resources without configuration
+    private final Map<String, UrlConfig> byConfigurationId = new HashMap<>();
+    private final Map<String, UrlConfig> byPath = new HashMap<>();
+
+  }
+
   /**
    * @return Site URL
    */
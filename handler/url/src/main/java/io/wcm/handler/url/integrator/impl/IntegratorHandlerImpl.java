@@ -27,8 +27,6 @@ import io.wcm.handler.url.spi.UrlHandlerConfig;
 import io.wcm.sling.commons.request.RequestPath;
 import io.wcm.sling.models.annotations.AemObject;
 
-import java.util.Collection;
-
 import javax.annotation.PostConstruct;
 
 import org.apache.commons.lang3.StringUtils;
@@ -49,6 +47,8 @@ import com.day.cq.wcm.api.Page;
 }, adapters = IntegratorHandler.class)
 public final class IntegratorHandlerImpl implements IntegratorHandler {
 
+  private static final String RA_TEMPLATE_MODE = IntegratorHandlerImpl.class.getName() + ".templateMode";
+
   @Self
   private UrlHandlerConfig urlHandlerConfig;
 
@@ -68,12 +68,29 @@ public final class IntegratorHandlerImpl implements IntegratorHandler {
 
   /**
    * Detect integrator template modes - check selectors in current url.
+   * The result is cached for the current request and selector string.
    */
   private void detectIntegratorTemplateModes() {
-    if (request != null && RequestPath.hasSelector(request, SELECTOR_INTEGRATORTEMPLATE_SECURE)) {
+    if (request == null) {
+      return;
+    }
+    String selectorString = request.getRequestPathInfo().getSelectorString();
+    TemplateModeDetection detection = null;
+    Object cached = request.getAttribute(RA_TEMPLATE_MODE);
+    if (cached instanceof TemplateModeDetection
+        && StringUtils.equals(((TemplateModeDetection)cached).selectorString, selectorString)) {
+      detection = (TemplateModeDetection)cached;
+    }
+    else {
+      detection = new TemplateModeDetection(selectorString,
+          RequestPath.hasSelector(request, SELECTOR_INTEGRATORTEMPLATE_SECURE),
+          RequestPath.hasSelector(request, SELECTOR_INTEGRATORTEMPLATE));
+      request.setAttribute(RA_TEMPLATE_MODE, detection);
+    }
+    if (detection.secureSelector) {
       integratorTemplateSecureMode = true;
     }
-    else if (request != null && RequestPath.hasSelector(request, SELECTOR_INTEGRATORTEMPLATE)) {
+    else if (detection.selector) {
       integratorTemplateMode = true;
     }
   }
@@ -143,22 +160,8 @@ public final class IntegratorHandlerImpl implements IntegratorHandler {
    * @return Integrator mode
    */
   private IntegratorMode getIntegratorMode(ValueMap properties) {
-    IntegratorMode mode = null;
-    Collection<IntegratorMode> integratorModes = urlHandlerConfig.getIntegratorModes();
     String modeString = properties.get(IntegratorNameConstants.PN_INTEGRATOR_MODE, String.class);
-    if (StringUtils.isNotEmpty(modeString)) {
-      for (IntegratorMode candidate : integratorModes) {
-        if (StringUtils.equals(modeString, candidate.getId())) {
-          mode = candidate;
-          break;
-        }
-      }
-    }
-    // fallback to first mode defined in configuration
-    if (mode == null && !integratorModes.isEmpty()) {
-      mode = integratorModes.iterator().next();
-    }
-    return mode;
+    return IntegratorModeIndex.get(urlHandlerConfig).getMode(modeString);
   }
 
   /**
@@ -193,7 +196,7 @@ public final class IntegratorHandlerImpl implements IntegratorHandler {
         return true;
       }
       else if (integratorProtocol == IntegratorProtocol.AUTO) {
-        return RequestPath.hasSelector(request, IntegratorHandler.SELECTOR_INTEGRATORTEMPLATE_SECURE);
+        return integratorTemplateSecureMode;
       }
 
     }
@@ -214,4 +217,21 @@ public final class IntegratorHandlerImpl implements IntegratorHandler {
     }
   }
 
+  /**
+   * Result of integrator template selector detection for a selector string.
+   */
+  private static final class TemplateModeDetection {
+
+    private final String selectorString;
+    private final boolean secureSelector;
+    private final boolean selector;
+
+    TemplateModeDetection(String selectorString, boolean secureSelector, boolean selector) {
+      this.selectorString = selectorString;
+      this.secureSelector = secureSelector;
+      this.selector = selector;
+    }
+
+  }
+
 }
@@ -0,0 +1,93 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.integrator.impl;
+
+import io.wcm.handler.url.integrator.IntegratorMode;
+import io.wcm.handler.url.spi.UrlHandlerConfig;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Precomputed lookup table for the integrator modes defined by an URL handler configuration.
+ * The index is built once per URL handler configuration instance. Configuration instances are referenced weakly,
+ * so the index does not keep configuration objects (and their classes) alive.
+ */
+final class IntegratorModeIndex {
+
+  private static final Cache<UrlHandlerConfig, IntegratorModeIndex> INDEX_CACHE = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build();
+
+  private final Map<String, IntegratorMode> modesById;
+  private final IntegratorMode defaultMode;
+
+  IntegratorModeIndex(Collection<IntegratorMode> integratorModes) {
+    Map<String, IntegratorMode> map = new LinkedHashMap<>();
+    IntegratorMode first = null;
+    for (IntegratorMode mode : integratorModes) {
+      if (first == null) {
+        first = mode;
+      }
+      // first mode defined with the same id wins
+      if (!map.containsKey(mode.getId())) {
+        map.put(mode.getId(), mode);
+      }
+    }
+    this.modesById = ImmutableMap.copyOf(map);
+    this.defaultMode = first;
+  }
+
+  /**
+   * Get index for the integrator modes of the given URL handler configuration.
+   * @param urlHandlerConfig URL handler config
+   * @return Integrator mode index
+   */
+  static IntegratorModeIndex get(UrlHandlerConfig urlHandlerConfig) {
+    IntegratorModeIndex index = INDEX_CACHE.getIfPresent(urlHandlerConfig);
+    if (index == null) {
+      index = new IntegratorModeIndex(urlHandlerConfig.getIntegratorModes());
+      INDEX_CACHE.put(urlHandlerConfig, index);
+    }
+    return index;
+  }
+
+  /**
+   * @param modeId Integrator mode id
+   * @return Integrator mode with the given id, or the first mode defined if not found or id is null.
+   *         Returns null if no integrator modes are defined at all.
+   */
+  IntegratorMode getMode(String modeId) {
+    IntegratorMode mode = null;
+    if (modeId != null) {
+      mode = modesById.get(modeId);
+    }
+    if (mode == null) {
+      mode = defaultMode;
+    }
+    return mode;
+  }
+
+}
@@ -0,0 +1,397 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.rewriter.impl;
+
+import io.wcm.handler.url.UrlHandler;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.cocoon.xml.sax.AbstractSAXPipe;
+import org.apache.cocoon.xml.sax.AttributesImpl;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.rewriter.ProcessingComponentConfiguration;
+import org.apache.sling.rewriter.ProcessingContext;
+import org.apache.sling.rewriter.Transformer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * HTML transformer that externalizes the resource URLs of all elements in a single pass:
+ * resource URL attributes like <code>src</code> or <code>poster</code>, image candidate lists in <code>srcset</code>
+ * and <code>url(...)</code> references in inline <code>style</code> attributes.
+ * <p>
+ * <code>href</code> attributes are only rewritten for the configured elements (<code>link</code> by default) - page
+ * links are externalized by the link handler and must not be mapped a second time. <code>data-*</code> attributes
+ * are only rewritten if their name is configured explicitly.
+ * </p>
+ * <p>
+ * Only site-relative URLs starting with a single "/" are externalized. Each distinct URL is externalized only once
+ * per response, the number of rewritten URLs and the time spent is logged at the end of each document.
+ * </p>
+ */
+class UrlAttributeRewriterTransformer extends AbstractSAXPipe implements Transformer {
+
+  private enum AttributeType {
+    URL,
+    SRCSET,
+    STYLE
+  }
+
+  private static final Map<String, AttributeType> ATTRIBUTE_TYPES = ImmutableMap.<String, AttributeType>builder()
+      .put("src", AttributeType.URL)
+      .put("action", AttributeType.URL)
+      .put("formaction", AttributeType.URL)
+      .put("poster", AttributeType.URL)
+      .put("background", AttributeType.URL)
+      .put("cite", AttributeType.URL)
+      .put("longdesc", AttributeType.URL)
+      .put("data", AttributeType.URL)
+      .put("srcset", AttributeType.SRCSET)
+      .put("style", AttributeType.STYLE)
+      .build();
+
+  private static final String STYLE_URL_START = "url(";
+  private static final String[] STYLE_URL_QUOTES = new String[] {
+    "\"",
+    "'",
+    "&quot;",
+    "&#34;",
+    "&#39;",
+    "&apos;"
+  };
+
+  private UrlHandler urlHandler;
+  private UrlAttributeRewriterTransformerConfig transformerConfig;
+  private final Map<String, String> rewrittenUrls = new HashMap<>();
+
+  // per-response statistics
+  private int urlCount;
+  private int rewrittenUrlCount;
+  private int distinctRewrittenUrlCount;
+  private long processingTimeNanos;
+
+  private static final Logger log = LoggerFactory.getLogger(UrlAttributeRewriterTransformer.class.getName());
+
+  @Override
+  public void init(ProcessingContext pipelineContext, ProcessingComponentConfiguration config) {
+    transformerConfig = new UrlAttributeRewriterTransformerConfig(config.getConfiguration());
+    urlHandler = pipelineContext.getRequest().adaptTo(UrlHandler.class);
+    if (urlHandler == null) {
+      log.warn("Unable to get URL handler instance - URLs are not externalized.");
+    }
+    rewrittenUrls.clear();
+    urlCount = 0;
+    rewrittenUrlCount = 0;
+    distinctRewrittenUrlCount = 0;
+    processingTimeNanos = 0;
+  }
+
+  @Override
+  public void startElement(String nsUri, String name, String raw, Attributes attrs) throws SAXException {
+    if (urlHandler == null || attrs.getLength() == 0) {
+      super.startElement(nsUri, name, raw, attrs);
+      return;
+    }
+
+    long startTime = System.nanoTime();
+    String elementName = toLowerCase(StringUtils.defaultIfEmpty(name, raw));
+    AttributesImpl newAttrs = null;
+    for (int i = 0; i < attrs.getLength(); i++) {
+      AttributeType attributeType = getAttributeType(elementName,
+          toLowerCase(StringUtils.defaultIfEmpty(attrs.getLocalName(i), attrs.getQName(i))));
+      if (attributeType == null) {
+        continue;
+      }
+      String rewrittenValue = rewriteAttributeValue(attributeType, attrs.getValue(i));
+      if (rewrittenValue != null) {
+        if (newAttrs == null) {
+          newAttrs = new AttributesImpl(attrs);
+        }
+        newAttrs.setValue(i, rewrittenValue);
+      }
+    }
+    processingTimeNanos += System.nanoTime() - startTime;
+
+    super.startElement(nsUri, name, raw, newAttrs != null ? newAttrs : attrs);
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    log.debug("Externalized {} URLs ({} distinct) in {} attribute occurrences, took {} ms.",
+        rewrittenUrlCount, distinctRewrittenUrlCount, urlCount, processingTimeNanos / 1000000);
+    super.endDocument();
+  }
+
+  /**
+   * @param name Element or attribute name
+   * @return Lower case name - the same string instance if the name is already lower case
+   */
+  private static String toLowerCase(String name) {
+    return name != null ? name.toLowerCase(Locale.ENGLISH) : null;
+  }
+
+  private AttributeType getAttributeType(String elementName, String attributeName) {
+    if (attributeName == null) {
+      return null;
+    }
+    AttributeType attributeType = ATTRIBUTE_TYPES.get(attributeName);
+    if (attributeType == null
+        && (transformerConfig.isRewriteElementAttribute(elementName, attributeName)
+        || transformerConfig.isRewriteDataAttribute(attributeName))) {
+      attributeType = AttributeType.URL;
+    }
+    return attributeType;
+  }
+
+  /**
+   * @param attributeType Attribute type
+   * @param value Attribute value (may contain HTML entities)
+   * @return Rewritten attribute value or null if nothing was rewritten
+   */
+  private String rewriteAttributeValue(AttributeType attributeType, String value) {
+    if (StringUtils.isEmpty(value)) {
+      return null;
+    }
+    switch (attributeType) {
+      case SRCSET:
+        return rewriteSrcset(value);
+      case STYLE:
+        return rewriteStyle(value);
+      default:
+        return rewriteUrl(unescape(value));
+    }
+  }
+
+  /**
+   * Externalizes a single URL token contained in a larger attribute value. Only the token itself is unescaped,
+   * if it contained entities the ampersands of the rewritten URL are escaped again to keep the value consistent.
+   * @param token URL token (may contain HTML entities)
+   * @return Rewritten token or null if nothing was rewritten
+   */
+  private String rewriteUrlToken(String token) {
+    String url = unescape(token);
+    String rewrittenUrl = rewriteUrl(url);
+    if (rewrittenUrl != null && url != token) {
+      rewrittenUrl = StringUtils.replace(rewrittenUrl, "&", "&amp;");
+    }
+    return rewrittenUrl;
+  }
+
+  /**
+   * Remove escaping - only required if the value contains entities at all.
+   * @param value Value
+   * @return Unescaped value, or the same instance if it contains no entities
+   */
+  private static String unescape(String value) {
+    if (value.indexOf('&') >= 0) {
+      return StringEscapeUtils.unescapeHtml4(value);
+    }
+    return value;
+  }
+
+  /**
+   * Rewrites all URLs of a comma-separated list of image candidate strings with optional descriptors.
+   * @param value srcset value
+   * @return Rewritten value or null if nothing was rewritten
+   */
+  private String rewriteSrcset(String value) {
+    StringBuilder result = null;
+    int length = value.length();
+    int copied = 0;
+    int pos = 0;
+    while (pos < length) {
+
+      // skip separators
+      char c = value.charAt(pos);
+      if (c == ',' || Character.isWhitespace(c)) {
+        pos++;
+        continue;
+      }
+
+      // URL is terminated by whitespace, trailing commas belong to the separator
+      int start = pos;
+      while (pos < length && !Character.isWhitespace(value.charAt(pos))) {
+        pos++;
+      }
+      int end = pos;
+      while (end > start && value.charAt(end - 1) == ',') {
+        end--;
+      }
+
+      String rewrittenUrl = rewriteUrlToken(value.substring(start, end));
+      if (rewrittenUrl != null) {
+        if (result == null) {
+          result = new StringBuilder(length + 64);
+        }
+        result.append(value, copied, start).append(rewrittenUrl);
+        copied = end;
+      }
+
+      // skip descriptor up to next candidate
+      if (end == pos) {
+        while (pos < length && value.charAt(pos) != ',') {
+          pos++;
+        }
+      }
+    }
+    return finish(result, value, copied);
+  }
+
+  /**
+   * Rewrites all URLs of <code>url(...)</code> references in an inline style.
+   * @param value Style value
+   * @return Rewritten value or null if nothing was rewritten
+   */
+  private String rewriteStyle(String value) {
+    StringBuilder result = null;
+    int copied = 0;
+    int pos = StringUtils.indexOfIgnoreCase(value, STYLE_URL_START, 0);
+    while (pos >= 0) {
+      int start = pos + STYLE_URL_START.length();
+      while (start < value.length() && Character.isWhitespace(value.charAt(start))) {
+        start++;
+      }
+      if (start >= value.length()) {
+        break;
+      }
+
+      // URL may be quoted, quotes may be escaped as entities
+      String quote = getStyleUrlQuote(value, start);
+      int end;
+      if (quote != null) {
+        start += quote.length();
+        end = value.indexOf(quote, start);
+      }
+      else {
+        end = value.indexOf(')', start);
+        while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+          end--;
+        }
+      }
+      if (end < 0) {
+        break;
+      }
+
+      String rewrittenUrl = rewriteUrlToken(value.substring(start, end));
+      if (rewrittenUrl != null) {
+        if (result == null) {
+          result = new StringBuilder(value.length() + 64);
+        }
+        result.append(value, copied, start).append(rewrittenUrl);
+        copied = end;
+      }
+
+      pos = StringUtils.indexOfIgnoreCase(value, STYLE_URL_START, end);
+    }
+    return finish(result, value, copied);
+  }
+
+  private static String getStyleUrlQuote(String value, int pos) {
+    for (String quote : STYLE_URL_QUOTES) {
+      if (value.startsWith(quote, pos)) {
+        return quote;
+      }
+    }
+    return null;
+  }
+
+  private static String finish(StringBuilder result, String value, int copied) {
+    if (result == null) {
+      return null;
+    }
+    result.append(value, copied, value.length());
+    return result.toString();
+  }
+
+  /**
+   * Externalizes a single URL, each distinct URL is externalized only once per response.
+   * @param url URL
+   * @return Externalized URL or null if URL is not site-relative or already externalized
+   */
+  private String rewriteUrl(String url) {
+    // only site-relative URLs are externalized
+    if (url.length() < 2 || url.charAt(0) != '/' || url.charAt(1) == '/') {
+      return null;
+    }
+    urlCount++;
+
+    String rewrittenUrl;
+    if (rewrittenUrls.containsKey(url)) {
+      rewrittenUrl = rewrittenUrls.get(url);
+    }
+    else {
+      rewrittenUrl = urlHandler.get(url).buildExternalResourceUrl();
+      if (StringUtils.equals(url, rewrittenUrl)) {
+        rewrittenUrl = null;
+      }
+      else {
+        log.trace("Rewrite URL {} to {}", url, rewrittenUrl);
+        distinctRewrittenUrlCount++;
+      }
+      rewrittenUrls.put(url, rewrittenUrl);
+    }
+
+    if (rewrittenUrl != null) {
+      rewrittenUrlCount++;
+    }
+    return rewrittenUrl;
+  }
+
+  /**
+   * @return Number of site-relative URLs found in the current response
+   */
+  int getUrlCount() {
+    return urlCount;
+  }
+
+  /**
+   * @return Number of URLs rewritten in the current response
+   */
+  int getRewrittenUrlCount() {
+    return rewrittenUrlCount;
+  }
+
+  /**
+   * @return Number of distinct URLs rewritten in the current response
+   */
+  int getDistinctRewrittenUrlCount() {
+    return distinctRewrittenUrlCount;
+  }
+
+  /**
+   * @return Time spent for rewriting attributes in the current response in nanoseconds
+   */
+  long getProcessingTimeNanos() {
+    return processingTimeNanos;
+  }
+
+  @Override
+  public void dispose() {
+    // nothing to do
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.rewriter.impl;
+
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.ValueMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * Configuration for {@link UrlAttributeRewriterTransformer}.
+ */
+class UrlAttributeRewriterTransformerConfig {
+
+  /**
+   * Element/attribute pairs with resource URLs that are rewritten in addition to the generic URL attributes,
+   * e.g. "link:href". Page links in "a:href" are already externalized by the link handler and should not be listed.
+   */
+  static final String PN_REWRITE_ELEMENTS = "rewriteElements";
+
+  /**
+   * Names of data attributes containing resource URLs, e.g. "data-src". Other data attributes are not rewritten.
+   */
+  static final String PN_REWRITE_DATA_ATTRIBUTES = "rewriteDataAttributes";
+
+  private static final String[] REWRITE_ELEMENTS_DEFAULT = {
+    "link:href"
+  };
+
+  private static final String ELEMENT_ATTRIBUTE_SEPARATOR = ":";
+
+  private final SetMultimap<String, String> elementAttributeNames;
+  private final Set<String> dataAttributeNames;
+
+  private static final Logger log = LoggerFactory.getLogger(UrlAttributeRewriterTransformerConfig.class.getName());
+
+  public UrlAttributeRewriterTransformerConfig(ValueMap config) {
+    this.elementAttributeNames = toElementAttributeNamesMap(config.get(PN_REWRITE_ELEMENTS, REWRITE_ELEMENTS_DEFAULT));
+    this.dataAttributeNames = toLowerCaseSet(config.get(PN_REWRITE_DATA_ATTRIBUTES, new String[0]));
+  }
+
+  private static SetMultimap<String, String> toElementAttributeNamesMap(String[] elementAttributeNames) {
+    ImmutableSetMultimap.Builder<String, String> map = ImmutableSetMultimap.builder();
+    for (String item : elementAttributeNames) {
+      String elementName = StringUtils.trim(StringUtils.substringBefore(item, ELEMENT_ATTRIBUTE_SEPARATOR));
+      String attributeName = StringUtils.trim(StringUtils.substringAfter(item, ELEMENT_ATTRIBUTE_SEPARATOR));
+      if (StringUtils.isBlank(elementName) || StringUtils.isBlank(attributeName)) {
+        log.info("Invalid URL attribute rewriter transformer configuration - skipping invalid element entry: " + item);
+      }
+      else {
+        map.put(elementName.toLowerCase(Locale.ENGLISH), attributeName.toLowerCase(Locale.ENGLISH));
+      }
+    }
+    return map.build();
+  }
+
+  private static Set<String> toLowerCaseSet(String[] values) {
+    ImmutableSet.Builder<String> set = ImmutableSet.builder();
+    for (String value : values) {
+      if (StringUtils.isNotBlank(value)) {
+        set.add(StringUtils.trim(value).toLowerCase(Locale.ENGLISH));
+      }
+    }
+    return set.build();
+  }
+
+  /**
+   * @param elementName Element name (lower case)
+   * @param attributeName Attribute name (lower case)
+   * @return true if the attribute of this element is configured for rewriting
+   */
+  public boolean isRewriteElementAttribute(String elementName, String attributeName) {
+    return elementAttributeNames.containsEntry(elementName, attributeName);
+  }
+
+  /**
+   * @param attributeName Attribute name (lower case)
+   * @return true if the data attribute is configured for rewriting
+   */
+  public boolean isRewriteDataAttribute(String attributeName) {
+    return dataAttributeNames.contains(attributeName);
+  }
+
+}
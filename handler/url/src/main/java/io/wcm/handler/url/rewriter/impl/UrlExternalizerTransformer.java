@@ -21,6 +21,9 @@ package io.wcm.handler.url.rewriter.impl;
 
 import io.wcm.handler.url.UrlHandler;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.cocoon.xml.sax.AbstractSAXPipe;
 import org.apache.cocoon.xml.sax.AttributesImpl;
 import org.apache.commons.lang3.StringEscapeUtils;
@@ -35,11 +38,14 @@ import org.xml.sax.SAXException;
 
 /**
  * HTML transformer that rewrites URLs in certain HTML element attributes.
+ * Each transformer instance is used for a single response, the rewrite result of each distinct attribute value is
+ * remembered and reused for further occurrences of the same URL within the response.
  */
 class UrlExternalizerTransformer extends AbstractSAXPipe implements Transformer {
 
   private UrlExternalizerTransformerConfig transformerConfig;
   private UrlHandler urlHandler;
+  private final Map<String, String> rewrittenUrls = new HashMap<>();
 
   private static final Logger log = LoggerFactory.getLogger(UrlExternalizerTransformer.class.getName());
 
@@ -48,6 +54,7 @@ class UrlExternalizerTransformer extends AbstractSAXPipe implements Transformer
     log.trace("Initialize UrlExternalizerTransformer with config: {}", config.getConfiguration());
     transformerConfig = new UrlExternalizerTransformerConfig(config.getConfiguration());
     urlHandler = pipelineContext.getRequest().adaptTo(UrlHandler.class);
+    rewrittenUrls.clear();
   }
 
   @Override
@@ -84,14 +91,18 @@ class UrlExternalizerTransformer extends AbstractSAXPipe implements Transformer
       return;
     }
 
-    // remove escaping
-    url = StringEscapeUtils.unescapeHtml4(url);
-
-    // externalize URL (if it is not already externalized)
-    String rewrittenUrl = urlHandler.get(url).buildExternalResourceUrl();
+    // externalize URL (if it is not already externalized) - reuse result for URLs already processed in this response
+    String rewrittenUrl;
+    if (rewrittenUrls.containsKey(url)) {
+      rewrittenUrl = rewrittenUrls.get(url);
+    }
+    else {
+      rewrittenUrl = rewriteUrl(url);
+      rewrittenUrls.put(url, rewrittenUrl);
+    }
 
-    if (StringUtils.equals(url, rewrittenUrl)) {
-      log.debug("Rewrite element {}: Skip - URL is already externalized: {}", name, url);
+    if (rewrittenUrl == null) {
+      log.trace("Rewrite element {}: Skip - URL is already externalized: {}", name, url);
       super.startElement(nsUri, name, raw, attrs);
       return;
     }
@@ -103,6 +114,29 @@ class UrlExternalizerTransformer extends AbstractSAXPipe implements Transformer
     super.startElement(nsUri, name, raw, newAttrs);
   }
 
+  /**
+   * Externalizes the given URL.
+   * @param attributeValue Attribute value (may contain HTML entities)
+   * @return Rewritten URL or null if URL is already externalized
+   */
+  private String rewriteUrl(String attributeValue) {
+
+    // remove escaping - only required if the value contains entities at all
+    String url = attributeValue;
+    if (url.indexOf('&') >= 0) {
+      url = StringEscapeUtils.unescapeHtml4(url);
+    }
+
+    // externalize URL (if it is not already externalized)
+    String rewrittenUrl = urlHandler.get(url).buildExternalResourceUrl();
+
+    if (StringUtils.equals(url, rewrittenUrl)) {
+      log.debug("URL is already externalized: {}", url);
+      return null;
+    }
+    return rewrittenUrl;
+  }
+
   @Override
   public void dispose() {
     // nothing to do
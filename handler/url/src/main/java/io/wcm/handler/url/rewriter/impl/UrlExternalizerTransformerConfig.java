@@ -19,7 +19,7 @@
  */
 package io.wcm.handler.url.rewriter.impl;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
@@ -27,6 +27,8 @@ import org.apache.sling.api.resource.ValueMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableMap;
+
 /**
  * Configuration for {@link UrlExternalizerTransformer}.
  */
@@ -49,7 +51,7 @@ class UrlExternalizerTransformerConfig {
   }
 
   private static Map<String, String> toElementAttributeNamesMap(String[] elementAttributeNames) {
-    Map<String, String> map = new HashMap<>();
+    Map<String, String> map = new LinkedHashMap<>();
     for (String item : elementAttributeNames) {
       String elementName = StringUtils.trim(StringUtils.substringBefore(item, ELEMENT_ATTRIBUTE_SEPARATOR));
       String attributeName = StringUtils.trim(StringUtils.substringAfter(item, ELEMENT_ATTRIBUTE_SEPARATOR));
@@ -63,7 +65,8 @@ class UrlExternalizerTransformerConfig {
         map.put(elementName, attributeName);
       }
     }
-    return map;
+    // immutable map is read-only and uses a compact hash table optimized for lookups
+    return ImmutableMap.copyOf(map);
   }
 
   public Map<String, String> getElementAttributeNames() {
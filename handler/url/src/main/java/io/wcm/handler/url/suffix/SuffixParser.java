@@ -19,16 +19,11 @@
  */
 package io.wcm.handler.url.suffix;
 
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.KEY_VALUE_DELIMITER;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeKey;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeResourcePathPart;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeValue;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.splitSuffix;
+import io.wcm.handler.url.suffix.impl.SuffixPartIndex;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
@@ -40,11 +35,13 @@ import com.day.cq.wcm.api.PageManager;
 
 /**
  * Parses suffixes from Sling URLs build with {@link SuffixBuilder}.
+ * The suffix is parsed only once per request, all getters are served from the parsed suffix parts.
  */
 @ProviderType
 public final class SuffixParser {
 
   private final SlingHttpServletRequest request;
+  private Resource defaultBaseResource;
 
   /**
    * Create a {@link SuffixParser} with the default {@link SuffixStateKeepingStrategy} (which discards all existing
@@ -163,16 +160,7 @@ public final class SuffixParser {
    * @return the value of that named parameter (or null if not used)
    */
   private String findSuffixPartByKey(String key) {
-    for (String part : splitSuffix(request.getRequestPathInfo().getSuffix())) {
-      if (part.indexOf(KEY_VALUE_DELIMITER) >= 0) {
-        String partKey = decodeKey(part);
-        if (partKey.equals(key)) {
-          String value = decodeValue(part);
-          return value;
-        }
-      }
-    }
-    return null;
+    return SuffixPartIndex.get(request).getValue(key);
   }
 
   /**
@@ -256,29 +244,12 @@ public final class SuffixParser {
     // resolve base path or fallback to current page's content if not specified
     Resource baseResourceToUse = baseResource;
     if (baseResourceToUse == null) {
-      PageManager pageManager = request.getResourceResolver().adaptTo(PageManager.class);
-      Page currentPage = pageManager.getContainingPage(request.getResource());
-      if (currentPage != null) {
-        baseResourceToUse = currentPage.getContentResource();
-      }
-      else {
-        baseResourceToUse = request.getResource();
-      }
+      baseResourceToUse = getDefaultBaseResource();
     }
 
-    // split the suffix to extract the paths of the selected components
-    String[] suffixParts = splitSuffix(request.getRequestPathInfo().getSuffix());
-
-    // iterate over all parts and gather those resources
+    // iterate over all resource path parts of the suffix and gather those resources
     List<Resource> selectedResources = new ArrayList<>();
-    for (String path : suffixParts) {
-
-      // if path contains the key/value-delimiter then don't try to resolve it as a content path
-      if (StringUtils.contains(path, KEY_VALUE_DELIMITER)) {
-        continue;
-      }
-
-      String decodedPath = decodeResourcePathPart(path);
+    for (String decodedPath : SuffixPartIndex.get(request).getResourcePaths()) {
 
       // lookup the resource specified by the path (which is relative to the current page's content resource)
       Resource resource = request.getResourceResolver().getResource(baseResourceToUse, decodedPath);
@@ -297,4 +268,21 @@ public final class SuffixParser {
     return selectedResources;
   }
 
+  /**
+   * @return Current page's content resource or the request resource if it is not contained in a page
+   */
+  private Resource getDefaultBaseResource() {
+    if (defaultBaseResource == null) {
+      PageManager pageManager = request.getResourceResolver().adaptTo(PageManager.class);
+      Page currentPage = pageManager.getContainingPage(request.getResource());
+      if (currentPage != null) {
+        defaultBaseResource = currentPage.getContentResource();
+      }
+      else {
+        defaultBaseResource = request.getResource();
+      }
+    }
+    return defaultBaseResource;
+  }
+
 }
@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.suffix.impl;
+
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.KEY_VALUE_DELIMITER;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeKey;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeResourcePathPart;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeValue;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.splitSuffix;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Immutable index of the decoded key/value parts and resource path parts of a request suffix.
+ * The suffix is parsed only once per request, the index is stored in a request attribute.
+ */
+public final class SuffixPartIndex {
+
+  static final String REQUEST_ATTRIBUTE = SuffixPartIndex.class.getName();
+
+  private final String suffix;
+  private final Map<String, String> values;
+  private final List<String> resourcePaths;
+
+  SuffixPartIndex(String suffix) {
+    this.suffix = suffix;
+
+    Map<String, String> valueMap = new LinkedHashMap<>();
+    ImmutableList.Builder<String> resourcePathList = ImmutableList.builder();
+    for (String part : splitSuffix(suffix)) {
+      if (part.indexOf(KEY_VALUE_DELIMITER) >= 0) {
+        // first occurrence of a key wins
+        String key = decodeKey(part);
+        if (!valueMap.containsKey(key)) {
+          valueMap.put(key, decodeValue(part));
+        }
+      }
+      else {
+        resourcePathList.add(decodeResourcePathPart(part));
+      }
+    }
+    this.values = ImmutableMap.copyOf(valueMap);
+    this.resourcePaths = resourcePathList.build();
+  }
+
+  /**
+   * Get suffix index for the current suffix of the given request.
+   * @param request Request
+   * @return Suffix part index
+   */
+  public static SuffixPartIndex get(SlingHttpServletRequest request) {
+    String suffix = request.getRequestPathInfo().getSuffix();
+    Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+    if (cached instanceof SuffixPartIndex && StringUtils.equals(((SuffixPartIndex)cached).suffix, suffix)) {
+      return (SuffixPartIndex)cached;
+    }
+    SuffixPartIndex index = new SuffixPartIndex(suffix);
+    request.setAttribute(REQUEST_ATTRIBUTE, index);
+    return index;
+  }
+
+  /**
+   * @param key Key of suffix part
+   * @return Decoded value of the first suffix part with this key, or null if not present
+   */
+  public String getValue(String key) {
+    return values.get(key);
+  }
+
+  /**
+   * @return Decoded resource path parts in order of the suffix
+   */
+  public List<String> getResourcePaths() {
+    return resourcePaths;
+  }
+
+}
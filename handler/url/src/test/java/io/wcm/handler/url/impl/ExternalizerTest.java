@@ -21,6 +21,7 @@ package io.wcm.handler.url.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.same;
@@ -125,6 +126,11 @@ public class ExternalizerTest {
   public void testMangleNamespaces() {
     assertEquals("/content/aa/bb/content.png", Externalizer.mangleNamespaces("/content/aa/bb/content.png"));
     assertEquals("/content/aa/bb/_jcr_content.png", Externalizer.mangleNamespaces("/content/aa/bb/jcr:content.png"));
+    assertEquals("/content/_ns1_aa/_ns2_bb", Externalizer.mangleNamespaces("/content/ns1:aa/ns2:bb"));
+    assertEquals("/content/_ns1_aa:bb", Externalizer.mangleNamespaces("/content/ns1:aa:bb"));
+    assertEquals("/content/:aa", Externalizer.mangleNamespaces("/content/:aa"));
+    assertEquals("ns:aa/bb", Externalizer.mangleNamespaces("ns:aa/bb"));
+    assertNull(Externalizer.mangleNamespaces(null));
   }
 
 }
@@ -0,0 +1,177 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+
+import java.util.Map;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.osgi.service.event.Event;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResourceMappingCacheTest {
+
+  @Rule
+  public AemContext context = new AemContext(ResourceResolverType.RESOURCERESOLVER_MOCK);
+
+  @Mock
+  private ResourceResolver resolver;
+
+  private ResourceMappingCache underTest;
+
+  @Before
+  public void setUp() {
+    when(resolver.map(same(context.request()), anyString())).then(new Answer<String>() {
+      @Override
+      public String answer(InvocationOnMock invocation) {
+        return "/mapped" + (String)invocation.getArguments()[1];
+      }
+    });
+    underTest = context.registerInjectActivateService(new ResourceMappingCache());
+  }
+
+  @Test
+  public void testMapCached() {
+    assertEquals("/mapped/content/path1", underTest.map("/content/path1", resolver, context.request()));
+    assertEquals("/mapped/content/path1", underTest.map("/content/path1", resolver, context.request()));
+    assertEquals("/mapped/content/path2", underTest.map("/content/path2", resolver, context.request()));
+
+    verify(resolver, times(1)).map(context.request(), "/content/path1");
+    verify(resolver, times(1)).map(context.request(), "/content/path2");
+  }
+
+  @Test
+  public void testMapDifferentContextPath() {
+    underTest.map("/content/path1", resolver, context.request());
+    context.request().setContextPath("/context2");
+    underTest.map("/content/path1", resolver, context.request());
+
+    verify(resolver, times(2)).map(context.request(), "/content/path1");
+  }
+
+  @Test
+  public void testDisabled() {
+    underTest = context.registerInjectActivateService(new ResourceMappingCache(),
+        ImmutableValueMap.of(ResourceMappingCache.PROPERTY_ENABLED, false));
+
+    underTest.map("/content/path1", resolver, context.request());
+    underTest.map("/content/path1", resolver, context.request());
+
+    verify(resolver, times(2)).map(context.request(), "/content/path1");
+  }
+
+  @Test
+  public void testInvalidateOnSlingMappingChange() {
+    underTest.map("/content/path1", resolver, context.request());
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, ImmutableValueMap.of(
+        SlingConstants.PROPERTY_PATH, "/etc/map/http/localhost")));
+    underTest.map("/content/path1", resolver, context.request());
+
+    verify(resolver, times(2)).map(context.request(), "/content/path1");
+  }
+
+  @Test
+  public void testInvalidateOnVanityPathChange() {
+    underTest.map("/content/path1", resolver, context.request());
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, ImmutableValueMap.of(
+        SlingConstants.PROPERTY_PATH, "/content/path2/jcr:content",
+        SlingConstants.PROPERTY_CHANGED_ATTRIBUTES, new String[] {
+          "jcr:title", "sling:vanityPath"
+        })));
+    underTest.map("/content/path1", resolver, context.request());
+
+    verify(resolver, times(2)).map(context.request(), "/content/path1");
+  }
+
+  @Test
+  public void testInvalidateOnResourceRemoved() {
+    underTest.map("/content/path1", resolver, context.request());
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, ImmutableValueMap.of(
+        SlingConstants.PROPERTY_PATH, "/content/path2")));
+    underTest.map("/content/path1", resolver, context.request());
+
+    verify(resolver, times(2)).map(context.request(), "/content/path1");
+  }
+
+  @Test
+  public void testMapDifferentUser() {
+    underTest.map("/content/path1", resolver, context.request());
+    when(resolver.getUserID()).thenReturn("user2");
+    underTest.map("/content/path1", resolver, context.request());
+
+    verify(resolver, times(2)).map(context.request(), "/content/path1");
+  }
+
+  @Test
+  public void testNoInvalidateOnResourceRemovedOutsideContent() {
+    underTest.map("/content/path1", resolver, context.request());
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, ImmutableValueMap.of(
+        SlingConstants.PROPERTY_PATH, "/var/audit/path1")));
+    underTest.map("/content/path1", resolver, context.request());
+
+    verify(resolver, times(1)).map(context.request(), "/content/path1");
+  }
+
+  @Test
+  public void testInvalidateOnSlingMappingRemoved() {
+    underTest.map("/content/path1", resolver, context.request());
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_REMOVED, ImmutableValueMap.of(
+        SlingConstants.PROPERTY_PATH, "/etc/map/http/localhost")));
+    underTest.map("/content/path1", resolver, context.request());
+
+    verify(resolver, times(2)).map(context.request(), "/content/path1");
+  }
+
+  @Test
+  public void testNoInvalidateOnUnrelatedChange() {
+    underTest.map("/content/path1", resolver, context.request());
+    underTest.handleEvent(event(SlingConstants.TOPIC_RESOURCE_CHANGED, ImmutableValueMap.of(
+        SlingConstants.PROPERTY_PATH, "/content/path2/jcr:content",
+        SlingConstants.PROPERTY_CHANGED_ATTRIBUTES, new String[] {
+          "jcr:title"
+        })));
+    underTest.map("/content/path1", resolver, context.request());
+
+    verify(resolver, times(1)).map(context.request(), "/content/path1");
+  }
+
+  private static Event event(String topic, Map<String, Object> props) {
+    return new Event(topic, props);
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UrlComposerTest {
+
+  @Test
+  public void testPath() {
+    assertEquals("/the/path.sel1.suffix.ext/suffix1.ext",
+        new UrlComposer().path("/the/path", "sel1", "ext", "suffix1").build());
+  }
+
+  @Test
+  public void testQueryString() {
+    UrlComposer url = new UrlComposer().path("/the/path", null, "ext", null)
+        .startQueryString()
+        .queryString("p1=v1")
+        .queryParameter("p2", "v2");
+    assertTrue(url.hasQueryParameter("p1"));
+    assertTrue(url.hasQueryParameter("p2"));
+    assertFalse(url.hasQueryParameter("p3"));
+    assertFalse(url.hasQueryParameter("v1"));
+    assertEquals("/the/path.ext?p1=v1&p2=v2", url.endQueryString().build());
+  }
+
+  @Test
+  public void testEmptyQueryString() {
+    assertEquals("/the/path", new UrlComposer().path("/the/path", null, null, null)
+        .startQueryString().queryString("").endQueryString().build());
+    assertEquals("/the/path", new UrlComposer().path("/the/path?", null, null, null)
+        .startQueryString().endQueryString().build());
+  }
+
+  @Test
+  public void testFragment() {
+    assertEquals("/the/path#new", new UrlComposer().path("/the/path#old", null, null, null)
+        .fragment("#new").build());
+  }
+
+  @Test
+  public void testNested() {
+    UrlComposer url1 = new UrlComposer().path("/path1", null, null, null);
+    UrlComposer url2 = new UrlComposer().path("/path2", null, null, null);
+    assertEquals("/path2", url2.build());
+    assertEquals("/path1", url1.build());
+  }
+
+}
@@ -20,7 +20,10 @@
 package io.wcm.handler.url.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.spy;
@@ -121,6 +124,29 @@ public class UrlHandlerImplTest {
 
   }
 
+  /**
+   * Test {@link UrlHandler#rewritePathToContext(String)} with non-normalized paths in current site context
+   */
+  @Test
+  public void testRewritePathToContext_SiteContext_NonNormalizedPath() {
+
+    // create current page in site context
+    context.currentPage(context.create().page("/content/unittest/de_test/brand/de/section/page",
+        DummyAppTemplate.CONTENT.getTemplatePath()));
+
+    UrlHandler urlHandler = AdaptTo.notNull(adaptable(), UrlHandler.class);
+
+    assertEquals("/content/unittest/de_test/brand/de/section/page",
+        urlHandler.rewritePathToContext("/content/unittest/de_test/brand/de//section/page"));
+    assertEquals("/content/unittest/de_test/brand/de/section/page",
+        urlHandler.rewritePathToContext("/content/unittest/de_test/brand/de/section/page/"));
+    assertEquals("/content/unittest/de_test/brand/de",
+        urlHandler.rewritePathToContext("/content/unittest/de_test/brand/de/"));
+    assertEquals("/content/unittest/de_test/brand/de/xyz",
+        urlHandler.rewritePathToContext("/content/unittest/de_test/brand/dexyz/xyz"));
+
+  }
+
   /**
    * Test {@link UrlHandler#rewritePathToContext(String)} with current invalid context
    */
@@ -583,6 +609,29 @@ public class UrlHandlerImplTest {
 
   }
 
+  @Test
+  public void testAppendQueryStringWithInheritance_Cached() {
+    if (!(adaptable() instanceof SlingHttpServletRequest)) {
+      return;
+    }
+    UrlHandler urlHandler = AdaptTo.notNull(adaptable(), UrlHandler.class);
+    Set<String> params = ImmutableSet.of("i1", "i2");
+
+    context.request().setQueryString("abc=xyz&i1=123&i2=456");
+    assertEquals("/the/path?i1=123&i2=456", appendQueryString(urlHandler, "/the/path", null, params));
+    Object inheritableParameters = context.request().getAttribute(UrlHandlerImpl.RA_INHERITABLE_PARAMETERS);
+    assertNotNull(inheritableParameters);
+
+    // repeated builds reuse the cached query string fragments
+    assertEquals("/the/path2?def=ghi&i1=123&i2=456", appendQueryString(urlHandler, "/the/path2", "def=ghi", params));
+    assertSame(inheritableParameters, context.request().getAttribute(UrlHandlerImpl.RA_INHERITABLE_PARAMETERS));
+
+    // changing the request query string invalidates the cached fragments
+    context.request().setQueryString("i1=789");
+    assertEquals("/the/path?i1=789", appendQueryString(urlHandler, "/the/path", null, params));
+    assertNotSame(inheritableParameters, context.request().getAttribute(UrlHandlerImpl.RA_INHERITABLE_PARAMETERS));
+  }
+
   @Test
   public void testSetAnchor() {
     UrlHandler urlHandler = AdaptTo.notNull(adaptable(), UrlHandler.class);
@@ -0,0 +1,79 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl.modes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.wcm.handler.url.testcontext.AppAemContext;
+import io.wcm.testing.mock.aem.junit.AemContext;
+
+import org.apache.sling.api.resource.Resource;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class UrlConfigTest {
+
+  @Rule
+  public final AemContext context = AppAemContext.newAemContext();
+
+  @Test
+  public void testGetForResource() {
+    Resource resource = context.resourceResolver().getResource("/content/unittest/de_test/brand/en/section");
+    UrlConfig config = UrlConfig.get(resource, context.request());
+    assertTrue(config.isValid());
+    assertEquals("http://en.dummysite.org", config.getSiteUrl());
+    assertEquals("https://en.dummysite.org", config.getSiteUrlSecure());
+    assertTrue(config.hasSiteUrlAuthor());
+  }
+
+  @Test
+  public void testGetForNonConfiguredResource() {
+    Resource resource = context.create().resource("/content/other");
+    UrlConfig config = UrlConfig.get(resource, context.request());
+    assertFalse(config.isValid());
+  }
+
+  @Test
+  public void testCachedPerRequest() {
+    Resource resource = context.resourceResolver().getResource("/content/unittest/de_test/brand/en/section");
+    assertSame(UrlConfig.get(resource, context.request()), UrlConfig.get(resource, context.request()));
+    assertSame(UrlConfig.get(context.request(), context.request()), UrlConfig.get(context.request(), context.request()));
+  }
+
+  @Test
+  public void testCachedPerConfigurationId() {
+    Resource resource1 = context.resourceResolver().getResource("/content/unittest/de_test/brand/en/section");
+    Resource resource2 = context.resourceResolver().getResource("/content/unittest/de_test/brand/en/section/page");
+    assertSame(UrlConfig.get(resource1, context.request()), UrlConfig.get(resource2, context.request()));
+
+    Resource resource3 = context.resourceResolver().getResource("/content/unittest/de_test/brand/de/section/page");
+    assertNotSame(UrlConfig.get(resource1, context.request()), UrlConfig.get(resource3, context.request()));
+  }
+
+  @Test
+  public void testNotCachedWithoutRequest() {
+    Resource resource = context.resourceResolver().getResource("/content/unittest/de_test/brand/en/section");
+    assertNotSame(UrlConfig.get(resource, resource), UrlConfig.get(resource, resource));
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.integrator.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.wcm.handler.url.integrator.IntegratorMode;
+import io.wcm.handler.url.integrator.IntegratorModes;
+import io.wcm.handler.url.spi.UrlHandlerConfig;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class IntegratorModeIndexTest {
+
+  private static final List<IntegratorMode> MODES = ImmutableList.<IntegratorMode>of(
+      IntegratorModes.SIMPLE,
+      IntegratorModes.EXTENDED
+      );
+
+  @Test
+  public void testGetMode() {
+    IntegratorModeIndex underTest = new IntegratorModeIndex(MODES);
+    assertEquals(IntegratorModes.SIMPLE, underTest.getMode(IntegratorModes.SIMPLE.getId()));
+    assertEquals(IntegratorModes.EXTENDED, underTest.getMode(IntegratorModes.EXTENDED.getId()));
+  }
+
+  @Test
+  public void testGetMode_Fallback() {
+    IntegratorModeIndex underTest = new IntegratorModeIndex(MODES);
+    assertEquals(IntegratorModes.SIMPLE, underTest.getMode(null));
+    assertEquals(IntegratorModes.SIMPLE, underTest.getMode(""));
+    assertEquals(IntegratorModes.SIMPLE, underTest.getMode("unknown"));
+  }
+
+  @Test
+  public void testGetMode_NoModes() {
+    IntegratorModeIndex underTest = new IntegratorModeIndex(ImmutableList.<IntegratorMode>of());
+    assertNull(underTest.getMode(IntegratorModes.SIMPLE.getId()));
+  }
+
+  @Test
+  public void testIndexBuiltOncePerConfig() {
+    UrlHandlerConfig config = mock(UrlHandlerConfig.class);
+    when(config.getIntegratorModes()).thenReturn(MODES);
+
+    IntegratorModeIndex index = IntegratorModeIndex.get(config);
+    assertSame(index, IntegratorModeIndex.get(config));
+    verify(config, times(1)).getIntegratorModes();
+  }
+
+  @Test
+  public void testIndexPerConfigInstance() {
+    UrlHandlerConfig config1 = mock(UrlHandlerConfig.class);
+    when(config1.getIntegratorModes()).thenReturn(MODES);
+    UrlHandlerConfig config2 = mock(UrlHandlerConfig.class);
+    when(config2.getIntegratorModes()).thenReturn(ImmutableList.<IntegratorMode>of(IntegratorModes.EXTENDED));
+
+    assertEquals(IntegratorModes.SIMPLE, IntegratorModeIndex.get(config1).getMode(null));
+    assertEquals(IntegratorModes.EXTENDED, IntegratorModeIndex.get(config2).getMode(null));
+  }
+
+}
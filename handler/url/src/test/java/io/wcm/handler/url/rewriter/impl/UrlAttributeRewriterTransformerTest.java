@@ -0,0 +1,209 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2015 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.rewriter.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.wcm.handler.url.integrator.IntegratorHandler;
+import io.wcm.handler.url.testcontext.AppAemContext;
+import io.wcm.sling.commons.resource.ImmutableValueMap;
+import io.wcm.testing.mock.aem.junit.AemContext;
+
+import java.util.Map;
+
+import org.apache.sling.rewriter.ProcessingComponentConfiguration;
+import org.apache.sling.rewriter.ProcessingContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+
+import com.google.common.collect.ImmutableMap;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UrlAttributeRewriterTransformerTest {
+
+  private static final String PREFIX = "http://de.dummysite.org";
+
+  @Rule
+  public AemContext context = AppAemContext.newAemContext();
+
+  @Mock
+  private ContentHandler contentHandler;
+  @Mock
+  private ProcessingContext processingContext;
+  @Mock
+  private ProcessingComponentConfiguration processingComponentConfiguration;
+
+  private UrlAttributeRewriterTransformer underTest;
+
+  @Before
+  public void setUp() {
+    when(processingContext.getRequest()).thenReturn(context.request());
+    when(processingComponentConfiguration.getConfiguration()).thenReturn(ImmutableValueMap.of());
+    context.requestPathInfo().setSelectorString(IntegratorHandler.SELECTOR_INTEGRATORTEMPLATE);
+
+    UrlAttributeRewriterTransformerFactory factory = context.registerInjectActivateService(
+        new UrlAttributeRewriterTransformerFactory());
+
+    underTest = (UrlAttributeRewriterTransformer)factory.createTransformer();
+    underTest.setContentHandler(contentHandler);
+    underTest.init(processingContext, processingComponentConfiguration);
+  }
+
+  @After
+  public void tearDown() {
+    underTest.dispose();
+  }
+
+  @Test
+  public void testUrlAttributes() throws Exception {
+    callTransformer("video", ImmutableMap.of("poster", "/my/url", "class", "/no/url"));
+    verifyTransformer("video", ImmutableMap.of("poster", PREFIX + "/my/url", "class", "/no/url"));
+  }
+
+  @Test
+  public void testHref() throws Exception {
+    callTransformer("link", ImmutableMap.of("href", "/my/style.css"));
+    verifyTransformer("link", ImmutableMap.of("href", PREFIX + "/my/style.css"));
+  }
+
+  @Test
+  public void testHref_PageLink() throws Exception {
+    // page links are externalized by the link handler
+    callTransformer("a", ImmutableMap.of("href", "/my/page.html"));
+    verifyTransformer("a", ImmutableMap.of("href", "/my/page.html"));
+    assertEquals(0, underTest.getUrlCount());
+  }
+
+  @Test
+  public void testHref_ConfiguredElement() throws Exception {
+    when(processingComponentConfiguration.getConfiguration()).thenReturn(ImmutableValueMap.of(
+        UrlAttributeRewriterTransformerConfig.PN_REWRITE_ELEMENTS, new String[] {
+          "link:href", "A:HREF"
+        }));
+    underTest.init(processingContext, processingComponentConfiguration);
+
+    callTransformer("a", ImmutableMap.of("href", "/my/download.pdf"));
+    verifyTransformer("a", ImmutableMap.of("href", PREFIX + "/my/download.pdf"));
+  }
+
+  @Test
+  public void testDataAttribute_NotConfigured() throws Exception {
+    callTransformer("div", ImmutableMap.of("data-src", "/my/url", "data-label", "/my/label"));
+    verifyTransformer("div", ImmutableMap.of("data-src", "/my/url", "data-label", "/my/label"));
+    assertEquals(0, underTest.getUrlCount());
+  }
+
+  @Test
+  public void testDataAttribute_Configured() throws Exception {
+    when(processingComponentConfiguration.getConfiguration()).thenReturn(ImmutableValueMap.of(
+        UrlAttributeRewriterTransformerConfig.PN_REWRITE_DATA_ATTRIBUTES, new String[] {
+          "data-src"
+        }));
+    underTest.init(processingContext, processingComponentConfiguration);
+
+    callTransformer("div", ImmutableMap.of("data-src", "/my/url", "data-label", "/my/label"));
+    verifyTransformer("div", ImmutableMap.of("data-src", PREFIX + "/my/url", "data-label", "/my/label"));
+  }
+
+  @Test
+  public void testNonSiteRelativeUrls() throws Exception {
+    callTransformer("img", ImmutableMap.of("src", "//cdn.example.com/a.png", "longdesc", "http://www.example.com/a"));
+    verifyTransformer("img", ImmutableMap.of("src", "//cdn.example.com/a.png", "longdesc", "http://www.example.com/a"));
+    assertEquals(0, underTest.getUrlCount());
+  }
+
+  @Test
+  public void testSrcset() throws Exception {
+    callTransformer("img", ImmutableMap.of("srcset", "/a.png 1x, /b.png 2x,/c.png,http://x/d.png 3w"));
+    verifyTransformer("img", ImmutableMap.of("srcset",
+        PREFIX + "/a.png 1x, " + PREFIX + "/b.png 2x," + PREFIX + "/c.png,http://x/d.png 3w"));
+  }
+
+  @Test
+  public void testStyle() throws Exception {
+    callTransformer("div", ImmutableMap.of("style",
+        "background: url(/a.png) no-repeat; list-style-image: URL( \"/b.png\" ); cursor: url('http://x/c.cur')"));
+    verifyTransformer("div", ImmutableMap.of("style",
+        "background: url(" + PREFIX + "/a.png) no-repeat; list-style-image: URL( \"" + PREFIX + "/b.png\" ); "
+            + "cursor: url('http://x/c.cur')"));
+  }
+
+  @Test
+  public void testSrcset_Escaped() throws Exception {
+    callTransformer("img", ImmutableMap.of("srcset", "/a.png?x=1&amp;y=2 1x, /b.png 2x"));
+    verifyTransformer("img", ImmutableMap.of("srcset",
+        PREFIX + "/a.png?x=1&amp;y=2 1x, " + PREFIX + "/b.png 2x"));
+  }
+
+  @Test
+  public void testStyle_Escaped() throws Exception {
+    callTransformer("div", ImmutableMap.of("style",
+        "font-family: &quot;A&amp;B&quot;; background: url(&quot;/a.png?x=1&amp;y=2&quot;)"));
+    verifyTransformer("div", ImmutableMap.of("style",
+        "font-family: &quot;A&amp;B&quot;; background: url(&quot;" + PREFIX + "/a.png?x=1&amp;y=2&quot;)"));
+  }
+
+  @Test
+  public void testCounters() throws Exception {
+    callTransformer("img", ImmutableMap.of("src", "/a.png"));
+    callTransformer("img", ImmutableMap.of("src", "/a.png"));
+    callTransformer("div", ImmutableMap.of("style", "background: url(/b.png)"));
+    callTransformer("link", ImmutableMap.of("href", "/c.css"));
+    assertEquals(4, underTest.getUrlCount());
+    assertEquals(4, underTest.getRewrittenUrlCount());
+    assertEquals(3, underTest.getDistinctRewrittenUrlCount());
+  }
+
+  @Test
+  public void testNoIntegratorTemplateMode() throws Exception {
+    context.requestPathInfo().setSelectorString(null);
+    underTest.init(processingContext, processingComponentConfiguration);
+    callTransformer("img", ImmutableMap.of("src", "/my/url"));
+    verifyTransformer("img", ImmutableMap.of("src", "/my/url"));
+    assertEquals(1, underTest.getUrlCount());
+    assertEquals(0, underTest.getRewrittenUrlCount());
+    assertEquals(0, underTest.getDistinctRewrittenUrlCount());
+  }
+
+  private void callTransformer(String elementName, Map<String, String> attributes) throws Exception {
+    underTest.startElement(null, elementName, null, toAttributes(attributes));
+  }
+
+  private void verifyTransformer(String elementName, Map<String, String> attributes) throws Exception {
+    verify(contentHandler).startElement(null, elementName, null, toAttributes(attributes));
+  }
+
+  private Attributes toAttributes(Map<String, String> attributes) {
+    ComparableAttributes attrs = new ComparableAttributes();
+    for (Map.Entry<String, String> entry : attributes.entrySet()) {
+      attrs.addAttribute(null, entry.getKey(), entry.getKey(), "xs:string", entry.getValue());
+    }
+    return attrs;
+  }
+
+}
@@ -19,8 +19,11 @@
  */
 package io.wcm.handler.url.rewriter.impl;
 
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import io.wcm.handler.url.UrlBuilder;
+import io.wcm.handler.url.UrlHandler;
 import io.wcm.handler.url.integrator.IntegratorHandler;
 import io.wcm.handler.url.testcontext.AppAemContext;
 import io.wcm.sling.commons.resource.ImmutableValueMap;
@@ -28,6 +31,7 @@ import io.wcm.testing.mock.aem.junit.AemContext;
 
 import java.util.Map;
 
+import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.rewriter.ProcessingComponentConfiguration;
 import org.apache.sling.rewriter.ProcessingContext;
 import org.apache.sling.rewriter.Transformer;
@@ -55,6 +59,12 @@ public class UrlExternalizerTransformerTest {
   private ProcessingContext processingContext;
   @Mock
   private ProcessingComponentConfiguration processingComponentConfiguration;
+  @Mock
+  private SlingHttpServletRequest request;
+  @Mock
+  private UrlHandler urlHandler;
+  @Mock
+  private UrlBuilder urlBuilder;
 
   private Transformer underTest;
 
@@ -119,6 +129,24 @@ public class UrlExternalizerTransformerTest {
     verifyTransformer("element1", ImmutableMap.of("attr1", ""));
   }
 
+  @Test
+  public void testRewriteKnownElement_RepeatedUrl() throws Exception {
+    when(processingContext.getRequest()).thenReturn(request);
+    when(request.adaptTo(UrlHandler.class)).thenReturn(urlHandler);
+    when(urlHandler.get("/my/url")).thenReturn(urlBuilder);
+    when(urlBuilder.buildExternalResourceUrl()).thenReturn("http://de.dummysite.org/my/url");
+
+    underTest.init(processingContext, processingComponentConfiguration);
+    underTest.startElement(null, "element1", null, toAttributes(ImmutableMap.of("attr1", "/my/url")));
+    underTest.startElement(null, "element1", null, toAttributes(ImmutableMap.of("attr1", "/my/url")));
+    verify(contentHandler, times(2)).startElement(null, "element1", null,
+        toAttributes(ImmutableMap.of("attr1", "http://de.dummysite.org/my/url")));
+
+    // URL is externalized only once per response
+    verify(urlHandler, times(1)).get("/my/url");
+    verify(urlBuilder, times(1)).buildExternalResourceUrl();
+  }
+
   private void callTransformer(String elementName, Map<String, String> attributes) throws Exception {
     underTest.init(processingContext, processingComponentConfiguration);
     underTest.startElement(null, elementName, null, toAttributes(attributes));
@@ -433,4 +433,24 @@ public class SuffixParserTest {
     assertEquals(resourceBC.getPath(), suffixResources.get(0).getPath());
   }
 
+  @Test
+  public void testDuplicateKeyFirstValueWins() {
+    SuffixParser parser = getParserWithIncomingSuffix("/abc=1/abc=2/def=3");
+    assertEquals(1, parser.get("abc", 0));
+    assertEquals(3, parser.get("def", 0));
+  }
+
+  @Test
+  public void testSuffixChangedInRequest() {
+    SuffixParser parser = getParserWithIncomingSuffix("/abc=1");
+    assertEquals(1, parser.get("abc", 0));
+
+    // parse same request again after suffix was changed
+    parser = getParserWithIncomingSuffix("/abc=2");
+    assertEquals(2, parser.get("abc", 0));
+
+    parser = getParserWithIncomingSuffix(null);
+    assertEquals(0, parser.get("abc", 0));
+  }
+
 }
@@ -24,6 +24,7 @@ import io.wcm.config.spi.ConfigurationFinderStrategy;
 import io.wcm.config.spi.ParameterProvider;
 import io.wcm.handler.url.UrlParams;
 import io.wcm.handler.url.impl.ApplicationProviderImpl;
+import io.wcm.handler.url.impl.ResourceMappingCache;
 import io.wcm.handler.url.impl.UrlHandlerParameterProviderImpl;
 import io.wcm.sling.commons.resource.ImmutableValueMap;
 import io.wcm.testing.mock.aem.junit.AemContext;
@@ -75,6 +76,9 @@ public final class AppAemContext {
       // wcm.io configuration
       MockConfig.setUp(context);
 
+      // resource mapping cache
+      context.registerInjectActivateService(new ResourceMappingCache());
+
       // sling models registration
       context.addModelsForPackage("io.wcm.handler.url");
 